@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.benchmark;
+
+import kotlin.Pair;
+import org.firstinspires.ftc.vision.VisionProcessor;
+import org.firstinspires.ftc.vision.apriltag.AprilTagDetection;
+import org.firstinspires.ftc.vision.apriltag.AprilTagProcessor;
+import org.firstinspires.ftc.vision.opencv.ColorBlobLocatorProcessor;
+import org.firstinspires.ftc.vision.opencv.ColorRange;
+import org.firstinspires.ftc.vision.opencv.ImageRegion;
+import org.firstinspires.ftc.vision.opencv.PredominantColorProcessor;
+import org.opencv.core.Mat;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The built-in VisionPortal processors, each one processing the same synthetic frame.
+ * The frame has a tag of the current game, so the AprilTag numbers include decoding
+ * it and estimating its pose.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VisionProcessorBenchmark {
+
+    @Param({"320x240", "640x480", "1280x720"})
+    public String resolution;
+
+    private Mat frame;
+
+    private VisionProcessor colorBlobLocator;
+    private VisionProcessor predominantColor;
+    private VisionProcessor aprilTag;
+
+    @Setup
+    public void setup() {
+        SyntheticFrames.INSTANCE.loadLibraries();
+
+        Pair<Integer, Integer> size = SyntheticFrames.INSTANCE.parseResolution(resolution);
+        int width = size.getFirst();
+        int height = size.getSecond();
+
+        frame = SyntheticFrames.INSTANCE.sceneRgba(width, height);
+
+        colorBlobLocator = new ColorBlobLocatorProcessor.Builder()
+                .setTargetColorRange(ColorRange.BLUE)
+                .setContourMode(ColorBlobLocatorProcessor.ContourMode.EXTERNAL_ONLY)
+                .setRoi(ImageRegion.entireFrame())
+                .setBlurSize(5)
+                .build();
+
+        predominantColor = new PredominantColorProcessor.Builder()
+                .setRoi(ImageRegion.asUnityCenterCoordinates(-0.5, 0.5, 0.5, -0.5))
+                .setSwatches(
+                        PredominantColorProcessor.Swatch.RED,
+                        PredominantColorProcessor.Swatch.BLUE,
+                        PredominantColorProcessor.Swatch.YELLOW,
+                        PredominantColorProcessor.Swatch.BLACK,
+                        PredominantColorProcessor.Swatch.WHITE)
+                .build();
+
+        aprilTag = AprilTagProcessor.easyCreateWithDefaults();
+
+        colorBlobLocator.init(width, height, null);
+        predominantColor.init(width, height, null);
+        aprilTag.init(width, height, null);
+
+        // make sure the numbers are for a decoded tag, not for an empty search
+        List<?> detections = (List<?>) aprilTag.processFrame(frame, System.nanoTime());
+
+        if (detections.size() != 1 || ((AprilTagDetection) detections.get(0)).id != SyntheticFrames.getTagId()) {
+            throw new IllegalStateException("The AprilTag processor didn't detect tag " + SyntheticFrames.getTagId() + " at " + resolution);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        frame.release();
+    }
+
+    @Benchmark
+    public Object colorBlobLocator() {
+        return colorBlobLocator.processFrame(frame, System.nanoTime());
+    }
+
+    @Benchmark
+    public Object predominantColor() {
+        return predominantColor.processFrame(frame, System.nanoTime());
+    }
+
+    @Benchmark
+    public Object aprilTag() {
+        return aprilTag.processFrame(frame, System.nanoTime());
+    }
+
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.benchmark
+
+import org.opencv.core.Mat
+import org.opencv.core.Point
+import org.opencv.core.Rect
+import org.opencv.core.Scalar
+import org.openftc.easyopencv.OpenCvPipeline
+
+/**
+ * A pipeline with the kind of fields users tune, for the snapshot and tuner benchmarks
+ */
+class BenchmarkPipeline : OpenCvPipeline() {
+
+    @JvmField var threshold = 120
+    @JvmField var blurSize = 5
+    @JvmField var erodeIterations = 2
+    @JvmField var dilateIterations = 2
+    @JvmField var minArea = 150.0
+    @JvmField var maxArea = 20000.0
+    @JvmField var aspectRatio = 1.5f
+    @JvmField var frameCount = 0L
+    @JvmField var drawContours = true
+    @JvmField var label = "blob"
+
+    @JvmField var lowerHsv = Scalar(0.0, 120.0, 80.0)
+    @JvmField var upperHsv = Scalar(12.0, 255.0, 255.0)
+    @JvmField var lowerYCrCb = Scalar(0.0, 150.0, 0.0)
+    @JvmField var upperYCrCb = Scalar(255.0, 255.0, 120.0)
+
+    @JvmField var anchor = Point(40.0, 60.0)
+    @JvmField var region = Rect(10, 10, 200, 150)
+
+    override fun processFrame(input: Mat) = input
+
+}
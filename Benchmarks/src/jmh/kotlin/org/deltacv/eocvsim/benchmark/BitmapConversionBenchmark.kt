@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.benchmark
+
+import android.graphics.Bitmap
+import org.opencv.android.Utils
+import org.opencv.core.Mat
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class BitmapConversionBenchmark {
+
+    @Param("320x240", "640x480", "1280x720")
+    var resolution = ""
+
+    private lateinit var frame: Mat
+    private lateinit var bitmap: Bitmap
+    private val converted = Mat()
+
+    @Setup
+    fun setup() {
+        SyntheticFrames.loadLibraries()
+
+        val (width, height) = SyntheticFrames.parseResolution(resolution)
+
+        frame = SyntheticFrames.sceneRgba(width, height)
+        bitmap = Bitmap.createBitmap(width, height)
+
+        Utils.matToBitmap(frame, bitmap)
+    }
+
+    @TearDown
+    fun tearDown() {
+        frame.release()
+        converted.release()
+        bitmap.recycle()
+    }
+
+    @Benchmark
+    fun matToBitmap(): Bitmap {
+        Utils.matToBitmap(frame, bitmap)
+        return bitmap
+    }
+
+    @Benchmark
+    fun bitmapToMat(): Mat {
+        Utils.bitmapToMat(bitmap, converted)
+        return converted
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.benchmark
+
+import com.github.serivesmejia.eocvsim.util.event.EventHandler
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class EventHandlerBenchmark {
+
+    @Param("1", "16", "256")
+    var listenerCount = 0
+
+    private lateinit var handler: EventHandler
+
+    private var calls = 0L
+
+    @Setup
+    fun setup() {
+        handler = EventHandler("Benchmark")
+
+        repeat(listenerCount) {
+            handler { calls++ }
+        }
+    }
+
+    @Benchmark
+    fun run(): Long {
+        handler.run()
+        return calls
+    }
+
+    /**
+     * A run with a once listener attached before it, like the
+     * main loop does with the tasks queued from other threads
+     */
+    @Benchmark
+    fun runWithOnceListener(): Long {
+        handler.once { calls++ }
+        handler.run()
+
+        return calls
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.benchmark
+
+import org.opencv.core.CvType
+import org.openftc.easyopencv.MatRecycler
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class MatRecyclerBenchmark {
+
+    @Param("2", "16")
+    var bufferCount = 0
+
+    private lateinit var recycler: MatRecycler
+
+    @Setup
+    fun setup() {
+        SyntheticFrames.loadLibraries()
+        recycler = MatRecycler(bufferCount, 480, 640, CvType.CV_8UC4)
+    }
+
+    @TearDown
+    fun tearDown() {
+        recycler.releaseAll()
+    }
+
+    @Benchmark
+    fun takeAndReturn(): MatRecycler.RecyclableMat {
+        val mat = recycler.takeMatOrNull()
+        mat.returnMat()
+
+        return mat
+    }
+
+    /**
+     * Several threads contending for the recycler, like the frame
+     * grabbers and the recording workers do
+     */
+    @Benchmark
+    @Threads(4)
+    fun takeAndReturnContended(): MatRecycler.RecyclableMat? {
+        val mat = recycler.takeMatOrNull() ?: return null
+        mat.returnMat()
+
+        return mat
+    }
+
+}
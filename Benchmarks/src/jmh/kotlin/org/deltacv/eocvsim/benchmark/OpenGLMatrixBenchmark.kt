@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.benchmark
+
+import org.firstinspires.ftc.robotcore.external.matrices.OpenGLMatrix
+import org.firstinspires.ftc.robotcore.external.matrices.VectorF
+import org.firstinspires.ftc.robotcore.external.navigation.AngleUnit
+import org.firstinspires.ftc.robotcore.external.navigation.AxesOrder
+import org.firstinspires.ftc.robotcore.external.navigation.AxesReference
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+open class OpenGLMatrixBenchmark {
+
+    private lateinit var robotInCamera: OpenGLMatrix
+    private lateinit var cameraInField: OpenGLMatrix
+    private lateinit var point: VectorF
+
+    @Setup
+    fun setup() {
+        robotInCamera = OpenGLMatrix.translation(0f, 120f, 240f)
+            .multiplied(OpenGLMatrix.rotation(AxesReference.EXTRINSIC, AxesOrder.XZY, AngleUnit.DEGREES, 90f, 0f, -15f))
+
+        cameraInField = OpenGLMatrix.translation(600f, -300f, 0f)
+            .multiplied(OpenGLMatrix.rotation(AxesReference.EXTRINSIC, AxesOrder.XYZ, AngleUnit.DEGREES, 0f, 0f, 45f))
+
+        point = VectorF(100f, 50f, 25f, 1f)
+    }
+
+    @Benchmark
+    fun multiplied(): OpenGLMatrix = cameraInField.multiplied(robotInCamera)
+
+    @Benchmark
+    fun transformPoint(): VectorF = cameraInField.multiplied(point)
+
+    @Benchmark
+    fun inverted(): OpenGLMatrix = cameraInField.inverted()
+
+}
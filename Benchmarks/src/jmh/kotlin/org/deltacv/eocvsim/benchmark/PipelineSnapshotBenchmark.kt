@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.benchmark
+
+import com.github.serivesmejia.eocvsim.pipeline.util.PipelineSnapshot
+import org.deltacv.eocvsim.virtualreflect.jvm.JvmVirtualReflection
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class PipelineSnapshotBenchmark {
+
+    private lateinit var pipeline: BenchmarkPipeline
+    private lateinit var restoredPipeline: BenchmarkPipeline
+
+    private lateinit var snapshot: PipelineSnapshot
+    private lateinit var initialSnapshot: PipelineSnapshot
+
+    @Setup
+    fun setup() {
+        SyntheticFrames.loadLibraries()
+
+        pipeline = BenchmarkPipeline()
+        initialSnapshot = PipelineSnapshot(JvmVirtualReflection.contextOf(pipeline))
+
+        pipeline.threshold = 90
+        pipeline.label = "tuned"
+        pipeline.lowerHsv.`val`[0] = 4.0
+
+        snapshot = PipelineSnapshot(JvmVirtualReflection.contextOf(pipeline))
+        restoredPipeline = BenchmarkPipeline()
+    }
+
+    @Benchmark
+    fun capture() = PipelineSnapshot(JvmVirtualReflection.contextOf(pipeline))
+
+    @Benchmark
+    fun restore(): BenchmarkPipeline {
+        snapshot.transferTo(restoredPipeline)
+        return restoredPipeline
+    }
+
+    /**
+     * Restoring after a recompilation, which compares against the initial
+     * state of the pipeline to keep the fields changed in code
+     */
+    @Benchmark
+    fun restoreComparingToInitial(): BenchmarkPipeline {
+        snapshot.transferTo(restoredPipeline, initialSnapshot)
+        return restoredPipeline
+    }
+
+}
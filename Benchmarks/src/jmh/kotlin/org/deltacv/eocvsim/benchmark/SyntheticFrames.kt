@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.benchmark
+
+import com.github.serivesmejia.eocvsim.input.source.SyntheticSource
+import com.github.serivesmejia.eocvsim.util.LibraryLoader
+import org.firstinspires.ftc.vision.apriltag.AprilTagGameDatabase
+import org.opencv.core.CvType
+import org.opencv.core.Mat
+import org.opencv.core.Point
+import org.opencv.core.Rect
+import org.opencv.core.Scalar
+import org.opencv.imgproc.Imgproc
+
+/**
+ * Fixed frames the benchmarks run on, so that results stay comparable across runs
+ */
+object SyntheticFrames {
+
+    /**
+     * Id of the tag drawn by [sceneRgba], part of the current game's library
+     * so that the AprilTag processor also estimates its pose
+     */
+    @JvmStatic
+    val tagId get() = AprilTagGameDatabase.getCurrentGameTagLibrary().allTags.first().id
+
+    private var librariesLoaded = false
+
+    @Synchronized
+    fun loadLibraries() {
+        if (librariesLoaded) return
+
+        LibraryLoader.loadLibraries()
+        librariesLoaded = true
+    }
+
+    /**
+     * Parses a "WIDTHxHEIGHT" benchmark param
+     */
+    fun parseResolution(resolution: String): Pair<Int, Int> {
+        val (width, height) = resolution.split("x").map { it.trim().toInt() }
+        return width to height
+    }
+
+    /**
+     * An RGBA frame like the ones pipelines receive, with a red and a blue blob
+     * for the color processors and a tag36h11 marker for the AprilTag detector
+     */
+    fun sceneRgba(width: Int, height: Int): Mat {
+        val frame = Mat(height, width, CvType.CV_8UC4, Scalar(110.0, 110.0, 110.0, 255.0))
+
+        val unit = minOf(width, height) / 12.0
+
+        Imgproc.circle(frame, Point(width * 0.25, height * 0.5), (unit * 1.5).toInt(), Scalar(220.0, 30.0, 30.0, 255.0), -1)
+        Imgproc.rectangle(
+            frame, Point(width * 0.75 - unit, height * 0.3), Point(width * 0.75 + unit, height * 0.7),
+            Scalar(30.0, 40.0, 210.0, 255.0), -1
+        )
+
+        val marker = Mat()
+        SyntheticSource.renderTag(tagId, marker)
+
+        // the marker brings its own white border
+        val side = (unit * 4).toInt()
+        val tag = frame.submat(Rect(width / 2 - side / 2, height / 2 - side / 2, side, side))
+
+        Imgproc.resize(marker, tag, tag.size(), 0.0, 0.0, Imgproc.INTER_NEAREST)
+
+        tag.release()
+        marker.release()
+
+        return frame
+    }
+
+}
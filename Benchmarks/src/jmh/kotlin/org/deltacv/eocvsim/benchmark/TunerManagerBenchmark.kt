@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.benchmark
+
+import com.github.serivesmejia.eocvsim.tuner.TunerManager
+import kotlinx.coroutines.runBlocking
+import org.openjdk.jmh.annotations.*
+import java.util.concurrent.TimeUnit
+
+/**
+ * The per frame update of the tunable fields, without any GUI attached
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+open class TunerManagerBenchmark {
+
+    private lateinit var pipeline: BenchmarkPipeline
+    private lateinit var tunerManager: TunerManager
+
+    @Setup
+    fun setup() {
+        SyntheticFrames.loadLibraries()
+
+        pipeline = BenchmarkPipeline()
+
+        tunerManager = TunerManager()
+        tunerManager.addFieldsFrom(pipeline)
+
+        for (field in tunerManager.fields) {
+            field.init()
+        }
+    }
+
+    @Benchmark
+    fun updateUnchanged() = runBlocking {
+        tunerManager.run()
+    }
+
+    /**
+     * The pipeline changing its own fields every frame, each
+     * change has to be picked up and propagated to the tunable values
+     */
+    @Benchmark
+    fun updateChangedByPipeline() = runBlocking {
+        pipeline.threshold = (pipeline.threshold + 1) % 255
+        pipeline.minArea += 1.0
+        pipeline.lowerHsv.`val`[0] = (pipeline.lowerHsv.`val`[0] + 1) % 180
+
+        tunerManager.run()
+    }
+
+    @Benchmark
+    fun updateFromGui() = runBlocking {
+        for (field in tunerManager.fields) {
+            for (value in field.tunableValues) {
+                val current = value.value
+                if (current is Double) value.setAnyFromGui(current + 1)
+            }
+        }
+
+        tunerManager.run()
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.util.fps
+
+/**
+ * Paces frames by the timestamps they were recorded with, so that
+ * playback reproduces the original timing instead of a fixed rate.
+ * Timestamps going backwards (looping back to the start) restart the timeline.
+ */
+class TimestampPacer {
+
+    private var startNanos = -1L
+    private var firstTimestamp = 0L
+    private var lastTimestamp = Long.MIN_VALUE
+
+    /**
+     * Waits until the frame recorded at [timestampNanos] is due
+     */
+    @Throws(InterruptedException::class)
+    fun sync(timestampNanos: Long) {
+        val now = System.nanoTime()
+
+        if (startNanos < 0 || timestampNanos < lastTimestamp) {
+            startNanos = now
+            firstTimestamp = timestampNanos
+        }
+        lastTimestamp = timestampNanos
+
+        val wait = startNanos + (timestampNanos - firstTimestamp) - now
+        if (wait > 0) {
+            Thread.sleep(wait / 1_000_000, (wait % 1_000_000).toInt())
+        }
+    }
+
+    fun reset() {
+        startNanos = -1L
+        lastTimestamp = Long.MIN_VALUE
+    }
+
+}
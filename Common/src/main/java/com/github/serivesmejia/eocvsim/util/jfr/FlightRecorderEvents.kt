@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.util.jfr
+
+import jdk.jfr.Category
+import jdk.jfr.DataAmount
+import jdk.jfr.Description
+import jdk.jfr.Event
+import jdk.jfr.Label
+import jdk.jfr.Name
+import jdk.jfr.StackTrace
+
+/*
+ * Custom JFR events of the frame lifecycle and of the subsystems that can make
+ * a frame slow. They're only recorded while a FlightRecording is running, and
+ * cost close to nothing otherwise. Fields that take work to fill should
+ * be set only if shouldCommit() returns true.
+ */
+
+@Name("org.deltacv.eocvsim.InputUpdate")
+@Label("Input Update")
+@Category("EOCV-Sim", "Frame")
+@Description("The current input source producing a frame")
+@StackTrace(false)
+class InputUpdateEvent : Event() {
+    @field:Label("Source")
+    @JvmField var source: String? = null
+
+    @field:Label("Frame Sequence")
+    @field:Description("Sequence number of the newest input frame after this update")
+    @JvmField var sequence: Long = 0
+
+    @field:Label("Updated")
+    @field:Description("Whether the source produced a new frame")
+    @JvmField var updated: Boolean = false
+}
+
+@Name("org.deltacv.eocvsim.PipelineProcessFrame")
+@Label("Pipeline processFrame")
+@Category("EOCV-Sim", "Frame")
+@Description("A pipeline processing an input frame, including init on its first frame")
+@StackTrace(false)
+class PipelineProcessFrameEvent : Event() {
+    @field:Label("Pipeline")
+    @JvmField var pipeline: String? = null
+
+    @field:Label("Frame Sequence")
+    @field:Description("Sequence number of the input frame being processed")
+    @JvmField var sequence: Long = 0
+
+    @field:Label("Init")
+    @JvmField var init: Boolean = false
+}
+
+@Name("org.deltacv.eocvsim.ViewportRender")
+@Label("Viewport Render")
+@Category("EOCV-Sim", "Frame")
+@Description("The viewport drawing its latest frame, and handing the result to its output posters")
+@StackTrace(false)
+class ViewportRenderEvent : Event() {
+    @field:Label("Width")
+    @JvmField var width: Int = 0
+
+    @field:Label("Height")
+    @JvmField var height: Int = 0
+
+    @field:Label("Output Posters")
+    @JvmField var outputPosters: Int = 0
+}
+
+@Name("org.deltacv.eocvsim.RecordingWrite")
+@Label("Recording Write")
+@Category("EOCV-Sim", "Recording")
+@Description("A recording encoding and writing a frame or a batch of entries")
+@StackTrace(false)
+class RecordingWriteEvent : Event() {
+    @field:Label("Recording")
+    @field:Description("Kind of recording, video, lossless or telemetry")
+    @JvmField var recording: String? = null
+
+    @field:Label("Stream")
+    @JvmField var stream: String? = null
+
+    @field:Label("Frame Sequence")
+    @field:Description("Sequence number of the frame written, -1 if unknown")
+    @JvmField var sequence: Long = -1
+
+    @field:Label("Bytes")
+    @field:DataAmount
+    @field:Description("Bytes written, 0 if unknown")
+    @JvmField var bytes: Long = 0
+}
+
+@Name("org.deltacv.eocvsim.TelemetryUpdate")
+@Label("Telemetry Update")
+@Category("EOCV-Sim", "Telemetry")
+@Description("A telemetry update, recorded and transmitted to the telemetry panels if it was due")
+@StackTrace(false)
+class TelemetryUpdateEvent : Event() {
+    @field:Label("Reason")
+    @JvmField var reason: String? = null
+
+    @field:Label("Transmitted")
+    @JvmField var transmitted: Boolean = false
+}
+
+@Name("org.deltacv.eocvsim.WorkspaceBuild")
+@Label("Workspace Build")
+@Category("EOCV-Sim", "Workspace")
+@Description("A build of the java files of the workspace")
+@StackTrace(false)
+class WorkspaceBuildEvent : Event() {
+    @field:Label("Build Sequence")
+    @field:Description("Number of the build since the simulator started")
+    @JvmField var sequence: Long = 0
+
+    @field:Label("Status")
+    @JvmField var status: String? = null
+
+    @field:Label("Warm Compiler")
+    @JvmField var warm: Boolean = false
+}
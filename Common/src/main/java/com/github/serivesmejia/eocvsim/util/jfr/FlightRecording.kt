@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.util.jfr
+
+import jdk.jfr.Configuration
+import jdk.jfr.Recording
+import org.deltacv.common.util.loggerForThis
+import java.io.File
+import java.io.IOException
+import java.time.Duration
+
+/**
+ * Records the EOCV-Sim JFR events, along with the JVM's own (GC, JIT compilation,
+ * thread parking...), into a .jfr file that can be opened with JDK Mission Control
+ * or `jfr print`. Only one recording can be running at a time.
+ */
+object FlightRecording {
+
+    const val EXTENSION = "jfr"
+
+    private val logger by loggerForThis()
+
+    private val eventClasses = listOf(
+        InputUpdateEvent::class.java,
+        PipelineProcessFrameEvent::class.java,
+        ViewportRenderEvent::class.java,
+        RecordingWriteEvent::class.java,
+        TelemetryUpdateEvent::class.java,
+        WorkspaceBuildEvent::class.java
+    )
+
+    private var recording: Recording? = null
+
+    var currentFile: File? = null
+        private set
+
+    val isRecording: Boolean
+        @Synchronized get() = recording != null
+
+    /**
+     * Starts recording into [file], appending the .jfr extension if it's missing
+     * @param includeJvmEvents whether to also record the JVM events of the "default" JFR settings
+     * @return false if a recording is already running or it couldn't be started
+     */
+    @JvmStatic
+    @JvmOverloads
+    @Synchronized
+    fun start(file: File, includeJvmEvents: Boolean = true): Boolean {
+        if (recording != null) return false
+
+        val destination = if (file.extension != EXTENSION) File(file.absolutePath + ".$EXTENSION") else file
+
+        val newRecording = try {
+            if (includeJvmEvents) Recording(Configuration.getConfiguration("default")) else Recording()
+        } catch (e: Exception) {
+            logger.warn("Unable to load the default JFR settings, recording EOCV-Sim events only", e)
+            Recording()
+        }
+
+        try {
+            newRecording.name = "EOCV-Sim"
+
+            for (eventClass in eventClasses) {
+                newRecording.enable(eventClass).withThreshold(Duration.ZERO)
+            }
+
+            newRecording.setDestination(destination.toPath())
+            newRecording.start()
+        } catch (e: Exception) {
+            logger.error("Unable to start flight recording", e)
+            newRecording.close()
+            return false
+        }
+
+        recording = newRecording
+        currentFile = destination
+
+        logger.info("Flight recording started, writing to ${destination.absolutePath}")
+
+        return true
+    }
+
+    /**
+     * Stops the current recording, writing it to its file
+     * @return the file the recording was written to, or null if none was running
+     */
+    @JvmStatic
+    @Synchronized
+    fun stop(): File? {
+        val current = recording ?: return null
+        val file = currentFile
+
+        try {
+            current.stop()
+            logger.info("Flight recording written to ${file?.absolutePath}")
+        } catch (e: IOException) {
+            logger.error("Unable to write flight recording", e)
+        } catch (e: IllegalStateException) {
+            logger.warn("Flight recording was already stopped", e)
+        } finally {
+            current.close()
+
+            recording = null
+            currentFile = null
+        }
+
+        return file
+    }
+
+}
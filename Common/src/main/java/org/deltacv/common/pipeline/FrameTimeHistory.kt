@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.common.pipeline
+
+/**
+ * Ring buffer of the time spent in every [Stage] by the last [capacity] frames.
+ * Written once per frame by [PipelineStatisticsCalculator], and read from the
+ * render thread to draw the frame time graph, so nothing is allocated on either side.
+ */
+class FrameTimeHistory @JvmOverloads constructor(val capacity: Int = DEFAULT_CAPACITY) {
+
+    companion object {
+        const val DEFAULT_CAPACITY = 240
+    }
+
+    enum class Stage(val displayName: String) {
+        /**
+         * From the start of the frame up to the pipeline being handed the input,
+         * mostly the input source grabbing its frame
+         */
+        INPUT("Input"),
+
+        /**
+         * processFrame of the user pipeline
+         */
+        PIPELINE("Pipeline"),
+
+        /**
+         * After processFrame up to the end of the frame, mostly posting the output
+         */
+        POST("Post")
+    }
+
+    private val stageNanos = Array(Stage.entries.size) { LongArray(capacity) }
+
+    private var head = 0
+
+    /**
+     * Number of frames currently held, up to [capacity]
+     */
+    @get:Synchronized
+    var count = 0
+        private set
+
+    @Synchronized
+    fun add(inputNanos: Long, pipelineNanos: Long, postNanos: Long) {
+        stageNanos[Stage.INPUT.ordinal][head] = inputNanos
+        stageNanos[Stage.PIPELINE.ordinal][head] = pipelineNanos
+        stageNanos[Stage.POST.ordinal][head] = postNanos
+
+        head = (head + 1) % capacity
+        if (count < capacity) count++
+    }
+
+    /**
+     * Copies the held frames into [dst], oldest first, one array per [Stage] in ordinal order
+     * @param dst arrays of at least [capacity] elements
+     * @return the number of frames copied
+     */
+    @Synchronized
+    fun copyTo(dst: Array<LongArray>): Int {
+        val start = (head - count + capacity) % capacity
+        val firstPart = minOf(count, capacity - start)
+
+        for (stage in stageNanos.indices) {
+            System.arraycopy(stageNanos[stage], start, dst[stage], 0, firstPart)
+            System.arraycopy(stageNanos[stage], 0, dst[stage], firstPart, count - firstPart)
+        }
+
+        return count
+    }
+
+    @Synchronized
+    fun clear() {
+        head = 0
+        count = 0
+    }
+
+}
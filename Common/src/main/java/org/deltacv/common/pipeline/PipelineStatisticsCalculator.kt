@@ -11,6 +11,8 @@ import kotlin.math.roundToInt
 
 /**
  * Utility class to calculate pipeline statistics
+ * Besides the rolling averages, the time spent in every stage of
+ * the last frames is kept in [frameTimes]
  */
 class PipelineStatisticsCalculator {
 
@@ -22,6 +24,40 @@ class PipelineStatisticsCalculator {
     private var currentFrameStartTime = 0L
     private var pipelineStart = 0L
 
+    private var frameStartNanos = 0L
+    private var pipelineFrameStartNanos = 0L
+    private var pipelineStartNanos = 0L
+    private var pipelineEndNanos = 0L
+
+    /**
+     * Time spent in every stage by the last frames
+     */
+    val frameTimes = FrameTimeHistory()
+
+    /**
+     * Nanoseconds the last frame spent in [FrameTimeHistory.Stage.INPUT]
+     */
+    var lastInputNanos = 0L
+        private set
+
+    /**
+     * Nanoseconds the last frame spent in [FrameTimeHistory.Stage.PIPELINE]
+     */
+    var lastPipelineNanos = 0L
+        private set
+
+    /**
+     * Nanoseconds the last frame spent in [FrameTimeHistory.Stage.POST]
+     */
+    var lastPostNanos = 0L
+        private set
+
+    /**
+     * Total nanoseconds of the last frame, from [newInputFrameStart] to [endFrame]
+     */
+    var lastFrameNanos = 0L
+        private set
+
     /**
      * Average frames per second
      */
@@ -55,6 +91,7 @@ class PipelineStatisticsCalculator {
         msUserPipelineRollingAverage = MovingStatistics(30)
         msTotalFrameProcessingTimeRollingAverage = MovingStatistics(30)
         timer = ElapsedTime()
+        frameTimes.clear()
     }
 
     /**
@@ -62,6 +99,7 @@ class PipelineStatisticsCalculator {
      */
     fun newInputFrameStart() {
         currentFrameStartTime = System.currentTimeMillis();
+        frameStartNanos = System.nanoTime()
     }
 
     /**
@@ -73,6 +111,11 @@ class PipelineStatisticsCalculator {
 
         val secondsPerFrame = msFrameIntervalRollingAverage.mean / 1000.0
         avgFps = (1.0 / secondsPerFrame).toFloat()
+
+        pipelineFrameStartNanos = System.nanoTime()
+        // in case processFrame doesn't get called this frame
+        pipelineStartNanos = pipelineFrameStartNanos
+        pipelineEndNanos = pipelineFrameStartNanos
     }
 
     /**
@@ -80,12 +123,14 @@ class PipelineStatisticsCalculator {
      */
     fun beforeProcessFrame() {
         pipelineStart = System.currentTimeMillis()
+        pipelineStartNanos = System.nanoTime()
     }
 
     /**
      * Should be called after processing a frame
      */
     fun afterProcessFrame() {
+        pipelineEndNanos = System.nanoTime()
         msUserPipelineRollingAverage.add((System.currentTimeMillis() - pipelineStart).toDouble())
         avgPipelineTime = msUserPipelineRollingAverage.mean.roundToInt()
     }
@@ -98,6 +143,16 @@ class PipelineStatisticsCalculator {
 
         avgTotalFrameTime = msTotalFrameProcessingTimeRollingAverage.mean.roundToInt()
         avgOverheadTime = avgTotalFrameTime - avgPipelineTime
+
+        val endNanos = System.nanoTime()
+
+        // everything before processFrame counts as input, including handing the frame to the pipeline thread
+        lastInputNanos = (pipelineStartNanos - frameStartNanos).coerceAtLeast(0)
+        lastPipelineNanos = pipelineEndNanos - pipelineStartNanos
+        lastPostNanos = endNanos - pipelineEndNanos
+        lastFrameNanos = (endNanos - frameStartNanos).coerceAtLeast(0)
+
+        frameTimes.add(lastInputNanos, lastPipelineNanos, lastPostNanos)
     }
 
 }
@@ -56,7 +56,10 @@ abstract class InputSourceApi(owner: EOCVSimPlugin) : Api(owner) {
         IMAGE,
         VIDEO,
         CAMERA,
-        HTTP
+        HTTP,
+        IMAGE_SEQUENCE,
+        RAW_DUMP,
+        SYNTHETIC
     }
 
     /**
@@ -108,6 +111,51 @@ abstract class InputSourceApi(owner: EOCVSimPlugin) : Api(owner) {
         data class Http(
             val url: String
         ) : New(Type.HTTP)
+
+        /**
+         * Image sequence input source, playing every image in a directory in file name order.
+         *
+         * @param dirPath path to the directory containing the frames
+         * @param pattern glob matched against the file names in the directory
+         * @param fps rate at which frames are played
+         * @param size resolution of the frames
+         */
+        data class ImageSequence(
+            val dirPath: String,
+            val pattern: String,
+            val fps: Double,
+            val size: Size
+        ) : New(Type.IMAGE_SEQUENCE)
+
+        /**
+         * Raw frame dump input source, playing back uncompressed frames straight from a memory mapped file.
+         *
+         * @param filePath path to the raw frame dump
+         * @param fps rate at which frames are played, or 0 to follow the timing the frames were recorded with
+         * @param unthrottled whether frames are played as fast as possible, ignoring [fps]
+         */
+        data class RawDump(
+            val filePath: String,
+            val fps: Double = 0.0,
+            val unthrottled: Boolean = false
+        ) : New(Type.RAW_DUMP)
+
+        /**
+         * Synthetic input source, procedurally generating reproducible frames for load testing.
+         *
+         * @param seed seed for everything drawn, the same seed always produces the same frames
+         * @param size resolution of the frames, up to 4K
+         * @param fps rate at which frames are generated
+         * @param shapeCount number of moving shapes drawn
+         * @param drawTags whether AprilTag markers are drawn
+         */
+        data class Synthetic(
+            val seed: Long,
+            val size: Size,
+            val fps: Double,
+            val shapeCount: Int = 12,
+            val drawTags: Boolean = true
+        ) : New(Type.SYNTHETIC)
     }
 }
 
@@ -49,6 +49,7 @@ object AuthorityFetcher {
     private val logger by loggerForThis()
     private val cache = mutableMapOf<String, CachedAuthority>()
 
+    @Synchronized
     fun fetchAuthority(name: String): Authority? {
         validateCache()
 
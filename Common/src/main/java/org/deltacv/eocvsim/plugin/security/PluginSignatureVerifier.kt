@@ -5,14 +5,23 @@
 
 package org.deltacv.eocvsim.plugin.security
 
+import com.github.serivesmejia.eocvsim.util.extension.byteArrayToHex
+import com.github.serivesmejia.eocvsim.util.extension.fileHash
 import com.github.serivesmejia.eocvsim.util.extension.hashString
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
 import org.deltacv.common.util.loggerForThis
 import org.deltacv.common.util.serialization.Toml
 import org.deltacv.eocvsim.plugin.loader.InvalidPluginException
 import java.io.File
+import java.nio.ByteBuffer
+import java.security.MessageDigest
 import java.security.PublicKey
 import java.security.Signature
 import java.util.Base64
+import java.util.concurrent.ConcurrentHashMap
 import java.util.zip.ZipFile
 
 data class PluginSignature(
@@ -32,11 +41,48 @@ fun PluginSignature.toMutable() = MutablePluginSignature(verified, authority?.to
 object PluginSignatureVerifier {
     private val emptyResult = PluginSignature(false, null, 0L)
 
+    /**
+     * Jars that were already verified in this session, by jar hash, to the authority name and public key.
+     * A jar with the same hash has the exact same classes and signatures, so only the
+     * authority key needs to be checked again on a cache hit.
+     * Only kept in memory, anything persisted could be edited to mark a jar as verified.
+     */
+    private val verifiedCache = ConcurrentHashMap<String, Pair<String, String>>()
+
+    /**
+     * Hashes of the class data, signature and public key of every class signature that was
+     * already verified in this session, so new versions of a plugin only verify the classes that changed
+     */
+    private val verifiedClasses = ConcurrentHashMap.newKeySet<String>()
+
     val logger by loggerForThis()
 
     fun verify(pluginFile: File): PluginSignature {
         logger.info("Verifying plugin signature of ${pluginFile.name}")
 
+        val jarHash = pluginFile.fileHash()
+
+        verifiedCache[jarHash]?.let { (authorityName, authorityPublic) ->
+            val authority = AuthorityFetcher.fetchAuthority(authorityName)
+
+            if(authority != null && Base64.getEncoder().encodeToString(authority.publicKey.encoded) == authorityPublic) {
+                logger.info("Plugin ${pluginFile.absolutePath} was already verified, signed by $authorityName")
+                return PluginSignature(true, authority, System.currentTimeMillis())
+            }
+
+            verifiedCache.remove(jarHash)
+        }
+
+        val result = verifyJar(pluginFile)
+
+        if(result.verified && result.authority != null) {
+            verifiedCache[jarHash] = result.authority.name to Base64.getEncoder().encodeToString(result.authority.publicKey.encoded)
+        }
+
+        return result
+    }
+
+    private fun verifyJar(pluginFile: File): PluginSignature {
         ZipFile(pluginFile).use { zip ->
             val signatureEntry = zip.getEntry("signature.toml")
             val pluginEntry = zip.getEntry("plugin.toml")
@@ -115,17 +161,25 @@ object PluginSignatureVerifier {
                 signatureStatus[sign.key] = false
             }
 
-            for (classEntry in classEntries) {
+            // Read the classes sequentially (the zip is shared), then verify them in parallel
+            val classes = classEntries.map { classEntry ->
                 val className = classEntry.name.removeSuffix(".class").replace('/', '.') // Convert to fully qualified class name
 
-                // Fetch the class bytecode
-                val classData = zip.getInputStream(classEntry).readBytes()
-
                 // Hash the class name to get the signature key
-                val classHash = className.hashString
+                Triple(className, className.hashString, zip.getInputStream(classEntry).use { it.readBytes() })
+            }
 
-                // Verify the signature of the class
-                if (!verifySignature(classData, signatures[classHash]!!, publicKey)) {
+            val results = runBlocking(Dispatchers.Default) {
+                classes.map { (className, classHash, classData) ->
+                    async {
+                        // Verify the signature of the class
+                        Triple(className, classHash, verifySignature(classData, signatures[classHash]!!, publicKey))
+                    }
+                }.awaitAll()
+            }
+
+            for ((className, classHash, verified) in results) {
+                if (!verified) {
                     throw InvalidPluginException("Signature verification failed for class $className. Please try to re-download the plugin or discard it immediately.")
                 } else {
                     signatureStatus[classHash] = true
@@ -145,8 +199,26 @@ object PluginSignatureVerifier {
 
     private fun verifySignature(classData: ByteArray, signatureString: String, publicKey: PublicKey): Boolean {
         // Extract the actual signature bytes from the string (you'll need to implement this)
-        val signatureBytes = decodeSignature(signatureString) // Implement this method
-        return try {
+        val signatureBytes = try {
+            decodeSignature(signatureString) // Implement this method
+        } catch (e: IllegalArgumentException) {
+            logger.error("Error during signature verification", e)
+            return false
+        }
+
+        // the outcome only depends on these three, so a match means it was already verified.
+        // lengths go first so that bytes can't be moved between the class and its signature
+        val checkHash = MessageDigest.getInstance("SHA-256").run {
+            update(ByteBuffer.allocate(8).putInt(classData.size).putInt(signatureBytes.size).array())
+            update(classData)
+            update(signatureBytes)
+            update(publicKey.encoded)
+            byteArrayToHex(digest())
+        }
+
+        if(checkHash in verifiedClasses) return true
+
+        val verified = try {
             val signature = Signature.getInstance("SHA256withRSA")
             signature.initVerify(publicKey)
             signature.update(classData)
@@ -155,6 +227,10 @@ object PluginSignatureVerifier {
             logger.error("Error during signature verification", e)
             false
         }
+
+        if(verified) verifiedClasses.add(checkHash)
+
+        return verified
     }
 
     private fun decodeSignature(signatureString: String): ByteArray {
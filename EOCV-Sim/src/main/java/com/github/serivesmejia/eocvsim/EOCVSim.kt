@@ -21,12 +21,16 @@ import com.github.serivesmejia.eocvsim.util.exception.handling.CrashReport
 import com.github.serivesmejia.eocvsim.util.exception.handling.EOCVSimUncaughtExceptionHandler
 import com.github.serivesmejia.eocvsim.util.fps.FpsLimiter
 import com.github.serivesmejia.eocvsim.util.io.EOCVSimFolder
+import com.github.serivesmejia.eocvsim.util.jfr.FlightRecording
 import com.github.serivesmejia.eocvsim.util.orchestration.Orchestrator
 import com.github.serivesmejia.eocvsim.workspace.WorkspaceManager
 import com.qualcomm.robotcore.eventloop.opmode.OpModePipelineHandler
 import org.deltacv.common.pipeline.PipelineStatisticsCalculator
 import org.deltacv.common.util.ParsedVersion
 import org.deltacv.common.util.loggerFor
+import org.deltacv.eocvsim.pipeline.StreamableOpenCvPipeline
+import org.deltacv.eocvsim.pipeline.StreamableOpenCvPipelineInstantiator
+import org.deltacv.eocvsim.stream.MjpegImageStreamer
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.SupervisorJob
@@ -41,6 +45,7 @@ import org.koin.core.qualifier.named
 import org.opencv.core.Size
 import org.openftc.easyopencv.TimestampedPipelineHandler
 import java.io.File
+import java.io.IOException
 import java.lang.Thread.sleep
 import javax.swing.JOptionPane
 import kotlin.system.exitProcess
@@ -99,6 +104,8 @@ class EOCVSim : KoinComponent {
     val recordingManager: RecordingManager by inject()
     val dialogFactory: DialogFactory by inject()
 
+    private val parameters: Parameters by inject()
+
     /**
      * The pipeline statistics calculator instance in charge of
      * calculating the average FPS, pipeline time and overhead time
@@ -148,6 +155,8 @@ class EOCVSim : KoinComponent {
     private val hexCode = Integer.toHexString(hashCode())
 
     private var isRestarting = false
+
+    private var imageStreamer: MjpegImageStreamer? = null
     private var destroying = false
 
     /**
@@ -183,6 +192,9 @@ class EOCVSim : KoinComponent {
 
         EOCVSimUncaughtExceptionHandler.register()
 
+        // keeps going across restarts, FlightRecording.start does nothing if it's still running
+        parameters.flightRecordingFile?.let { FlightRecording.start(it) }
+
         val loadLibrariesResult = LibraryLoader.loadLibraries()
 
         if(!loadLibrariesResult.success) {
@@ -216,6 +228,8 @@ class EOCVSim : KoinComponent {
         orchestrator.changePhase(Orchestrator.Phase.INIT)
         orchestrator.orchestrate()
 
+        parameters.imageStreamPort?.let { startImageStreamer(it) }
+
         visualizer.onInitFinished {
             // SHOW WELCOME DIALOGS TO NEW USERS
 
@@ -343,6 +357,21 @@ class EOCVSim : KoinComponent {
         logger.warn("Main thread interrupted ($hexCode)")
     }
 
+    private fun startImageStreamer(port: Int) {
+        val streamer = MjpegImageStreamer(port)
+
+        try {
+            streamer.start()
+        } catch (e: IOException) {
+            logger.error("Unable to serve image streams on port $port", e)
+            streamer.close()
+            return
+        }
+
+        imageStreamer = streamer
+        pipelineManager.addInstantiator(StreamableOpenCvPipeline::class.java, StreamableOpenCvPipelineInstantiator(streamer))
+    }
+
     /**
      * Destroys the simulator
      * @param reason the reason why the simulator is being destroyed, it mainly allows to restart the simulator if requested
@@ -352,6 +381,16 @@ class EOCVSim : KoinComponent {
 
         logger.info("Trying to save config file...")
 
+        // an unfinished dump has no header and can't be played back
+        recordingManager.stopRawDump(blocking = true)
+        recordingManager.stopLosslessRecording(blocking = true)
+        recordingManager.stopTelemetryLog(blocking = true)
+
+        if (!isRestarting) FlightRecording.stop()
+
+        imageStreamer?.close()
+        imageStreamer = null
+
         orchestrator.changePhase(Orchestrator.Phase.DESTROY)
         orchestrator.orchestrate()
 
@@ -414,6 +453,16 @@ class EOCVSim : KoinComponent {
          * Whether the specified pipeline must be searched in the CLASSPATH or from the workspace
          */
         var initialPipelineSource: PipelineSource? = null
+
+        /**
+         * File to write a flight recording to, recorded from the start until the sim exits
+         */
+        var flightRecordingFile: File? = null
+
+        /**
+         * Port to serve the frames of StreamableOpenCvPipelines on, null to not serve them
+         */
+        var imageStreamPort: Int? = null
     }
 
 }
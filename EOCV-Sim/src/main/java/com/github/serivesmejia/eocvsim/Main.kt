@@ -69,6 +69,20 @@ class EOCVSimCommandInterface : Runnable {
     @JvmField
     var initialPipelineSource = PipelineSource.CLASSPATH
 
+    @CommandLine.Option(
+        names = ["--jfr"],
+        description = ["Records a Java Flight Recorder file with the frame lifecycle events of the simulator, from the start until it exits, path can be relative or absolute"]
+    )
+    @JvmField
+    var flightRecordingPath: String? = null
+
+    @CommandLine.Option(
+        names = ["--stream-port"],
+        description = ["Serves the frames of StreamableOpenCvPipelines as MJPEG streams over HTTP on the loopback interface, at http://localhost:<port>/stream/<id>. 0 picks a free port, which is logged on start"]
+    )
+    @JvmField
+    var imageStreamPort: Int? = null
+
     override fun run() {
         val parameters = EOCVSim.Parameters()
 
@@ -81,6 +95,19 @@ class EOCVSimCommandInterface : Runnable {
             parameters.initialPipelineSource = initialPipelineSource
         }
 
+        if (flightRecordingPath != null) {
+            parameters.flightRecordingFile = File(flightRecordingPath!!).absoluteFile
+        }
+
+        if (imageStreamPort != null) {
+            if (imageStreamPort!! !in 0..65535) {
+                System.err.println("Stream port is not valid, it should be between 0 and 65535")
+                exitProcess(1)
+            }
+
+            parameters.imageStreamPort = imageStreamPort
+        }
+
         GlobalContext.startKoin {
             modules(
                 eocvSimModule,
@@ -8,6 +8,7 @@ package com.github.serivesmejia.eocvsim.config;
 import com.github.serivesmejia.eocvsim.gui.component.tuner.TunableFieldPanel;
 import com.github.serivesmejia.eocvsim.gui.component.tuner.TunableFieldPanelConfig;
 import com.github.serivesmejia.eocvsim.gui.theme.Theme;
+import com.github.serivesmejia.eocvsim.output.LosslessRecordingSession;
 import com.github.serivesmejia.eocvsim.pipeline.PipelineFps;
 import com.github.serivesmejia.eocvsim.pipeline.PipelineTimeout;
 import com.github.serivesmejia.eocvsim.pipeline.compiled.CompiledPipelineManager;
@@ -21,6 +22,9 @@ public class Config {
     public volatile PipelineFps pipelineMaxFps = PipelineFps.MEDIUM;
     public volatile PipelineTimeout pipelineTimeout = PipelineTimeout.MEDIUM;
 
+    public volatile boolean showFrameTimeGraph = false;
+    public volatile int slowFrameCaptureThresholdMs = 0; // 0 to not capture
+
     public volatile boolean pauseOnImages = true;
 
     public volatile double webcamOpenTimeoutSec = 5.0;
@@ -28,6 +32,13 @@ public class Config {
 
     public volatile Size videoRecordingSize = new Size(640, 480);
     public volatile PipelineFps videoRecordingFps = PipelineFps.MEDIUM;
+    public volatile String videoRecordingDirectory = ""; // empty for the folder recordings were last saved to
+    public volatile String videoRecordingLastSaveDirectory = "";
+    public volatile double videoRecordingSegmentSeconds = 0.0;
+    public volatile int videoRecordingSegmentMb = 0;
+    public volatile int videoRecordingIoBufferKb = 1024;
+    public volatile boolean videoRecordingIncludeInput = false;
+    public volatile LosslessRecordingSession.Format losslessRecordingFormat = LosslessRecordingSession.Format.PNG;
 
     public volatile String workspacePath = CompiledPipelineManager.Companion.getDEF_WORKSPACE_FOLDER().getAbsolutePath();
 
@@ -120,6 +120,9 @@ class DialogFactory : KoinComponent {
                 SourceType.CAMERA -> CreateCameraSource()
                 SourceType.VIDEO -> CreateVideoSource(initialFile)
                 SourceType.HTTP -> CreateHttpSource()
+                SourceType.IMAGE_SEQUENCE -> CreateImageSequenceSource(initialFile)
+                SourceType.RAW_DUMP -> CreateRawDumpSource(initialFile)
+                SourceType.SYNTHETIC -> CreateSyntheticSource()
                 else -> {}
             }
         }
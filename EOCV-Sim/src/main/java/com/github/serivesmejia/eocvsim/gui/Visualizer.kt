@@ -155,6 +155,7 @@ class Visualizer : PhaseOrchestrableBase(), KoinComponent {
 
         viewport.init()
         viewport.dark = FlatLaf.isLafDark()
+        viewport.renderer.setFrameTimeHistory(pipelineStatisticsCalculator.frameTimes)
 
         colorPicker = ColorPicker(viewport)
 
@@ -371,6 +372,12 @@ class Visualizer : PhaseOrchestrableBase(), KoinComponent {
                     pipelineStatisticsCalculator.avgPipelineTime,
                     pipelineStatisticsCalculator.avgOverheadTime
                 )
+
+                val config = configManager.config
+                val maxFps = config.pipelineMaxFps.fps
+
+                viewport.renderer.setFrameTimeGraphEnabled(config.showFrameTimeGraph)
+                viewport.renderer.setFrameTimeBudgetMs(if (maxFps == Int.MAX_VALUE) 0f else 1000f / maxFps)
             }
 
             updateTitle()
@@ -16,6 +16,7 @@ import java.awt.GridBagLayout
 import java.awt.GridLayout
 import java.awt.event.MouseEvent
 import java.awt.event.MouseMotionListener
+import java.util.concurrent.atomic.AtomicReference
 import javax.swing.*
 import javax.swing.border.EmptyBorder
 import javax.swing.border.TitledBorder
@@ -126,12 +127,20 @@ class TelemetryPanel : JPanel(), TelemetryTransmissionReceiver, KoinComponent {
 
     private var lastTelemetry = "";
 
+    private val pendingTelemetry = AtomicReference<Pair<String, Telemetry>?>()
+
     override fun consumeTelemetry(text: String, srcTelemetry: Telemetry) {
+        // only one update is queued on the event thread at a time, transmissions
+        // arriving before it runs replace its text instead of queuing another
+        if (pendingTelemetry.getAndSet(text to srcTelemetry) != null) return
+
         SwingUtilities.invokeLater {
-            if(lastTelemetry != text) {
-                updateTelemetry(text, srcTelemetry.captionValueSeparator, srcTelemetry.itemSeparator)
+            val (latestText, latestTelemetry) = pendingTelemetry.getAndSet(null) ?: return@invokeLater
+
+            if(lastTelemetry != latestText) {
+                updateTelemetry(latestText, latestTelemetry.captionValueSeparator, latestTelemetry.itemSeparator)
             }
-            lastTelemetry = text
+            lastTelemetry = latestText
         }
     }
 
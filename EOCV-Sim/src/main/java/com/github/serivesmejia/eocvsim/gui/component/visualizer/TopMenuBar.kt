@@ -11,17 +11,20 @@ import com.github.serivesmejia.eocvsim.gui.Visualizer
 import com.github.serivesmejia.eocvsim.gui.dialog.Output
 import com.github.serivesmejia.eocvsim.gui.util.GuiUtil
 import com.github.serivesmejia.eocvsim.input.SourceType
+import com.github.serivesmejia.eocvsim.output.RecordingManager
 import com.github.serivesmejia.eocvsim.pipeline.compiled.CompiledPipelineManager
 import com.github.serivesmejia.eocvsim.plugin.output.PluginDialogSignal
 import com.github.serivesmejia.eocvsim.plugin.output.PluginOutputHandler
 import com.github.serivesmejia.eocvsim.util.FileFilters
 import com.github.serivesmejia.eocvsim.util.exception.handling.CrashReport
+import com.github.serivesmejia.eocvsim.util.jfr.FlightRecording
 import com.github.serivesmejia.eocvsim.workspace.util.VSCodeLauncher
 import org.opencv.core.Mat
 import org.opencv.imgproc.Imgproc
 import java.awt.Desktop
 import java.io.File
 import java.net.URI
+import javax.swing.JCheckBoxMenuItem
 import javax.swing.JFileChooser
 import javax.swing.JMenu
 import javax.swing.JMenuBar
@@ -45,6 +48,7 @@ class TopMenuBar : JMenuBar(), KoinComponent {
     val outputHandler: PluginOutputHandler by inject()
     val workspaceManager: WorkspaceManager by inject()
     val pipelineManager: PipelineManager by inject()
+    val recordingManager: RecordingManager by inject()
     val onMainUpdate: EventHandler by inject(named("onMainLoop"))
     val lifecycleChannel: Channel<LifecycleSignal> by inject(named("lifecycle"))
     val scope: CoroutineScope by inject()
@@ -98,6 +102,95 @@ class TopMenuBar : JMenuBar(), KoinComponent {
         }
         mFileMenu.add(fileSaveMat)
 
+        val fileRawDump = JCheckBoxMenuItem("Record Raw Input Dump")
+
+        fileRawDump.addActionListener {
+            if (fileRawDump.isSelected) {
+                dialogFactory.createFileChooser(
+                    visualizer.frame, DialogFactory.FileChooser.Mode.SAVE_FILE_SELECT, "", FileFilters.rawFrameDumpFilter
+                ).addCloseListener { returnVal, file, _ ->
+                    if (returnVal == JFileChooser.APPROVE_OPTION && file != null) {
+                        onMainUpdate.once { recordingManager.startRawDump(file) }
+                    } else {
+                        fileRawDump.isSelected = false
+                    }
+                }
+            } else {
+                onMainUpdate.once { recordingManager.stopRawDump() }
+            }
+        }
+        mFileMenu.add(fileRawDump)
+
+        val fileLosslessRecording = JCheckBoxMenuItem("Record Lossless Dataset")
+
+        fileLosslessRecording.addActionListener {
+            if (fileLosslessRecording.isSelected) {
+                dialogFactory.createFileChooser(
+                    visualizer.frame, DialogFactory.FileChooser.Mode.DIRECTORY_SELECT
+                ).addCloseListener { returnVal, file, _ ->
+                    if (returnVal == JFileChooser.APPROVE_OPTION && file != null) {
+                        onMainUpdate.once { recordingManager.startLosslessRecording(file) }
+                    } else {
+                        fileLosslessRecording.isSelected = false
+                    }
+                }
+            } else {
+                onMainUpdate.once { recordingManager.stopLosslessRecording() }
+            }
+        }
+        mFileMenu.add(fileLosslessRecording)
+
+        val fileTelemetryLog = JCheckBoxMenuItem("Record Telemetry Log")
+
+        fileTelemetryLog.addActionListener {
+            if (fileTelemetryLog.isSelected) {
+                dialogFactory.createFileChooser(
+                    visualizer.frame, DialogFactory.FileChooser.Mode.SAVE_FILE_SELECT, "", FileFilters.telemetryLogFilter
+                ).addCloseListener { returnVal, file, _ ->
+                    if (returnVal == JFileChooser.APPROVE_OPTION && file != null) {
+                        onMainUpdate.once { recordingManager.startTelemetryLog(file) }
+                    } else {
+                        fileTelemetryLog.isSelected = false
+                    }
+                }
+            } else {
+                onMainUpdate.once { recordingManager.stopTelemetryLog() }
+            }
+        }
+        mFileMenu.add(fileTelemetryLog)
+
+        val fileReplayTelemetryLog = JMenuItem("Replay Telemetry Log...")
+
+        fileReplayTelemetryLog.addActionListener {
+            dialogFactory.createFileChooser(
+                visualizer.frame, DialogFactory.FileChooser.Mode.FILE_SELECT, "", FileFilters.telemetryLogFilter
+            ).addCloseListener { returnVal, file, _ ->
+                if (returnVal == JFileChooser.APPROVE_OPTION && file != null) {
+                    onMainUpdate.once { recordingManager.replayTelemetryLog(file) }
+                }
+            }
+        }
+        mFileMenu.add(fileReplayTelemetryLog)
+
+        val fileFlightRecording = JCheckBoxMenuItem("Record Flight Recording (JFR)")
+        // might have been started from the command line
+        fileFlightRecording.isSelected = FlightRecording.isRecording
+
+        fileFlightRecording.addActionListener {
+            if (fileFlightRecording.isSelected) {
+                dialogFactory.createFileChooser(
+                    visualizer.frame, DialogFactory.FileChooser.Mode.SAVE_FILE_SELECT, "", FileFilters.flightRecordingFilter
+                ).addCloseListener { returnVal, file, _ ->
+                    if (returnVal != JFileChooser.APPROVE_OPTION || file == null || !FlightRecording.start(file)) {
+                        fileFlightRecording.isSelected = false
+                    }
+                }
+            } else {
+                FlightRecording.stop()
+            }
+        }
+        mFileMenu.add(fileFlightRecording)
+
         mFileMenu.addSeparator()
 
         if (desktop.isSupported(Desktop.Action.APP_PREFERENCES)) {
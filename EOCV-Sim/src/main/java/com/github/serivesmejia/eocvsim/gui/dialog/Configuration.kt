@@ -10,8 +10,10 @@ import com.github.serivesmejia.eocvsim.config.ConfigManager
 import com.github.serivesmejia.eocvsim.gui.DialogFactory
 import com.github.serivesmejia.eocvsim.gui.Visualizer
 import com.github.serivesmejia.eocvsim.gui.component.input.EnumComboBox
+import com.github.serivesmejia.eocvsim.gui.component.input.FileSelector
 import com.github.serivesmejia.eocvsim.gui.component.input.SizeFields
 import com.github.serivesmejia.eocvsim.gui.theme.Theme
+import com.github.serivesmejia.eocvsim.output.LosslessRecordingSession
 import com.github.serivesmejia.eocvsim.pipeline.PipelineFps
 import com.github.serivesmejia.eocvsim.pipeline.PipelineTimeout
 import com.github.serivesmejia.eocvsim.util.event.EventHandler
@@ -23,6 +25,7 @@ import java.awt.FlowLayout
 import java.awt.GridBagConstraints
 import java.awt.GridBagLayout
 import java.awt.GridLayout
+import java.io.File
 import javax.swing.*
 
 class Configuration : KoinComponent {
@@ -40,13 +43,21 @@ class Configuration : KoinComponent {
     private val themeComboBox: JComboBox<String>
     private val superAccessCheckBox: JCheckBox
     private val prefersPaperVisionCheckbox: JCheckBox
+    private val showFrameTimeGraphCheckBox: JCheckBox
     private val pauseOnImageCheckBox: JCheckBox
     private val webcamOpenTimeoutSpinner: JSpinner
     private val webcamNewFrameTimeoutSpinner: JSpinner
     private val pipelineTimeoutComboBox: EnumComboBox<PipelineTimeout>
     private val pipelineFpsComboBox: EnumComboBox<PipelineFps>
+    private val slowFrameCaptureThresholdSpinner: JSpinner
     private val videoRecordingSize: SizeFields
     private val videoRecordingFpsComboBox: EnumComboBox<PipelineFps>
+    private val videoRecordingDirSelector: FileSelector
+    private val videoRecordingSegmentSecondsSpinner: JSpinner
+    private val videoRecordingSegmentMbSpinner: JSpinner
+    private val videoRecordingIoBufferKbSpinner: JSpinner
+    private val videoRecordingIncludeInputCheckBox: JCheckBox
+    private val losslessRecordingFormatComboBox: EnumComboBox<LosslessRecordingSession.Format>
     private val acceptButton: JButton
 
     init {
@@ -61,13 +72,17 @@ class Configuration : KoinComponent {
         prefersPaperVisionCheckbox = JCheckBox("Focus on PaperVision Upon Startup").apply {
             isSelected = config.flags["prefersPaperVision"] ?: false
         }
-        val uiPanel = JPanel(GridLayout(3, 1, 1, 8)).apply {
+        showFrameTimeGraphCheckBox = JCheckBox("Show Frame Time Graph in the Viewport").apply {
+            isSelected = config.showFrameTimeGraph
+        }
+        val uiPanel = JPanel(GridLayout(4, 1, 1, 8)).apply {
             add(JPanel(FlowLayout()).apply {
                 add(JLabel("Theme: "))
                 add(themeComboBox)
             })
             add(JPanel(FlowLayout()).apply { add(superAccessCheckBox) })
             add(JPanel(FlowLayout()).apply { add(prefersPaperVisionCheckbox) })
+            add(JPanel(FlowLayout()).apply { add(showFrameTimeGraphCheckBox) })
         }
 
         // --- Input Sources Tab ---
@@ -118,11 +133,58 @@ class Configuration : KoinComponent {
             PipelineFps::coolName
         ) { PipelineFps.fromCoolName(it) ?: PipelineFps.MEDIUM }.apply { selectedEnum = config.videoRecordingFps }
 
-        val processingPanel = JPanel(GridLayout(4, 1, 1, 8)).apply {
+        slowFrameCaptureThresholdSpinner = JSpinner(SpinnerNumberModel(config.slowFrameCaptureThresholdMs, 0, 60000, 5))
+
+        val processingPanel = JPanel(GridLayout(5, 1, 1, 8)).apply {
             add(pipelineTimeoutComboBox)
             add(pipelineFpsComboBox)
             add(videoRecordingSize)
             add(videoRecordingFpsComboBox)
+            add(JPanel(FlowLayout()).apply {
+                add(JLabel("Save input of frames slower than (ms, 0 = never): "))
+                add(slowFrameCaptureThresholdSpinner)
+            })
+        }
+
+        // --- Recording Tab ---
+        videoRecordingDirSelector = FileSelector(18, DialogFactory.FileChooser.Mode.DIRECTORY_SELECT).apply {
+            selectDirButton.text = "Select folder..."
+            if (config.videoRecordingDirectory.isNotBlank()) {
+                lastSelectedFile = File(config.videoRecordingDirectory)
+            }
+        }
+        videoRecordingSegmentSecondsSpinner = JSpinner(SpinnerNumberModel(config.videoRecordingSegmentSeconds, 0.0, 86400.0, 1.0))
+        videoRecordingSegmentMbSpinner = JSpinner(SpinnerNumberModel(config.videoRecordingSegmentMb, 0, 1024 * 1024, 1))
+        videoRecordingIoBufferKbSpinner = JSpinner(SpinnerNumberModel(config.videoRecordingIoBufferKb, 4, 256 * 1024, 4))
+        videoRecordingIncludeInputCheckBox = JCheckBox("Also record the input source into its own video").apply {
+            isSelected = config.videoRecordingIncludeInput
+        }
+
+        losslessRecordingFormatComboBox = EnumComboBox(
+            "Lossless Dataset Format: ",
+            LosslessRecordingSession.Format::class.java,
+            LosslessRecordingSession.Format.entries.toTypedArray()
+        ).apply { selectedEnum = config.losslessRecordingFormat }
+
+        val recordingPanel = JPanel(GridLayout(7, 1, 1, 8)).apply {
+            add(JPanel(FlowLayout()).apply {
+                add(JLabel("Recording folder (same disk as destination saves instantly, empty for the last save folder): "))
+            })
+            add(videoRecordingDirSelector)
+            add(JPanel(FlowLayout()).apply {
+                add(JLabel("Split every (seconds, 0 = never): "))
+                add(videoRecordingSegmentSecondsSpinner)
+            })
+            add(JPanel(FlowLayout()).apply {
+                add(JLabel("Split every (MB, 0 = never): "))
+                add(videoRecordingSegmentMbSpinner)
+            })
+            add(JPanel(FlowLayout()).apply {
+                add(JLabel("Copy buffer when saving to another disk (KB): "))
+                add(videoRecordingIoBufferKbSpinner)
+            })
+            add(JPanel(FlowLayout()).apply { add(videoRecordingIncludeInputCheckBox) })
+            add(losslessRecordingFormatComboBox)
         }
 
         // --- Dialog Assembly ---
@@ -130,6 +192,7 @@ class Configuration : KoinComponent {
             addTab("Interface", uiPanel)
             addTab("Input Sources", inputSourcesPanel)
             addTab("Processing", processingPanel)
+            addTab("Recording", recordingPanel)
         }
 
         acceptButton.addActionListener {
@@ -173,8 +236,16 @@ class Configuration : KoinComponent {
         config.webcamNewFrameTimeoutSec = (webcamNewFrameTimeoutSpinner.value as Number).toDouble()
         config.pipelineTimeout = pipelineTimeoutComboBox.selectedEnum
         config.pipelineMaxFps = pipelineFpsComboBox.selectedEnum
+        config.slowFrameCaptureThresholdMs = (slowFrameCaptureThresholdSpinner.value as Number).toInt()
+        config.showFrameTimeGraph = showFrameTimeGraphCheckBox.isSelected
         config.videoRecordingSize = videoRecordingSize.currentSize
         config.videoRecordingFps = videoRecordingFpsComboBox.selectedEnum
+        config.videoRecordingDirectory = videoRecordingDirSelector.lastSelectedFile?.absolutePath ?: ""
+        config.videoRecordingSegmentSeconds = (videoRecordingSegmentSecondsSpinner.value as Number).toDouble()
+        config.videoRecordingSegmentMb = (videoRecordingSegmentMbSpinner.value as Number).toInt()
+        config.videoRecordingIoBufferKb = (videoRecordingIoBufferKbSpinner.value as Number).toInt()
+        config.videoRecordingIncludeInput = videoRecordingIncludeInputCheckBox.isSelected
+        config.losslessRecordingFormat = losslessRecordingFormatComboBox.selectedEnum
         config.autoAcceptSuperAccessOnTrusted = superAccessCheckBox.isSelected
         config.flags["prefersPaperVision"] = prefersPaperVisionCheckbox.isSelected
 
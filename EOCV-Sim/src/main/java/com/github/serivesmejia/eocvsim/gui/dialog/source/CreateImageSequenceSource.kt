@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.gui.dialog.source
+
+import com.github.serivesmejia.eocvsim.EOCVSim
+import com.github.serivesmejia.eocvsim.gui.DialogFactory
+import com.github.serivesmejia.eocvsim.gui.Visualizer
+import com.github.serivesmejia.eocvsim.gui.component.input.FileSelector
+import com.github.serivesmejia.eocvsim.gui.component.input.SizeFields
+import com.github.serivesmejia.eocvsim.input.InputSourceManager
+import com.github.serivesmejia.eocvsim.input.source.ImageSequenceSource
+import com.github.serivesmejia.eocvsim.util.event.EventHandler
+import org.deltacv.vision.external.util.CvUtil
+import org.opencv.core.Size
+import java.awt.BorderLayout
+import java.awt.FlowLayout
+import java.awt.GridLayout
+import java.io.File
+import javax.swing.*
+import javax.swing.event.DocumentEvent
+import javax.swing.event.DocumentListener
+import kotlin.math.roundToInt
+
+import org.koin.core.component.KoinComponent
+import org.koin.core.component.inject
+import org.koin.core.qualifier.named
+
+class CreateImageSequenceSource(
+    private val initialFile: File? = null
+) : KoinComponent {
+
+    private val visualizer: Visualizer by inject()
+    private val inputSourceManager by inject<InputSourceManager>()
+    private val onMainLoop: EventHandler by inject(named("onMainLoop"))
+
+    private val dialog: JDialog = JDialog(visualizer.frame)
+
+    private var nameTextField: JTextField
+    private var patternTextField: JTextField
+    private var fpsSpinner: JSpinner
+    private var dirSelector: FileSelector
+    private var sizeFields: SizeFields
+    private var createButton: JButton
+
+    private var frameCount = 0
+
+    init {
+        // Main content panel
+        val contentsPanel = JPanel(GridLayout(5, 1)).apply {
+            border = BorderFactory.createEmptyBorder(15, 0, 0, 0)
+        }
+
+        // Directory selector
+        dirSelector = FileSelector(18, DialogFactory.FileChooser.Mode.DIRECTORY_SELECT).apply {
+            selectDirButton.text = "Select folder..."
+            onFileSelect.attach { directorySelected() }
+        }
+        initialFile?.let { file ->
+            SwingUtilities.invokeLater { dirSelector.lastSelectedFile = file }
+        }
+        contentsPanel.add(dirSelector)
+
+        // Pattern and rate
+        val patternPanel = JPanel(FlowLayout()).apply {
+            patternTextField = JTextField("*", 8)
+            fpsSpinner = JSpinner(SpinnerNumberModel(30.0, 0.0, 240.0, 1.0))
+
+            add(JLabel("Files: "))
+            add(patternTextField)
+            add(JLabel(" FPS (0 = recorded): "))
+            add(fpsSpinner)
+        }
+        contentsPanel.add(patternPanel)
+
+        // Size fields
+        sizeFields = SizeFields().apply {
+            onChange.attach {
+                updateCreateButton()
+            }
+        }
+        contentsPanel.add(sizeFields)
+
+        // Name input panel
+        val namePanel = JPanel(FlowLayout()).apply {
+            val sourceCount = inputSourceManager.sources.size + 1
+            nameTextField = JTextField("ImageSequenceSource-$sourceCount", 15)
+            add(JLabel("Source Name: "))
+            add(nameTextField)
+        }
+        contentsPanel.add(namePanel)
+
+        // Bottom buttons panel
+        val buttonsPanel = JPanel(FlowLayout()).apply {
+            createButton = JButton("Create").apply { isEnabled = false }
+            add(createButton)
+            add(JButton("Cancel").apply { addActionListener { close() } })
+        }
+        contentsPanel.add(buttonsPanel)
+
+        // Add listeners
+        nameTextField.onChange(::updateCreateButton)
+        patternTextField.onChange(::directorySelected)
+
+        createButton.addActionListener {
+            createSource(
+                nameTextField.text,
+                dirSelector.lastSelectedFile?.absolutePath ?: return@addActionListener,
+                patternTextField.text.ifBlank { "*" },
+                (fpsSpinner.value as Number).toDouble(),
+                sizeFields.currentSize
+            )
+            close()
+        }
+
+        // Configure and show dialog
+        dialog.apply {
+            contentPane.add(contentsPanel, BorderLayout.CENTER)
+            title = "Create image sequence source"
+            isModal = true
+            isAlwaysOnTop = true
+            isResizable = false
+            pack()
+            setLocationRelativeTo(null) // Center on screen
+            isVisible = true
+        }
+    }
+
+    private fun directorySelected() {
+        val dir = dirSelector.lastSelectedFile
+
+        if (dir == null) {
+            updateCreateButton()
+            return
+        }
+
+        val frames = ImageSequenceSource.listFrames(dir, patternTextField.text)
+        frameCount = frames.size
+
+        if (frames.isNotEmpty() && CvUtil.checkImageValid(frames[0].absolutePath)) {
+            nameTextField.text = inputSourceManager.tryName(dir.name)
+
+            // Calculate a fitted size from the first frame and update the fields
+            val newSize = CvUtil.scaleToFit(CvUtil.getImageSize(frames[0].absolutePath), EOCVSim.DEFAULT_EOCV_SIZE)
+            sizeFields.widthTextField.text = newSize.width.roundToInt().toString()
+            sizeFields.heightTextField.text = newSize.height.roundToInt().toString()
+
+            dirSelector.dirTextField.text = "${dir.absolutePath} ($frameCount frames)"
+        } else {
+            dirSelector.dirTextField.text = "No images found in selected folder."
+            frameCount = 0
+        }
+
+        updateCreateButton()
+    }
+
+    private fun close() {
+        dialog.isVisible = false
+        dialog.dispose()
+    }
+
+    private fun createSource(sourceName: String, dirPath: String, pattern: String, fps: Double, size: Size) {
+        onMainLoop.once {
+            inputSourceManager.addInputSource(
+                sourceName,
+                ImageSequenceSource(dirPath, pattern, fps, size),
+                true
+            )
+        }
+    }
+
+    private fun updateCreateButton() {
+        val isNameValid = nameTextField.text.isNotBlank() &&
+                !inputSourceManager.isNameInUse(nameTextField.text)
+
+        createButton.isEnabled = isNameValid && sizeFields.valid && frameCount > 0
+    }
+
+    /**
+     * An extension function to simplify adding a DocumentListener for any text change.
+     */
+    private fun JTextField.onChange(action: () -> Unit) {
+        document.addDocumentListener(object : DocumentListener {
+            override fun changedUpdate(e: DocumentEvent?) = action()
+            override fun insertUpdate(e: DocumentEvent?) = action()
+            override fun removeUpdate(e: DocumentEvent?) = action()
+        })
+    }
+}
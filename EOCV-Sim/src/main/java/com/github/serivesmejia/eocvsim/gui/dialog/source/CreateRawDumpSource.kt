@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.gui.dialog.source
+
+import com.github.serivesmejia.eocvsim.gui.Visualizer
+import com.github.serivesmejia.eocvsim.gui.component.input.FileSelector
+import com.github.serivesmejia.eocvsim.input.InputSourceManager
+import com.github.serivesmejia.eocvsim.input.source.RawDumpSource
+import com.github.serivesmejia.eocvsim.output.RawFrameDump
+import com.github.serivesmejia.eocvsim.util.FileFilters
+import com.github.serivesmejia.eocvsim.util.event.EventHandler
+import java.awt.BorderLayout
+import java.awt.FlowLayout
+import java.awt.GridLayout
+import java.io.File
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import javax.swing.*
+import javax.swing.event.DocumentEvent
+import javax.swing.event.DocumentListener
+
+import org.koin.core.component.KoinComponent
+import org.koin.core.component.inject
+import org.koin.core.qualifier.named
+
+class CreateRawDumpSource(
+    private val initialFile: File? = null
+) : KoinComponent {
+
+    private val visualizer: Visualizer by inject()
+    private val inputSourceManager by inject<InputSourceManager>()
+    private val onMainLoop: EventHandler by inject(named("onMainLoop"))
+
+    private val dialog: JDialog = JDialog(visualizer.frame)
+
+    private var nameTextField: JTextField
+    private var fileSelector: FileSelector
+    private var unthrottledCheckBox: JCheckBox
+    private var createButton: JButton
+
+    private var selectedValidDump = false
+
+    init {
+        // Main content panel
+        val contentsPanel = JPanel(GridLayout(4, 1)).apply {
+            border = BorderFactory.createEmptyBorder(15, 0, 0, 0)
+        }
+
+        // File selector
+        fileSelector = FileSelector(18, FileFilters.rawFrameDumpFilter).apply {
+            onFileSelect.attach { dumpFileSelected(lastSelectedFile ?: return@attach) }
+        }
+        initialFile?.let { file ->
+            SwingUtilities.invokeLater { fileSelector.lastSelectedFile = file }
+        }
+        contentsPanel.add(fileSelector)
+
+        // Throttling
+        val throttlePanel = JPanel(FlowLayout()).apply {
+            unthrottledCheckBox = JCheckBox("Play as fast as possible (benchmarking)")
+            add(unthrottledCheckBox)
+        }
+        contentsPanel.add(throttlePanel)
+
+        // Name input panel
+        val namePanel = JPanel(FlowLayout()).apply {
+            val sourceCount = inputSourceManager.sources.size + 1
+            nameTextField = JTextField("RawDumpSource-$sourceCount", 15)
+            add(JLabel("Source Name: "))
+            add(nameTextField)
+        }
+        contentsPanel.add(namePanel)
+
+        // Bottom buttons panel
+        val buttonsPanel = JPanel(FlowLayout()).apply {
+            createButton = JButton("Create").apply { isEnabled = false }
+            add(createButton)
+            add(JButton("Cancel").apply { addActionListener { close() } })
+        }
+        contentsPanel.add(buttonsPanel)
+
+        // Add listeners
+        nameTextField.onChange(::updateCreateButton)
+        createButton.addActionListener {
+            createSource(
+                nameTextField.text,
+                fileSelector.lastSelectedFile?.absolutePath ?: return@addActionListener,
+                unthrottledCheckBox.isSelected
+            )
+            close()
+        }
+
+        // Configure and show dialog
+        dialog.apply {
+            contentPane.add(contentsPanel, BorderLayout.CENTER)
+            title = "Create raw frame dump source"
+            isModal = true
+            isAlwaysOnTop = true
+            isResizable = false
+            pack()
+            setLocationRelativeTo(null) // Center on screen
+            isVisible = true
+        }
+    }
+
+    private fun dumpFileSelected(file: File) {
+        selectedValidDump = try {
+            FileChannel.open(file.toPath(), StandardOpenOption.READ).use {
+                val header = RawFrameDump.readHeader(it)
+                fileSelector.dirTextField.text = "${file.absolutePath} (${header.frameCount} frames)"
+
+                header.frameCount > 0
+            }
+        } catch (_: Exception) {
+            fileSelector.dirTextField.text = "Unable to load selected file."
+            false
+        }
+
+        if (selectedValidDump && file.nameWithoutExtension.isNotBlank()) {
+            nameTextField.text = inputSourceManager.tryName(file.nameWithoutExtension)
+        }
+
+        updateCreateButton()
+    }
+
+    private fun close() {
+        dialog.isVisible = false
+        dialog.dispose()
+    }
+
+    private fun createSource(sourceName: String, filePath: String, unthrottled: Boolean) {
+        onMainLoop.once {
+            inputSourceManager.addInputSource(
+                sourceName,
+                RawDumpSource(filePath, 0.0, unthrottled),
+                true
+            )
+        }
+    }
+
+    private fun updateCreateButton() {
+        val isNameValid = nameTextField.text.isNotBlank() &&
+                !inputSourceManager.isNameInUse(nameTextField.text)
+
+        createButton.isEnabled = isNameValid && selectedValidDump
+    }
+
+    /**
+     * An extension function to simplify adding a DocumentListener for any text change.
+     */
+    private fun JTextField.onChange(action: () -> Unit) {
+        document.addDocumentListener(object : DocumentListener {
+            override fun changedUpdate(e: DocumentEvent?) = action()
+            override fun insertUpdate(e: DocumentEvent?) = action()
+            override fun removeUpdate(e: DocumentEvent?) = action()
+        })
+    }
+}
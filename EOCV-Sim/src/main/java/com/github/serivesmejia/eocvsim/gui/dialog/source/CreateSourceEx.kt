@@ -40,7 +40,7 @@ class CreateSourceEx : KoinComponent {
 
         dialog.contentPane.layout = GridBagLayout()
         val buttonsPanel = JPanel().apply {
-            layout = GridLayout(1, 4, 10, 10)
+            layout = GridLayout(1, 6, 10, 10)
         }
 
         buttonsPanel.add(JButton(
@@ -99,6 +99,34 @@ class CreateSourceEx : KoinComponent {
             }
         })
 
+        buttonsPanel.add(JButton(
+            "<html><div style='text-align: center;'>Image Sequence</div></html>",
+            EOCVSimIconLibrary.icoImg.resized(50, 50)
+        ).apply {
+            font = font.deriveFont(14f)
+            horizontalTextPosition = JButton.CENTER
+            verticalTextPosition = JButton.BOTTOM
+
+            addActionListener {
+                dialog.dispose()
+                dialogFactory.createSourceDialog(SourceType.IMAGE_SEQUENCE)
+            }
+        })
+
+        buttonsPanel.add(JButton(
+            "<html><div style='text-align: center;'>Synthetic</div></html>",
+            EOCVSimIconLibrary.icoGears.resized(50, 50)
+        ).apply {
+            font = font.deriveFont(14f)
+            horizontalTextPosition = JButton.CENTER
+            verticalTextPosition = JButton.BOTTOM
+
+            addActionListener {
+                dialog.dispose()
+                dialogFactory.createSourceDialog(SourceType.SYNTHETIC)
+            }
+        })
+
         buttonsPanel.border = BorderFactory.createEmptyBorder(0, 0, 0, 0)
 
         dialog.contentPane.add(buttonsPanel, GridBagConstraints().apply {
@@ -108,7 +136,7 @@ class CreateSourceEx : KoinComponent {
             weighty = 1.0
         })
 
-        dialog.minimumSize = Dimension(520, 160)
+        dialog.minimumSize = Dimension(780, 160)
         dialog.isResizable = false
 
         dialog.defaultCloseOperation = JDialog.DISPOSE_ON_CLOSE
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.gui.dialog.source
+
+import com.github.serivesmejia.eocvsim.gui.Visualizer
+import com.github.serivesmejia.eocvsim.gui.component.input.SizeFields
+import com.github.serivesmejia.eocvsim.input.InputSourceManager
+import com.github.serivesmejia.eocvsim.input.source.SyntheticSource
+import com.github.serivesmejia.eocvsim.util.event.EventHandler
+import org.opencv.core.Size
+import java.awt.BorderLayout
+import java.awt.FlowLayout
+import java.awt.GridLayout
+import javax.swing.*
+import javax.swing.event.DocumentEvent
+import javax.swing.event.DocumentListener
+
+import org.koin.core.component.KoinComponent
+import org.koin.core.component.inject
+import org.koin.core.qualifier.named
+
+class CreateSyntheticSource : KoinComponent {
+
+    private val visualizer: Visualizer by inject()
+    private val inputSourceManager by inject<InputSourceManager>()
+    private val onMainLoop: EventHandler by inject(named("onMainLoop"))
+
+    private val dialog: JDialog = JDialog(visualizer.frame)
+
+    private var nameTextField: JTextField
+    private var seedTextField: JTextField
+    private var fpsSpinner: JSpinner
+    private var shapesSpinner: JSpinner
+    private var tagsCheckBox: JCheckBox
+    private var sizeFields: SizeFields
+    private var createButton: JButton
+
+    init {
+        // Main content panel
+        val contentsPanel = JPanel(GridLayout(5, 1)).apply {
+            border = BorderFactory.createEmptyBorder(15, 0, 0, 0)
+        }
+
+        // Size fields
+        sizeFields = SizeFields(Size(1280.0, 720.0)).apply {
+            onChange.attach {
+                updateCreateButton()
+            }
+        }
+        contentsPanel.add(sizeFields)
+
+        // Seed and rate
+        val ratePanel = JPanel(FlowLayout()).apply {
+            seedTextField = JTextField("0", 8)
+            fpsSpinner = JSpinner(SpinnerNumberModel(60.0, 1.0, SyntheticSource.MAX_FPS, 1.0))
+
+            add(JLabel("Seed: "))
+            add(seedTextField)
+            add(JLabel(" FPS: "))
+            add(fpsSpinner)
+        }
+        contentsPanel.add(ratePanel)
+
+        // Contents
+        val contentPanel = JPanel(FlowLayout()).apply {
+            shapesSpinner = JSpinner(SpinnerNumberModel(12, 0, 500, 1))
+            tagsCheckBox = JCheckBox("AprilTags", true)
+
+            add(JLabel("Shapes: "))
+            add(shapesSpinner)
+            add(tagsCheckBox)
+        }
+        contentsPanel.add(contentPanel)
+
+        // Name input panel
+        val namePanel = JPanel(FlowLayout()).apply {
+            val sourceCount = inputSourceManager.sources.size + 1
+            nameTextField = JTextField("SyntheticSource-$sourceCount", 15)
+            add(JLabel("Source Name: "))
+            add(nameTextField)
+        }
+        contentsPanel.add(namePanel)
+
+        // Bottom buttons panel
+        val buttonsPanel = JPanel(FlowLayout()).apply {
+            createButton = JButton("Create")
+            add(createButton)
+            add(JButton("Cancel").apply { addActionListener { close() } })
+        }
+        contentsPanel.add(buttonsPanel)
+
+        // Add listeners
+        nameTextField.onChange(::updateCreateButton)
+        seedTextField.onChange(::updateCreateButton)
+
+        createButton.addActionListener {
+            createSource(
+                nameTextField.text,
+                seedTextField.text.trim().toLongOrNull() ?: return@addActionListener,
+                sizeFields.currentSize,
+                (fpsSpinner.value as Number).toDouble(),
+                (shapesSpinner.value as Number).toInt(),
+                tagsCheckBox.isSelected
+            )
+            close()
+        }
+
+        updateCreateButton()
+
+        // Configure and show dialog
+        dialog.apply {
+            contentPane.add(contentsPanel, BorderLayout.CENTER)
+            title = "Create synthetic source"
+            isModal = true
+            isAlwaysOnTop = true
+            isResizable = false
+            pack()
+            setLocationRelativeTo(null) // Center on screen
+            isVisible = true
+        }
+    }
+
+    private fun close() {
+        dialog.isVisible = false
+        dialog.dispose()
+    }
+
+    private fun createSource(sourceName: String, seed: Long, size: Size, fps: Double, shapeCount: Int, drawTags: Boolean) {
+        onMainLoop.once {
+            inputSourceManager.addInputSource(
+                sourceName,
+                SyntheticSource(seed, size, fps, shapeCount, drawTags),
+                true
+            )
+        }
+    }
+
+    private fun updateCreateButton() {
+        val isNameValid = nameTextField.text.isNotBlank() &&
+                !inputSourceManager.isNameInUse(nameTextField.text)
+
+        val isSizeValid = sizeFields.valid &&
+                sizeFields.currentSize.width <= SyntheticSource.MAX_SIZE.width &&
+                sizeFields.currentSize.height <= SyntheticSource.MAX_SIZE.height
+
+        createButton.isEnabled = isNameValid && isSizeValid && seedTextField.text.trim().toLongOrNull() != null
+    }
+
+    /**
+     * An extension function to simplify adding a DocumentListener for any text change.
+     */
+    private fun JTextField.onChange(action: () -> Unit) {
+        document.addDocumentListener(object : DocumentListener {
+            override fun changedUpdate(e: DocumentEvent?) = action()
+            override fun insertUpdate(e: DocumentEvent?) = action()
+            override fun removeUpdate(e: DocumentEvent?) = action()
+        })
+    }
+}
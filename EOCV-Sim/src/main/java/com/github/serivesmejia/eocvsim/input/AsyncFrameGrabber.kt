@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.input
+
+import org.deltacv.common.util.loggerOf
+import org.opencv.core.Mat
+import org.openftc.easyopencv.MatRecycler
+import java.util.concurrent.atomic.AtomicLong
+import java.util.concurrent.atomic.AtomicReference
+
+/**
+ * Grabs frames from a device on its own thread, so that a slow or stalled
+ * device never blocks the thread consuming the frames.
+ *
+ * Frames are grabbed into a small ring of recycled Mats. Only the latest
+ * grabbed frame is kept around, if it's replaced before being taken it's
+ * counted as dropped. Taking when no new frame has arrived since the last
+ * take is counted as stale, and failed grabs are counted as timed out.
+ * @param name name of the grabber, used for the thread and the logger
+ * @param bufferCount number of Mats in the ring, at least 3: one being grabbed into,
+ *                    one holding the latest frame and one being consumed
+ * @param grab grabs a frame into the given Mat, returning its capture time in
+ *             nanoseconds, or 0 if the grab timed out or failed
+ */
+class AsyncFrameGrabber @JvmOverloads constructor(
+    val name: String,
+    bufferCount: Int = DEFAULT_BUFFER_COUNT,
+    private val grab: (Mat) -> Long
+) {
+
+    companion object {
+        const val DEFAULT_BUFFER_COUNT = 3
+    }
+
+    private val logger by loggerOf("AsyncFrameGrabber-$name")
+
+    private val recycler = MatRecycler(bufferCount.coerceAtLeast(DEFAULT_BUFFER_COUNT))
+    private val latest = AtomicReference<MatRecycler.RecyclableMat?>(null)
+
+    private val newFrameLock = Object()
+
+    private val grabbedCount = AtomicLong()
+    private val droppedCount = AtomicLong()
+    private val staleCount = AtomicLong()
+    private val timedOutCount = AtomicLong()
+
+    val grabbed get() = grabbedCount.get()
+    val dropped get() = droppedCount.get()
+    val stale get() = staleCount.get()
+    val timedOut get() = timedOutCount.get()
+
+    @Volatile private var running = false
+    private var thread: Thread? = null
+
+    // run once the grab thread is done with the device, see stop
+    private val releaseDevice = AtomicReference<(() -> Unit)?>(null)
+
+    val isRunning get() = running
+
+    @Synchronized
+    fun start() {
+        if (running) return
+        running = true
+
+        thread = Thread(::grabLoop, "AsyncFrameGrabber-$name").apply {
+            isDaemon = true
+            start()
+        }
+    }
+
+    private fun grabLoop() {
+        try {
+            while (running && !Thread.currentThread().isInterrupted) {
+                val buffer = recycler.takeMatOrNull()
+
+                if (buffer == null) {
+                    // should not happen with at least 3 buffers, but don't spin if it does
+                    Thread.sleep(1)
+                    continue
+                }
+
+                val captureNanos = try {
+                    grab(buffer)
+                } catch (e: Exception) {
+                    logger.warn("Exception while grabbing frame", e)
+                    0L
+                }
+
+                if (captureNanos == 0L || buffer.empty()) {
+                    buffer.returnMat()
+                    timedOutCount.incrementAndGet()
+                    continue
+                }
+
+                buffer.context = captureNanos
+                grabbedCount.incrementAndGet()
+
+                latest.getAndSet(buffer)?.let {
+                    it.returnMat()
+                    droppedCount.incrementAndGet()
+                }
+
+                synchronized(newFrameLock) {
+                    newFrameLock.notifyAll()
+                }
+            }
+        } catch (_: InterruptedException) {
+        } finally {
+            // the buffers are only released once we know the device is done writing into them
+            latest.getAndSet(null)?.returnMat()
+            recycler.releaseAll()
+
+            runReleaseDevice()
+        }
+    }
+
+    /**
+     * Takes the latest grabbed frame without blocking, and hands it to [block]
+     * along with its capture time. The frame is recycled as soon as [block] returns.
+     * @return false if no new frame was grabbed since the last take
+     */
+    fun takeLatest(block: (Mat, Long) -> Unit): Boolean {
+        val frame = latest.getAndSet(null)
+
+        if (frame == null) {
+            staleCount.incrementAndGet()
+            return false
+        }
+
+        try {
+            block(frame, frame.context as Long)
+        } finally {
+            frame.returnMat()
+        }
+
+        return true
+    }
+
+    /**
+     * Like [takeLatest], but waits up to [timeoutMillis] for a new frame to be grabbed.
+     * Meant for consumers that are fine with blocking, off the main loop.
+     */
+    fun awaitLatest(timeoutMillis: Long, block: (Mat, Long) -> Unit): Boolean {
+        val deadline = System.currentTimeMillis() + timeoutMillis
+
+        synchronized(newFrameLock) {
+            while (latest.get() == null && running) {
+                val remaining = deadline - System.currentTimeMillis()
+                if (remaining <= 0) break
+
+                newFrameLock.wait(remaining)
+            }
+        }
+
+        return takeLatest(block)
+    }
+
+    /**
+     * Stops the grab thread, waiting up to [joinTimeoutMillis] for an
+     * in-flight grab to finish. The buffers are released by the grab thread itself.
+     *
+     * [release] should close the device [grab] reads from. It runs right away if the
+     * thread is done, otherwise it's left to the thread, once its in-flight grab returns.
+     */
+    @Synchronized
+    fun stop(joinTimeoutMillis: Long = 1000, release: () -> Unit = {}) {
+        if (!running) {
+            release()
+            return
+        }
+
+        running = false
+        releaseDevice.set(release)
+
+        thread?.let {
+            it.interrupt()
+            it.join(joinTimeoutMillis)
+
+            if (it.isAlive) {
+                logger.warn("Grab thread did not finish within $joinTimeoutMillis ms, leaving it to close the device once it does")
+            } else {
+                runReleaseDevice()
+            }
+        }
+        thread = null
+
+        synchronized(newFrameLock) {
+            newFrameLock.notifyAll()
+        }
+
+        logger.info("Stopped, $this")
+    }
+
+    private fun runReleaseDevice() {
+        try {
+            releaseDevice.getAndSet(null)?.invoke()
+        } catch (e: Exception) {
+            logger.warn("Exception while closing the device", e)
+        }
+    }
+
+    override fun toString() = "AsyncFrameGrabber($name, grabbed=$grabbed, dropped=$dropped, stale=$stale, timedOut=$timedOut)"
+
+}
@@ -10,6 +10,7 @@ import com.fasterxml.jackson.annotation.JsonProperty
 import org.koin.core.component.KoinComponent
 import org.opencv.core.Mat
 import org.opencv.core.Size
+import org.opencv.imgproc.Imgproc
 import javax.swing.filechooser.FileFilter
 
 @JsonAutoDetect(
@@ -57,6 +58,33 @@ abstract class InputSource : Comparable<InputSource>, KoinComponent {
 
     open fun update(): Mat? = null
 
+    /**
+     * Color layout of the Mats returned by [update]
+     */
+    open val outputFormat: FrameFormat get() = FrameFormat.RGB
+
+    /**
+     * Produces the next frame straight into [dst], a recycled Mat owned by the
+     * caller, in the RGBA layout pipelines expect. Sources should override this
+     * to decode/convert directly into [dst] instead of going through their own
+     * intermediate Mat, the default implementation converts the result of [update].
+     * @return whether a new frame was written into [dst]
+     */
+    open fun updateInto(dst: Mat): Boolean {
+        val frame = update()
+        if (frame == null || frame.empty()) return false
+
+        val code = outputFormat.toRgbaCode
+
+        if (code == null) {
+            frame.copyTo(dst)
+        } else {
+            Imgproc.cvtColor(frame, dst, code)
+        }
+
+        return true
+    }
+
     fun cloneSource(): InputSource {
         val source = internalCloneSource()
         source.createdOn = createdOn
@@ -74,5 +102,14 @@ abstract class InputSource : Comparable<InputSource>, KoinComponent {
         return if (createdOn > other.createdOn) 1 else -1
     }
 
+    /**
+     * @param toRgbaCode the cvtColor code to convert this format into RGBA, or null if it's RGBA already
+     */
+    enum class FrameFormat(val toRgbaCode: Int?) {
+        RGB(Imgproc.COLOR_RGB2RGBA),
+        BGR(Imgproc.COLOR_BGR2RGBA),
+        RGBA(null)
+    }
+
 }
 
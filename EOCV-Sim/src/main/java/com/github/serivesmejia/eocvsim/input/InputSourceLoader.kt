@@ -117,6 +117,9 @@ class InputSourceLoader {
         @JsonProperty var cameraSources = HashMap<String, CameraSource>()
         @JsonProperty var videoSources = HashMap<String, VideoSource>()
         @JsonProperty var httpSources = HashMap<String, HttpSource>()
+        @JsonProperty var imageSequenceSources = HashMap<String, ImageSequenceSource>()
+        @JsonProperty var rawDumpSources = HashMap<String, RawDumpSource>()
+        @JsonProperty var syntheticSources = HashMap<String, SyntheticSource>()
 
         @JsonProperty var sourcesFileVersion: SourcesFileVersion? = null
 
@@ -130,6 +133,9 @@ class InputSourceLoader {
             allSources.putAll(imageSources)
             allSources.putAll(cameraSources)
             allSources.putAll(httpSources)
+            allSources.putAll(imageSequenceSources)
+            allSources.putAll(rawDumpSources)
+            allSources.putAll(syntheticSources)
 
             // check if file version is bigger than DOS, we should have video sources section
             // declared in any file with a version greater than that
@@ -144,6 +150,9 @@ class InputSourceLoader {
                 SourceType.CAMERA -> cameraSources[sourceName] = source as CameraSource
                 SourceType.VIDEO -> videoSources[sourceName] = source as VideoSource
                 SourceType.HTTP -> httpSources[sourceName] = source as HttpSource
+                SourceType.IMAGE_SEQUENCE -> imageSequenceSources[sourceName] = source as ImageSequenceSource
+                SourceType.RAW_DUMP -> rawDumpSources[sourceName] = source as RawDumpSource
+                SourceType.SYNTHETIC -> syntheticSources[sourceName] = source as SyntheticSource
                 else -> {}
             }
         }
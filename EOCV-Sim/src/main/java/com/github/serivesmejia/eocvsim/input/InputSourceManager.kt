@@ -11,6 +11,7 @@ import com.github.serivesmejia.eocvsim.input.source.NullSource
 import com.github.serivesmejia.eocvsim.pipeline.PipelineManager
 import com.github.serivesmejia.eocvsim.util.SysUtil
 import com.github.serivesmejia.eocvsim.util.event.EventHandler
+import com.github.serivesmejia.eocvsim.util.jfr.InputUpdateEvent
 import com.github.serivesmejia.eocvsim.util.orchestration.PhaseOrchestrableBase
 import org.deltacv.common.util.loggerForThis
 import org.koin.core.component.KoinComponent
@@ -19,7 +20,6 @@ import org.koin.core.qualifier.named
 import org.opencv.core.Mat
 import org.opencv.core.Scalar
 import org.opencv.core.Size
-import org.opencv.imgproc.Imgproc
 import org.openftc.easyopencv.MatRecycler
 import java.io.IOException
 
@@ -39,6 +39,20 @@ class InputSourceManager : PhaseOrchestrableBase(), KoinComponent {
     @Volatile var lastMatFromSource: Mat? = null
     @Volatile var currentInputSource: InputSource? = null
 
+    /**
+     * Incremented every time [lastMatFromSource] is replaced by a new frame
+     */
+    @Volatile var frameSequence = 0L
+        private set
+
+    /**
+     * [System.nanoTime] at which the frame in [lastMatFromSource] came out of its source.
+     * Unlike [InputSource.captureTimeNanos], which is in whatever clock and unit the
+     * source's backend uses, this can be compared with other [System.nanoTime] stamps.
+     */
+    @Volatile var frameArrivalNanos = 0L
+        private set
+
     val sources = mutableMapOf<String, InputSource>()
 
     val inputSourceLoader = InputSourceLoader()
@@ -113,18 +127,24 @@ class InputSourceManager : PhaseOrchestrableBase(), KoinComponent {
 
         val currentSource = currentInputSource ?: return
 
+        val event = InputUpdateEvent()
+        event.begin()
+
         try {
             currentSource.isPaused = isPaused
 
-            val m = currentSource.update()
+            val nextMat = matRecycler.takeMatOrNull() ?: matRecycler.takeMatOrInterrupt()
 
-            if (m != null && !m.empty()) {
-                val nextMat = matRecycler.takeMatOrNull() ?: matRecycler.takeMatOrInterrupt()
-                
-                // Directly convert from the source 'm' (RGB) into our properly sized 'nextMat' (RGBA)
-                // This avoids allocating native buffers once nextMat is initialized natively for the first few frames
-                Imgproc.cvtColor(m, nextMat, Imgproc.COLOR_RGB2RGBA)
-                
+            // the source writes its frame, already in RGBA, straight into our recycled Mat.
+            // this avoids allocating native buffers once nextMat is initialized natively for the first few frames
+            val updated = try {
+                currentSource.updateInto(nextMat) && !nextMat.empty()
+            } catch (ex: Exception) {
+                nextMat.returnMat()
+                throw ex
+            }
+
+            if (updated) {
                 val prev = lastMatFromSource
                 if (prev is MatRecycler.RecyclableMat) {
                     prev.returnMat()
@@ -133,6 +153,17 @@ class InputSourceManager : PhaseOrchestrableBase(), KoinComponent {
                 }
                 
                 lastMatFromSource = nextMat
+                frameArrivalNanos = System.nanoTime()
+                frameSequence++
+            } else {
+                nextMat.returnMat()
+            }
+
+            if (event.shouldCommit()) {
+                event.source = currentSource.name
+                event.sequence = frameSequence
+                event.updated = updated
+                event.commit()
             }
         } catch (ex: Exception) {
             logger.error("Error while processing current source", ex)
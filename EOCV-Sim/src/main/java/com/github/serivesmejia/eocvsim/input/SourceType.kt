@@ -14,6 +14,9 @@ enum class SourceType(val stubInstance: InputSource?, val coolName: String) {
     CAMERA(CameraSource(), "Camera"),
     VIDEO(VideoSource(), "Video"),
     HTTP(HttpSource(), "HTTP"),
+    IMAGE_SEQUENCE(ImageSequenceSource(), "Image Sequence"),
+    RAW_DUMP(RawDumpSource(), "Raw Frame Dump"),
+    SYNTHETIC(SyntheticSource(), "Synthetic"),
     UNKNOWN(null, "Unknown");
 
     val klazz: Class<out InputSource>? = stubInstance?.javaClass
@@ -41,6 +44,10 @@ enum class SourceType(val stubInstance: InputSource?, val coolName: String) {
 
         @JvmStatic
         fun isFileUsableForSource(file: File): SourceType {
+            if (file.isDirectory) {
+                return if (ImageSequenceSource.listFrames(file).isNotEmpty()) IMAGE_SEQUENCE else UNKNOWN
+            }
+
             for (type in entries) {
                 val filters = type.stubInstance?.fileFilters
                 if (filters != null && filters.accept(file)) {
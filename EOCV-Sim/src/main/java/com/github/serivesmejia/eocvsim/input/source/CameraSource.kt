@@ -7,6 +7,7 @@ package com.github.serivesmejia.eocvsim.input.source
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect
 import com.fasterxml.jackson.annotation.JsonProperty
+import com.github.serivesmejia.eocvsim.input.AsyncFrameGrabber
 import com.github.serivesmejia.eocvsim.input.InputSource
 import com.github.serivesmejia.eocvsim.input.InputSourceInitializer
 import com.github.serivesmejia.eocvsim.config.ConfigManager
@@ -50,6 +51,7 @@ class CameraSource : InputSource, KoinComponent {
 
     @Transient private var cvSink: CvSink? = null
     @Transient private var lastFrame = Mat()
+    @Transient private var grabber: AsyncFrameGrabber? = null
     @Transient private var initialized = false
     @Transient var isLegacyByIndex = false
     @Transient private var capTimeNanos = 0L
@@ -156,6 +158,12 @@ class CameraSource : InputSource, KoinComponent {
             return false
         }
 
+        val sink = cvSink!!
+
+        grabber = AsyncFrameGrabber("Camera-$cameraPortIndex") { frame ->
+            sink.grabFrame(frame, configManager.config.webcamNewFrameTimeoutSec)
+        }.also { it.start() }
+
         currentWebcamIndex = cameraPortIndex
         return true
     }
@@ -172,17 +180,30 @@ class CameraSource : InputSource, KoinComponent {
     override fun update(): Mat {
         if (isPaused) return lastFrame
 
-        capTimeNanos = cvSink?.grabFrame(lastFrame, configManager.config.webcamNewFrameTimeoutSec) ?: 0L
-
-        if (!lastFrame.empty()) {
-            Imgproc.cvtColor(lastFrame, lastFrame, Imgproc.COLOR_BGR2RGBA)
+        // blocking flavor, for consumers running off the main loop
+        grabber?.awaitLatest((configManager.config.webcamNewFrameTimeoutSec * 1000).toLong()) { frame, captureNanos ->
+            capTimeNanos = captureNanos
+            Imgproc.cvtColor(frame, lastFrame, Imgproc.COLOR_BGR2RGBA)
         }
 
         return lastFrame
     }
 
+    override val outputFormat get() = FrameFormat.RGBA
+
+    override fun updateInto(dst: Mat): Boolean {
+        if (isPaused) return false
+
+        // never blocks, the grab thread keeps its buffers in BGR so the sink never
+        // has to reallocate them, and we convert the latest one straight into dst
+        return grabber?.takeLatest { frame, captureNanos ->
+            capTimeNanos = captureNanos
+            Imgproc.cvtColor(frame, dst, Imgproc.COLOR_BGR2RGBA)
+        } ?: false
+    }
+
     override fun onPause() {
-        cvSink?.grabFrame(lastFrame, configManager.config.webcamNewFrameTimeoutSec)
+        grabber?.takeLatest { frame, _ -> Imgproc.cvtColor(frame, lastFrame, Imgproc.COLOR_BGR2RGBA) }
         teardown()
     }
 
@@ -191,11 +212,21 @@ class CameraSource : InputSource, KoinComponent {
     }
 
     private fun teardown() {
-        cvSink?.close()
+        val sink = cvSink
+        val device = camera
+
         cvSink = null
-        camera?.close()
         camera = null
         currentWebcamIndex = -1
+
+        val closeDevice = {
+            sink?.close()
+            device?.close()
+        }
+
+        // the sink can't be closed under an in-flight grab, the grabber closes it once it's done
+        grabber?.stop((configManager.config.webcamNewFrameTimeoutSec * 1000).toLong() + 500, closeDevice) ?: closeDevice()
+        grabber = null
     }
 
     override fun internalCloneSource(): InputSource =
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.input.source
+
+import org.opencv.core.Mat
+import org.opencv.imgproc.Imgproc
+
+/**
+ * LRU cache of decoded frames, bounded by the total size in bytes
+ * of the cached Mats rather than by a number of entries.
+ *
+ * Evicted Mats are released right away, so callers never get a reference
+ * to a cached Mat, they copy it out with [copyTo] while holding the lock.
+ * @param budgetBytes maximum amount of native memory to keep cached
+ */
+class DecodedFrameCache(budgetBytes: Long) {
+
+    var budgetBytes = budgetBytes
+        @Synchronized set(value) {
+            field = value
+            evict()
+        }
+
+    private val frames = LinkedHashMap<Int, Mat>(16, 0.75f, true)
+
+    var usedBytes = 0L
+        @Synchronized get
+        private set
+
+    var hits = 0L
+        @Synchronized get
+        private set
+    var misses = 0L
+        @Synchronized get
+        private set
+
+    val size @Synchronized get() = frames.size
+
+    var isClosed = false
+        @Synchronized get
+        private set
+
+    @Synchronized
+    operator fun contains(index: Int) = frames.containsKey(index)
+
+    /**
+     * Stores the given frame, taking ownership of the Mat.
+     * The least recently used frames are released until the cache fits in
+     * [budgetBytes] again, the frame that was just stored is always kept.
+     * Once the cache is closed, the frame is released right away instead.
+     */
+    @Synchronized
+    fun put(index: Int, frame: Mat) {
+        if (isClosed) {
+            frame.release()
+            return
+        }
+
+        frames.put(index, frame)?.let {
+            usedBytes -= bytesOf(it)
+            it.release()
+        }
+        usedBytes += bytesOf(frame)
+
+        evict(keep = index)
+    }
+
+    /**
+     * Copies the cached frame into [dst], converting it with [cvtCode] if given
+     * @return false if the frame isn't cached
+     */
+    @Synchronized
+    fun copyTo(index: Int, dst: Mat, cvtCode: Int? = null): Boolean {
+        val frame = frames[index]
+
+        if (frame == null) {
+            misses++
+            return false
+        }
+
+        hits++
+
+        if (cvtCode == null) {
+            frame.copyTo(dst)
+        } else {
+            Imgproc.cvtColor(frame, dst, cvtCode)
+        }
+
+        return true
+    }
+
+    @Synchronized
+    fun clear() {
+        for (frame in frames.values) {
+            frame.release()
+        }
+
+        frames.clear()
+        usedBytes = 0
+    }
+
+    /**
+     * Releases every cached frame, and every frame [put] from now on,
+     * so that decodes still in flight don't leak their Mats
+     */
+    @Synchronized
+    fun close() {
+        isClosed = true
+        clear()
+    }
+
+    private fun evict(keep: Int? = null) {
+        val iterator = frames.entries.iterator()
+
+        while (usedBytes > budgetBytes && iterator.hasNext()) {
+            val (index, frame) = iterator.next()
+            if (index == keep) continue
+
+            iterator.remove()
+            usedBytes -= bytesOf(frame)
+            frame.release()
+        }
+    }
+
+    private fun bytesOf(mat: Mat) = mat.total() * mat.elemSize()
+
+    override fun toString() = "DecodedFrameCache(frames=$size, used=${usedBytes / 1024} KB, budget=${budgetBytes / 1024} KB, hits=$hits, misses=$misses)"
+
+}
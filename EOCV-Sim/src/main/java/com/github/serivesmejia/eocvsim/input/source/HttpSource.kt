@@ -7,6 +7,7 @@ package com.github.serivesmejia.eocvsim.input.source
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect
 import com.fasterxml.jackson.annotation.JsonProperty
+import com.github.serivesmejia.eocvsim.input.AsyncFrameGrabber
 import com.github.serivesmejia.eocvsim.input.InputSource
 import com.github.serivesmejia.eocvsim.input.InputSourceInitializer
 import com.github.serivesmejia.eocvsim.config.ConfigManager
@@ -38,6 +39,7 @@ class HttpSource @JvmOverloads constructor (
     @Transient private var cvSink: CvSink? = null
 
     @Transient private var lastFrame = Mat()
+    @Transient private var grabber: AsyncFrameGrabber? = null
     @Transient private var initialized = false
     @Transient private var capTimeNanos: Long = 0
     private val configManager: ConfigManager by inject()
@@ -66,6 +68,14 @@ class HttpSource @JvmOverloads constructor (
             return false
         }
 
+        val sink = cvSink!!
+
+        grabber = AsyncFrameGrabber("Http") { frame ->
+            // frames are stamped when they arrive
+            val grabbed = sink.grabFrame(frame, configManager.config.webcamNewFrameTimeoutSec)
+            if (grabbed == 0L) 0L else System.nanoTime()
+        }.also { it.start() }
+
         logger.info("HttpSource initialized")
         initialized = true
         return true
@@ -75,34 +85,57 @@ class HttpSource @JvmOverloads constructor (
     override fun update(): Mat? {
         if (!initialized) return null
 
-        val ok = cvSink?.grabFrame(lastFrame, configManager.config.webcamNewFrameTimeoutSec) ?: 0L
+        // blocking flavor, for consumers running off the main loop
+        val gotFrame = grabber?.awaitLatest((configManager.config.webcamNewFrameTimeoutSec * 1000).toLong()) { frame, captureNanos ->
+            capTimeNanos = captureNanos
+            Imgproc.cvtColor(frame, lastFrame, Imgproc.COLOR_BGR2RGBA)
+        } ?: false
 
-        if (ok == 0L || lastFrame.empty()) {
-            return null
+        return if (gotFrame) lastFrame else null
+    }
+
+    override val outputFormat get() = FrameFormat.RGBA
+
+    override fun updateInto(dst: Mat): Boolean {
+        if (!initialized) return false
+
+        // never blocks, a stalled stream only means no new frame this tick
+        return grabber?.takeLatest { frame, captureNanos ->
+            capTimeNanos = captureNanos
+            Imgproc.cvtColor(frame, dst, Imgproc.COLOR_BGR2RGBA)
+        } ?: false
+    }
+
+    private fun teardown() {
+        val sink = cvSink
+        val device = camera
+
+        cvSink = null
+        camera = null
+
+        val closeDevice = {
+            sink?.close()
+            device?.close()
         }
-        capTimeNanos = System.nanoTime()
-        Imgproc.cvtColor(lastFrame, lastFrame, Imgproc.COLOR_BGR2RGBA)
-        return lastFrame
+
+        // the sink can't be closed under an in-flight grab, the grabber closes it once it's done
+        grabber?.stop((configManager.config.webcamNewFrameTimeoutSec * 1000).toLong() + 500, closeDevice) ?: closeDevice()
+        grabber = null
     }
 
     override fun reset() {
         if (!initialized) return
-        cvSink?.close()
-        cvSink = null
-        camera?.close()
-        camera = null
+        teardown()
         lastFrame.release()
         initialized = false
     }
 
     override fun close() {
-        cvSink?.close()
-        camera?.close()
+        teardown()
     }
 
     override fun onPause() {
-        cvSink?.close()
-        camera?.close()
+        teardown()
     }
 
     override fun onResume() {
@@ -112,7 +145,7 @@ class HttpSource @JvmOverloads constructor (
     override fun internalCloneSource(): InputSource = HttpSource(url)
 
     override val sourceSize: Size
-        get() = cvSink?.directMat?.size() ?: Size()
+        get() = cvSink?.directMat?.size() ?: lastFrame.size()
 
     override val fileFilters: FileFilter? get() = null
     override val captureTimeNanos: Long get() = capTimeNanos
@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.input.source
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.github.serivesmejia.eocvsim.input.InputSource
+import com.github.serivesmejia.eocvsim.output.LosslessRecordingSession
+import com.github.serivesmejia.eocvsim.util.FileFilters
+import com.github.serivesmejia.eocvsim.util.fps.FpsLimiter
+import com.github.serivesmejia.eocvsim.util.fps.TimestampPacer
+import org.opencv.core.Mat
+import org.opencv.core.Size
+import org.opencv.imgcodecs.Imgcodecs
+import org.opencv.imgproc.Imgproc
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.nio.file.FileSystems
+import java.nio.file.Paths
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import javax.swing.filechooser.FileFilter
+
+/**
+ * Plays every image inside a directory, in file name order, as if it was a video.
+ *
+ * Frames are decoded ahead of time on a small background pool and kept in a
+ * [DecodedFrameCache] bounded by [cacheBudgetMb], so looping over a dataset that
+ * fits within the budget only decodes each frame once.
+ * @param dirPath the directory containing the frames
+ * @param pattern glob matched against the file names inside [dirPath]
+ * @param fps the rate at which frames are played, or 0 to follow the timestamps of a
+ *            [LosslessRecordingSession] dataset
+ * @param size the size frames are resized to, or an empty size to keep the size of the first frame
+ * @param cacheBudgetMb maximum amount of decoded frames to keep in memory, in megabytes
+ */
+@JsonAutoDetect(
+    fieldVisibility = JsonAutoDetect.Visibility.NONE,
+    getterVisibility = JsonAutoDetect.Visibility.NONE,
+    isGetterVisibility = JsonAutoDetect.Visibility.NONE,
+    setterVisibility = JsonAutoDetect.Visibility.NONE,
+    creatorVisibility = JsonAutoDetect.Visibility.NONE
+)
+class ImageSequenceSource @JvmOverloads constructor(
+    @field:JsonProperty @JvmField var dirPath: String = "",
+    @field:JsonProperty @JvmField var pattern: String = "*",
+    @field:JsonProperty @JvmField var fps: Double = 30.0,
+    @field:JsonProperty @JvmField var size: Size = Size(),
+    @field:JsonProperty @JvmField var cacheBudgetMb: Int = DEFAULT_CACHE_BUDGET_MB
+) : InputSource() {
+
+    companion object {
+        const val DEFAULT_CACHE_BUDGET_MB = 256
+        const val DECODE_AHEAD = 4
+
+        private val naturalOrder = Comparator<File> { a, b -> compareNatural(a.name, b.name) }
+
+        /**
+         * Compares two file names treating runs of digits as numbers,
+         * so that "frame2.png" comes before "frame10.png"
+         */
+        fun compareNatural(a: String, b: String): Int {
+            var i = 0
+            var j = 0
+
+            while (i < a.length && j < b.length) {
+                if (a[i].isDigit() && b[j].isDigit()) {
+                    val startI = i
+                    val startJ = j
+                    while (i < a.length && a[i].isDigit()) i++
+                    while (j < b.length && b[j].isDigit()) j++
+
+                    val numA = a.substring(startI, i).trimStart('0')
+                    val numB = b.substring(startJ, j).trimStart('0')
+
+                    if (numA.length != numB.length) return numA.length - numB.length
+
+                    val cmp = numA.compareTo(numB)
+                    if (cmp != 0) return cmp
+                } else {
+                    val cmp = a[i].compareTo(b[j])
+                    if (cmp != 0) return cmp
+
+                    i++
+                    j++
+                }
+            }
+
+            return (a.length - i) - (b.length - j)
+        }
+
+        /**
+         * Lists the frames inside [dir] matching the [pattern] glob, in natural file name order
+         */
+        fun listFrames(dir: File, pattern: String = "*"): List<File> {
+            val matcher = FileSystems.getDefault().getPathMatcher("glob:${pattern.ifBlank { "*" }}")
+
+            return (dir.listFiles() ?: return emptyList())
+                .filter { it.isFile && FileFilters.imagesFilter.accept(it) && matcher.matches(Paths.get(it.name)) }
+                .sortedWith(naturalOrder)
+        }
+    }
+
+    @Transient private var frames = listOf<File>()
+
+    @Transient private var cache: DecodedFrameCache? = null
+    @Transient private var decoder: ExecutorService? = null
+    @Transient private val pendingDecodes = ConcurrentHashMap<Int, Future<*>>()
+
+    @Transient private val fpsLimiter = FpsLimiter(fps)
+    @Transient private val timestampPacer = TimestampPacer()
+    @Transient private var timestamps: LongArray? = null
+
+    @Transient private var lastFrame: Mat? = null
+    @Transient private var currentIndex = 0
+
+    @Transient private var initialized = false
+
+    @Transient private var capTimeNanos = 0L
+
+    @Transient private val logger = LoggerFactory.getLogger(javaClass)
+
+    override val sourceSize get() = size
+
+    val frameCount get() = frames.size
+
+    override fun init(): Boolean {
+        if (initialized) return false
+        initialized = true
+
+        val dir = File(dirPath)
+        if (!dir.isDirectory) {
+            logger.error("Image sequence directory $dirPath does not exist")
+            return false
+        }
+
+        frames = listFrames(dir, pattern)
+        if (frames.isEmpty()) {
+            logger.error("No frames matching \"$pattern\" found in $dirPath")
+            return false
+        }
+
+        cache = DecodedFrameCache(cacheBudgetMb.toLong() * 1024 * 1024)
+        decoder = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors().coerceIn(1, DECODE_AHEAD)
+        ) {
+            Thread(it, "ImageSequenceDecoder").apply { isDaemon = true }
+        }
+
+        timestamps = null
+        fpsLimiter.maxFPS = fps
+
+        if (fps <= 0) {
+            val index = LosslessRecordingSession.readIndex(dir)
+
+            if (frames.all { it.name in index }) {
+                timestamps = LongArray(frames.size) { index[frames[it].name]!! }
+                timestampPacer.reset()
+            } else {
+                logger.warn("No recorded timestamps for every frame in $dirPath, playing at 30 fps")
+                fpsLimiter.maxFPS = 30.0
+            }
+        }
+
+        currentIndex = 0
+
+        val first = decodeFrame(0)
+        if (first == null || first.empty()) {
+            logger.error("Unable to decode the first frame of the image sequence ${frames[0]}")
+            return false
+        }
+
+        if (sourceSize.area() == 0.0) size = first.size()
+
+        cache!!.put(0, first)
+        decodeAhead(0)
+
+        logger.info("Loaded image sequence of ${frames.size} frames from $dirPath")
+
+        return true
+    }
+
+    private fun decodeFrame(index: Int): Mat? {
+        val readMat = Imgcodecs.imread(frames[index].absolutePath)
+
+        if (readMat.empty()) {
+            readMat.release()
+            return null
+        }
+
+        if (sourceSize.area() != 0.0) {
+            Imgproc.resize(readMat, readMat, sourceSize, 0.0, 0.0, Imgproc.INTER_AREA)
+        }
+
+        Imgproc.cvtColor(readMat, readMat, Imgproc.COLOR_BGR2RGB)
+
+        return readMat
+    }
+
+    private fun scheduleDecode(index: Int): Future<*>? {
+        val cache = cache ?: return null
+        val decoder = decoder ?: return null
+
+        if (index in cache) return null
+
+        return pendingDecodes.computeIfAbsent(index) {
+            decoder.submit {
+                try {
+                    val frame = decodeFrame(index)
+
+                    if (frame == null) {
+                        logger.warn("Unable to decode frame ${frames[index]}, skipping")
+                    } else {
+                        cache.put(index, frame)
+                    }
+                } finally {
+                    // after a close, the index might already belong to a decode of the next init
+                    if (!cache.isClosed) pendingDecodes.remove(index)
+                }
+            }
+        }
+    }
+
+    private fun decodeAhead(fromIndex: Int) {
+        for (i in 1..DECODE_AHEAD.coerceAtMost(frames.size - 1)) {
+            scheduleDecode((fromIndex + i) % frames.size)
+        }
+    }
+
+    override fun update(): Mat? {
+        if (lastFrame == null) lastFrame = Mat()
+        if (isPaused) return lastFrame
+
+        nextFrameInto(lastFrame!!, null)
+        return lastFrame
+    }
+
+    override fun updateInto(dst: Mat): Boolean {
+        // nothing consumes frames while paused, the last one stays around
+        if (isPaused) return false
+
+        return nextFrameInto(dst, Imgproc.COLOR_RGB2RGBA)
+    }
+
+    private fun nextFrameInto(dst: Mat, cvtCode: Int?): Boolean {
+        val cache = cache ?: return false
+        val index = currentIndex
+
+        try {
+            val timestamps = timestamps
+
+            if (timestamps != null) {
+                timestampPacer.sync(timestamps[index])
+            } else {
+                fpsLimiter.sync()
+            }
+        } catch (_: InterruptedException) {
+            Thread.currentThread().interrupt()
+            return false
+        }
+
+        currentIndex = (currentIndex + 1) % frames.size
+
+        var copied = cache.copyTo(index, dst, cvtCode)
+
+        if (!copied) {
+            // not decoded ahead in time (or evicted), wait for it
+            try {
+                (pendingDecodes[index] ?: scheduleDecode(index))?.get()
+            } catch (e: ExecutionException) {
+                logger.warn("Error while decoding frame ${frames[index]}", e.cause)
+            } catch (_: InterruptedException) {
+                Thread.currentThread().interrupt()
+                return false
+            }
+
+            copied = cache.copyTo(index, dst, cvtCode)
+        }
+
+        capTimeNanos = System.nanoTime()
+        decodeAhead(index)
+
+        return copied
+    }
+
+    override fun onPause() {}
+
+    override fun onResume() {
+        // don't rush through the frames that would've played while paused
+        timestampPacer.reset()
+    }
+
+    override fun reset() {
+        if (!initialized) return
+        close()
+
+        currentIndex = 0
+        initialized = false
+    }
+
+    override fun close() {
+        decoder?.shutdownNow()
+        decoder = null
+        pendingDecodes.clear()
+
+        // decodes still in flight can't be interrupted, the closed cache releases what they put
+        cache?.let {
+            logger.info("Closing image sequence $dirPath, $it")
+            it.close()
+        }
+        cache = null
+
+        lastFrame?.release()
+        lastFrame = null
+    }
+
+    override fun internalCloneSource() = ImageSequenceSource(dirPath, pattern, fps, sourceSize, cacheBudgetMb)
+
+    override val fileFilters: FileFilter get() = FileFilters.imagesFilter
+    override val captureTimeNanos: Long get() = capTimeNanos
+
+    override fun toString() = "ImageSequenceSource(\"$dirPath\", \"$pattern\", $fps fps, $sourceSize)"
+
+}
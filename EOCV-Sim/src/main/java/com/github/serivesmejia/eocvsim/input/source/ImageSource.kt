@@ -111,6 +111,16 @@ class ImageSource @JvmOverloads constructor(
         return lastCloneTo
     }
 
+    override fun updateInto(dst: Mat): Boolean {
+        if (isPaused) return false
+
+        val img = img ?: return false
+        if (img.empty()) return false
+
+        Imgproc.cvtColor(img, dst, Imgproc.COLOR_RGB2RGBA)
+        return true
+    }
+
     override fun cleanIfDirty() {
         readImage()
     }
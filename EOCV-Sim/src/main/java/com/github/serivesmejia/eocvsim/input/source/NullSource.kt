@@ -22,6 +22,8 @@ class NullSource : InputSource() {
 
     override fun update(): Mat = emptyMat
 
+    override fun updateInto(dst: Mat) = false
+
     override fun onPause() {}
 
     override fun onResume() {}
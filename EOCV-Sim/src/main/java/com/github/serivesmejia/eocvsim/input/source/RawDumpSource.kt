@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.input.source
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.github.serivesmejia.eocvsim.input.InputSource
+import com.github.serivesmejia.eocvsim.output.RawFrameDump
+import com.github.serivesmejia.eocvsim.util.FileFilters
+import com.github.serivesmejia.eocvsim.util.fps.FpsLimiter
+import com.github.serivesmejia.eocvsim.util.fps.TimestampPacer
+import org.opencv.core.Mat
+import org.opencv.core.Size
+import org.slf4j.LoggerFactory
+import java.io.File
+import java.nio.MappedByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import javax.swing.filechooser.FileFilter
+
+/**
+ * Plays back a [RawFrameDump]. The file is memory mapped and every frame is
+ * handed out as a Mat header over the mapped region, so no decoding or copying
+ * happens here; input throughput is only bound by memory bandwidth.
+ *
+ * Files bigger than 2 GB are mapped in several segments, each holding a whole
+ * number of frames. The mapping is read only, the returned Mats must not be
+ * written to; [updateInto] copies them out before they reach any pipeline.
+ * @param filePath the raw frame dump to play back
+ * @param fps the rate at which frames are played, or 0 to follow the timestamps the frames were recorded with
+ * @param unthrottled if true, frames are handed out as fast as they are requested, for benchmarking
+ */
+@JsonAutoDetect(
+    fieldVisibility = JsonAutoDetect.Visibility.NONE,
+    getterVisibility = JsonAutoDetect.Visibility.NONE,
+    isGetterVisibility = JsonAutoDetect.Visibility.NONE,
+    setterVisibility = JsonAutoDetect.Visibility.NONE,
+    creatorVisibility = JsonAutoDetect.Visibility.NONE
+)
+class RawDumpSource @JvmOverloads constructor(
+    @field:JsonProperty @JvmField var filePath: String = "",
+    @field:JsonProperty @JvmField var fps: Double = 0.0,
+    @field:JsonProperty @JvmField var unthrottled: Boolean = false
+) : InputSource() {
+
+    @Transient private var header: RawFrameDump.Header? = null
+    @Transient var timestamps = LongArray(0)
+        private set
+
+    @Transient private var channel: FileChannel? = null
+    @Transient private var segments = arrayOf<MappedByteBuffer?>()
+    @Transient private var framesPerSegment = 1
+
+    @Transient private var frameMats = arrayOf<Mat?>()
+    @Transient private var currentIndex = 0
+    @Transient private var lastFrame: Mat? = null
+
+    @Transient private val fpsLimiter = FpsLimiter(30.0)
+    @Transient private val timestampPacer = TimestampPacer()
+
+    @Transient private var initialized = false
+
+    @Transient private var capTimeNanos = 0L
+
+    @Transient private val logger = LoggerFactory.getLogger(javaClass)
+
+    override val sourceSize get() = header?.size ?: Size()
+
+    val frameCount get() = header?.frameCount ?: 0
+
+    override fun init(): Boolean {
+        if (initialized) return false
+        initialized = true
+
+        try {
+            val channel = FileChannel.open(File(filePath).toPath(), StandardOpenOption.READ)
+            this.channel = channel
+
+            val header = RawFrameDump.readHeader(channel)
+            this.header = header
+
+            if (header.frameCount <= 0) {
+                logger.error("Raw frame dump $filePath has no frames")
+                return false
+            }
+
+            timestamps = RawFrameDump.readIndex(channel, header)
+
+            framesPerSegment = (Int.MAX_VALUE / header.frameBytes).toInt().coerceAtLeast(1)
+            segments = arrayOfNulls((header.frameCount + framesPerSegment - 1) / framesPerSegment)
+            frameMats = arrayOfNulls(header.frameCount)
+        } catch (e: Exception) {
+            logger.error("Unable to open raw frame dump $filePath", e)
+            return false
+        }
+
+        fpsLimiter.maxFPS = if (fps > 0) fps else header!!.fps.takeIf { it > 0 } ?: 30.0
+        timestampPacer.reset()
+        currentIndex = 0
+
+        logger.info("Mapped raw frame dump of ${frameCount} frames ($sourceSize) from $filePath")
+
+        return true
+    }
+
+    private fun frameMat(index: Int): Mat {
+        frameMats[index]?.let { return it }
+
+        val header = header!!
+        val segmentIndex = index / framesPerSegment
+
+        val segment = segments[segmentIndex] ?: run {
+            val firstFrame = segmentIndex * framesPerSegment
+            val framesInSegment = (header.frameCount - firstFrame).coerceAtMost(framesPerSegment)
+
+            channel!!.map(
+                FileChannel.MapMode.READ_ONLY,
+                header.frameOffset(firstFrame),
+                framesInSegment * header.frameBytes
+            ).also { segments[segmentIndex] = it }
+        }
+
+        val offset = ((index % framesPerSegment) * header.frameBytes).toInt()
+        val frameBuffer = segment.slice(offset, header.frameBytes.toInt())
+
+        return Mat(header.height, header.width, header.cvType, frameBuffer).also {
+            frameMats[index] = it
+        }
+    }
+
+    override fun update(): Mat? {
+        if (header == null) return null
+        if (isPaused) return lastFrame
+
+        if (!unthrottled) {
+            try {
+                if (fps <= 0 && timestamps.isNotEmpty()) {
+                    timestampPacer.sync(timestamps[currentIndex])
+                } else {
+                    fpsLimiter.sync()
+                }
+            } catch (_: InterruptedException) {
+                Thread.currentThread().interrupt()
+                return lastFrame
+            }
+        }
+
+        lastFrame = frameMat(currentIndex)
+        currentIndex = (currentIndex + 1) % frameCount
+
+        capTimeNanos = System.nanoTime()
+
+        return lastFrame
+    }
+
+    override val outputFormat get() = FrameFormat.RGBA
+
+    override fun onPause() {}
+
+    override fun onResume() {
+        // don't rush through the frames that would've played while paused
+        timestampPacer.reset()
+    }
+
+    override fun reset() {
+        if (!initialized) return
+        close()
+
+        currentIndex = 0
+        initialized = false
+    }
+
+    override fun close() {
+        for (mat in frameMats) {
+            mat?.release()
+        }
+        frameMats = arrayOf()
+        lastFrame = null
+
+        // mapped buffers are unmapped once they're garbage collected
+        segments = arrayOf()
+
+        channel?.close()
+        channel = null
+    }
+
+    override fun internalCloneSource() = RawDumpSource(filePath, fps, unthrottled)
+
+    override val fileFilters: FileFilter get() = FileFilters.rawFrameDumpFilter
+    override val captureTimeNanos: Long get() = capTimeNanos
+
+    override fun toString() = "RawDumpSource(\"$filePath\", ${if (unthrottled) "unthrottled" else "$fps fps"})"
+
+}
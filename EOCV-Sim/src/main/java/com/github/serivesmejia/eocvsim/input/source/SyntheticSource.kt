@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.input.source
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect
+import com.fasterxml.jackson.annotation.JsonProperty
+import com.github.serivesmejia.eocvsim.input.InputSource
+import com.github.serivesmejia.eocvsim.util.fps.FpsLimiter
+import org.firstinspires.ftc.vision.apriltag.AprilTagGameDatabase
+import org.opencv.core.CvType
+import org.opencv.core.Mat
+import org.opencv.core.Point
+import org.opencv.core.Rect
+import org.opencv.core.Scalar
+import org.opencv.core.Size
+import org.opencv.imgproc.Imgproc
+import org.slf4j.LoggerFactory
+import org.wpilib.vision.apriltag.AprilTag
+import java.util.Random
+import javax.swing.filechooser.FileFilter
+import kotlin.math.min
+
+/**
+ * Procedurally generates frames of moving colored shapes and AprilTag
+ * markers, meant to drive load tests with a reproducible frame stream.
+ *
+ * The content of every frame only depends on [seed] and the frame number,
+ * so two runs with the same parameters produce the exact same frames on any
+ * machine. Frames are drawn straight into the Mat handed by the
+ * [com.github.serivesmejia.eocvsim.input.InputSourceManager].
+ *
+ * One tag36h11 marker is drawn for each tag of [AprilTagGameDatabase.getCurrentGameTagLibrary],
+ * generated by WPILib, so an AprilTag detector decodes them to their ids.
+ * @param seed seed for the placement, motion and colors of everything drawn
+ * @param size size of the generated frames, up to [MAX_SIZE]
+ * @param fps the rate at which frames are generated, up to [MAX_FPS]
+ * @param shapeCount number of moving shapes to draw
+ * @param drawTags whether to draw the AprilTag markers
+ */
+@JsonAutoDetect(
+    fieldVisibility = JsonAutoDetect.Visibility.NONE,
+    getterVisibility = JsonAutoDetect.Visibility.NONE,
+    isGetterVisibility = JsonAutoDetect.Visibility.NONE,
+    setterVisibility = JsonAutoDetect.Visibility.NONE,
+    creatorVisibility = JsonAutoDetect.Visibility.NONE
+)
+class SyntheticSource @JvmOverloads constructor(
+    @field:JsonProperty @JvmField var seed: Long = 0,
+    @field:JsonProperty @JvmField var size: Size = Size(1280.0, 720.0),
+    @field:JsonProperty @JvmField var fps: Double = 60.0,
+    @field:JsonProperty @JvmField var shapeCount: Int = 12,
+    @field:JsonProperty @JvmField var drawTags: Boolean = true
+) : InputSource() {
+
+    companion object {
+        @JvmField val MAX_SIZE = Size(3840.0, 2160.0)
+        const val MAX_FPS = 1000.0
+
+        // tag36h11: a 6x6 payload inside a black border, inside a white border
+        private const val TAG_CELLS = 10
+
+        /**
+         * Renders the tag36h11 marker of [id] into [dst] in RGBA, one pixel per cell,
+         * white border included
+         */
+        @JvmStatic
+        fun renderTag(id: Int, dst: Mat) {
+            AprilTag.generate36h11AprilTagImage(id).use { frame ->
+                val grey = Mat(frame.height, frame.width, CvType.CV_8UC1, frame.data, frame.stride.toLong())
+
+                Imgproc.cvtColor(grey, dst, Imgproc.COLOR_GRAY2RGBA)
+                grey.release()
+            }
+        }
+
+        /**
+         * Position at [frame] of something starting at [start] and moving [velocity]
+         * per frame, bouncing back and forth between 0 and [range]
+         */
+        private fun bounce(start: Double, velocity: Double, frame: Long, range: Double): Double {
+            if (range <= 0) return 0.0
+
+            val period = range * 2
+            val travelled = ((start + velocity * frame) % period + period) % period
+
+            return if (travelled > range) period - travelled else travelled
+        }
+    }
+
+    private class Shape(
+        val x: Double, val y: Double,
+        val vx: Double, val vy: Double,
+        val radius: Double,
+        val color: Scalar,
+        val isCircle: Boolean
+    )
+
+    private class Tag(
+        val marker: Mat,
+        val x: Double, val y: Double,
+        val vx: Double, val vy: Double,
+        val side: Int
+    )
+
+    @Transient private var shapes = listOf<Shape>()
+    @Transient private var tags = listOf<Tag>()
+    @Transient private var background = Scalar(0.0)
+
+    @Transient private var frameSize = Size()
+    @Transient private var frameNumber = 0L
+
+    @Transient private var lastFrame: Mat? = null
+
+    @Transient private val fpsLimiter = FpsLimiter(30.0)
+
+    @Transient private var initialized = false
+
+    @Transient private var capTimeNanos = 0L
+
+    @Transient private val logger = LoggerFactory.getLogger(javaClass)
+
+    override val sourceSize get() = frameSize
+
+    override fun init(): Boolean {
+        if (initialized) return false
+        initialized = true
+
+        frameSize = Size(
+            size.width.coerceIn(1.0, MAX_SIZE.width),
+            size.height.coerceIn(1.0, MAX_SIZE.height)
+        )
+        fpsLimiter.maxFPS = fps.coerceIn(1.0, MAX_FPS)
+
+        val random = Random(seed)
+        val width = frameSize.width
+        val height = frameSize.height
+        val scale = min(width, height)
+
+        // velocities are per frame, in fractions of the frame so that the
+        // motion looks the same at any resolution
+        shapes = List(shapeCount.coerceAtLeast(0)) {
+            Shape(
+                random.nextDouble() * width, random.nextDouble() * height,
+                (random.nextDouble() - 0.5) * scale * 0.02, (random.nextDouble() - 0.5) * scale * 0.02,
+                scale * (0.02 + random.nextDouble() * 0.06),
+                Scalar(random.nextInt(256).toDouble(), random.nextInt(256).toDouble(), random.nextInt(256).toDouble(), 255.0),
+                random.nextBoolean()
+            )
+        }
+
+        tags = if (drawTags && scale >= TAG_CELLS) {
+            AprilTagGameDatabase.getCurrentGameTagLibrary().allTags.map {
+                val side = (scale * (0.1 + random.nextDouble() * 0.1)).toInt().coerceAtLeast(TAG_CELLS)
+
+                Tag(
+                    Mat().also { marker -> renderTag(it.id, marker) },
+                    random.nextDouble() * (width - side), random.nextDouble() * (height - side),
+                    (random.nextDouble() - 0.5) * scale * 0.01, (random.nextDouble() - 0.5) * scale * 0.01,
+                    side
+                )
+            }
+        } else listOf()
+
+        background = Scalar(
+            32 + random.nextInt(64).toDouble(), 32 + random.nextInt(64).toDouble(), 32 + random.nextInt(64).toDouble(), 255.0
+        )
+
+        frameNumber = 0
+
+        logger.info("Generating $frameSize frames at ${fpsLimiter.maxFPS} fps, seed $seed, ${shapes.size} shapes and ${tags.size} tags")
+
+        return true
+    }
+
+    /**
+     * Draws frame number [frame] into [dst]
+     */
+    fun render(frame: Long, dst: Mat) {
+        dst.create(frameSize.height.toInt(), frameSize.width.toInt(), CvType.CV_8UC4)
+        dst.setTo(background)
+
+        val width = frameSize.width
+        val height = frameSize.height
+
+        for (shape in shapes) {
+            val center = Point(
+                bounce(shape.x, shape.vx, frame, width),
+                bounce(shape.y, shape.vy, frame, height)
+            )
+
+            if (shape.isCircle) {
+                Imgproc.circle(dst, center, shape.radius.toInt(), shape.color, -1, Imgproc.LINE_AA)
+            } else {
+                Imgproc.rectangle(
+                    dst,
+                    Point(center.x - shape.radius, center.y - shape.radius),
+                    Point(center.x + shape.radius, center.y + shape.radius),
+                    shape.color, -1
+                )
+            }
+        }
+
+        for (tag in tags) {
+            val x = bounce(tag.x, tag.vx, frame, width - tag.side).toInt()
+            val y = bounce(tag.y, tag.vy, frame, height - tag.side).toInt()
+
+            val roi = dst.submat(Rect(x, y, tag.side, tag.side))
+            Imgproc.resize(tag.marker, roi, roi.size(), 0.0, 0.0, Imgproc.INTER_NEAREST)
+            roi.release()
+        }
+
+        Imgproc.putText(
+            dst, "#$frame", Point(8.0, 8.0 + height * 0.04),
+            Imgproc.FONT_HERSHEY_SIMPLEX, height * 0.0015, Scalar(255.0, 255.0, 255.0, 255.0), 2
+        )
+    }
+
+    private fun nextFrameInto(dst: Mat): Boolean {
+        if (!initialized || isPaused) return false
+
+        try {
+            fpsLimiter.sync()
+        } catch (_: InterruptedException) {
+            Thread.currentThread().interrupt()
+            return false
+        }
+
+        render(frameNumber++, dst)
+        capTimeNanos = System.nanoTime()
+
+        return true
+    }
+
+    override fun update(): Mat? {
+        val frame = lastFrame ?: Mat().also { lastFrame = it }
+
+        nextFrameInto(frame)
+        return frame.takeIf { !it.empty() }
+    }
+
+    override fun updateInto(dst: Mat) = nextFrameInto(dst)
+
+    override val outputFormat get() = FrameFormat.RGBA
+
+    override fun onPause() {}
+
+    override fun onResume() {}
+
+    override fun reset() {
+        if (!initialized) return
+        close()
+
+        initialized = false
+    }
+
+    override fun close() {
+        for (tag in tags) {
+            tag.marker.release()
+        }
+        tags = listOf()
+        shapes = listOf()
+
+        lastFrame?.release()
+        lastFrame = null
+    }
+
+    override fun internalCloneSource() = SyntheticSource(seed, size.clone(), fps, shapeCount, drawTags)
+
+    override val fileFilters: FileFilter? get() = null
+    override val captureTimeNanos: Long get() = capTimeNanos
+
+    override fun toString() = "SyntheticSource(seed $seed, ${size.width.toInt()}x${size.height.toInt()}, $fps fps)"
+
+}
@@ -44,6 +44,9 @@ class VideoSource @JvmOverloads constructor(
 
     @Transient private var matRecycler: MatRecycler? = null
 
+    @Transient private val rawFrame = Mat()
+    @Transient private val resizedFrame = Mat()
+
     @Transient private var lastFramePosition = 0.0
 
     @Transient private var capTimeNanos: Long = 0
@@ -102,6 +105,9 @@ class VideoSource @JvmOverloads constructor(
         if (video?.isOpened == true) video!!.release()
         if (lastFrame?.isCheckedOut == true) lastFrame!!.returnMat()
 
+        rawFrame.release()
+        resizedFrame.release()
+
         lastFramePaused?.let {
             it.returnMat()
             lastFramePaused = null
@@ -148,6 +154,40 @@ class VideoSource @JvmOverloads constructor(
         return lastFrame
     }
 
+    override fun updateInto(dst: Mat): Boolean {
+        // nothing consumes frames while paused, the last one stays around
+        if (isPaused) return false
+
+        try {
+            fpsLimiter.sync()
+        } catch (_: InterruptedException) {
+            Thread.currentThread().interrupt()
+        }
+
+        val video = video ?: return false
+
+        video.read(rawFrame)
+        capTimeNanos = System.nanoTime()
+
+        if (rawFrame.empty()) {
+            reset()
+            init()
+            return false
+        }
+
+        if (sourceSize.area() == 0.0) size = rawFrame.size()
+
+        // resize while we still have 3 channels, then convert straight into dst
+        var frame = rawFrame
+        if (rawFrame.size() != sourceSize) {
+            Imgproc.resize(rawFrame, resizedFrame, sourceSize, 0.0, 0.0, Imgproc.INTER_AREA)
+            frame = resizedFrame
+        }
+
+        Imgproc.cvtColor(frame, dst, Imgproc.COLOR_BGR2RGBA)
+        return true
+    }
+
     override fun onPause() {
         lastFrame?.release()
 
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.output
+
+import com.github.serivesmejia.eocvsim.util.jfr.RecordingWriteEvent
+import org.deltacv.common.image.MatPoster
+import org.deltacv.common.util.loggerForThis
+import org.opencv.core.Mat
+import org.opencv.core.MatOfInt
+import org.opencv.imgcodecs.Imgcodecs
+import org.opencv.imgproc.Imgproc
+import org.openftc.easyopencv.MatRecycler
+import java.io.BufferedWriter
+import java.io.File
+import java.io.IOException
+import java.time.LocalDateTime
+import java.time.format.DateTimeFormatter
+import java.util.Properties
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+
+/**
+ * Records frame streams losslessly into a dataset directory, so that they can
+ * be replayed as bit-exact regression inputs.
+ *
+ * Every stream (e.g. "input" and "output") is stored separately, either as
+ * - [Format.PNG]: one PNG per frame inside `<stream>/`, plus an [INDEX_FILE]
+ *   with the timestamp and metadata of every frame. Replayable with an
+ *   image sequence source.
+ * - [Format.RAW]: a `<stream>.eocvraw` [RawFrameDump], replayable with a raw dump source.
+ *
+ * Posting copies the frame into a Mat of the [RecordingPool] and hands it to the
+ * pool's workers, shared by all streams, which do the compression. When the pool
+ * runs out of Mats the frame is dropped and counted, posting never blocks.
+ *
+ * Frames posted with a [FrameStamp] are numbered and timestamped by their sequence
+ * number, so the frames of every stream that come from the same input frame share
+ * the same number. Frames posted again with a number that was already recorded are ignored.
+ * @param parentDir directory in which a new, timestamped dataset directory is created
+ * @param pool pool writing the frames, if null the session creates its own and shuts it down when stopped
+ */
+class LosslessRecordingSession @JvmOverloads constructor(
+    parentDir: File,
+    val format: Format = Format.PNG,
+    pool: RecordingPool? = null
+) {
+
+    companion object {
+        const val INDEX_FILE = "frames.tsv"
+        const val METADATA_FILE = "dataset.properties"
+
+        private const val STOP_TIMEOUT_MILLIS = 30_000L
+
+        // favors speed, higher levels barely shrink camera footage further
+        private const val PNG_COMPRESSION = 1
+
+        private val dirNameFormatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+
+        /**
+         * Reads the [INDEX_FILE] of a PNG stream directory, if there's one
+         * @return the recorded timestamp of every frame in nanoseconds, by file name
+         */
+        fun readIndex(streamDir: File): Map<String, Long> {
+            val index = File(streamDir, INDEX_FILE)
+            if (!index.isFile) return emptyMap()
+
+            val timestamps = HashMap<String, Long>()
+
+            index.forEachLine { line ->
+                if (line.startsWith("#") || line.isBlank()) return@forEachLine
+
+                val columns = line.split('\t')
+                if (columns.size < 6) return@forEachLine
+
+                columns[1].toLongOrNull()?.let { timestamps[columns[5]] = it }
+            }
+
+            return timestamps
+        }
+    }
+
+    enum class Format { PNG, RAW }
+
+    private val logger by loggerForThis()
+
+    val dir = File(parentDir, "dataset-${LocalDateTime.now().format(dirNameFormatter)}")
+
+    private val ownsPool = pool == null
+    private val pool = pool ?: RecordingPool()
+
+    private val sequenceTimestamps = SequenceTimestamps()
+
+    private val streams = ConcurrentHashMap<String, Stream>()
+
+    private val pngParams = MatOfInt(Imgcodecs.IMWRITE_PNG_COMPRESSION, PNG_COMPRESSION)
+
+    val startNanos = System.nanoTime()
+
+    @Volatile var hasStopped = false
+        private set
+
+    init {
+        if (!dir.mkdirs()) {
+            throw IOException("Unable to create dataset directory ${dir.absolutePath}")
+        }
+    }
+
+    /**
+     * Gets the stream with the given name, creating it if needed.
+     * Frames posted to it are recorded under that name.
+     */
+    fun stream(name: String): Stream = streams.computeIfAbsent(name) { Stream(it) }
+
+    val allStreams: Collection<Stream> get() = streams.values
+
+    /**
+     * Waits for every queued frame to be written and finishes all the streams
+     */
+    @Synchronized fun stop() {
+        if (hasStopped) return
+        hasStopped = true
+
+        val metadata = Properties()
+        metadata["format"] = format.name
+        metadata["streams"] = streams.keys.joinToString(",")
+
+        for (stream in streams.values) {
+            if (!stream.tasks.awaitIdle(STOP_TIMEOUT_MILLIS)) {
+                logger.warn("Timed out waiting for the queued frames of stream ${stream.name} to be written")
+            }
+
+            try {
+                stream.finish()
+            } catch (e: Exception) {
+                logger.error("Error while finishing stream ${stream.name}", e)
+            }
+
+            metadata["${stream.name}.frames"] = stream.written.toString()
+            metadata["${stream.name}.dropped"] = stream.dropped.toString()
+
+            logger.info("Stream ${stream.name} finished, $stream")
+        }
+
+        File(dir, METADATA_FILE).outputStream().use {
+            metadata.store(it, "Lossless recording dataset")
+        }
+
+        if (ownsPool) pool.shutdown()
+        pngParams.release()
+
+        logger.info("Lossless recording saved to ${dir.absolutePath}")
+    }
+
+    inner class Stream(val name: String) : MatPoster {
+
+        // RAW frames are appended to a single file, so they need to be written in order
+        internal val tasks = pool.tasks(ordered = format == Format.RAW)
+
+        private val sequence = AtomicLong()
+        private val lastStampedSequence = AtomicLong(-1)
+
+        private val postedCount = AtomicLong()
+        private val droppedCount = AtomicLong()
+        private val writtenCount = AtomicLong()
+
+        val posted get() = postedCount.get()
+        val dropped get() = droppedCount.get()
+        val written get() = writtenCount.get()
+
+        // PNG
+        private val streamDir = File(dir, name)
+        private var indexWriter: BufferedWriter? = null
+
+        // RAW
+        private var rawWriter: RawFrameDumpWriter? = null
+
+        init {
+            if (format == Format.PNG) {
+                streamDir.mkdirs()
+
+                indexWriter = File(streamDir, INDEX_FILE).bufferedWriter().apply {
+                    write("# sequence\ttimestampNanos\twidth\theight\tcvType\tfile")
+                    newLine()
+                }
+            }
+        }
+
+        /**
+         * Queues a copy of [m] to be written. If [context] is a [FrameStamp] the frame is
+         * numbered and timestamped by its sequence number, otherwise frames are numbered
+         * in posting order and timestamped with the current time.
+         */
+        override fun post(m: Mat, context: Any?) {
+            if (hasStopped || m.empty()) return
+
+            val stamp = context as? FrameStamp
+
+            if (stamp != null) {
+                val last = lastStampedSequence.get()
+                if (stamp.sequence <= last || !lastStampedSequence.compareAndSet(last, stamp.sequence)) return
+            }
+
+            val seq = stamp?.sequence ?: sequence.getAndIncrement()
+            val timestamp = (stamp?.let { sequenceTimestamps.timestampOf(it) } ?: System.nanoTime()) - startNanos
+
+            postedCount.incrementAndGet()
+
+            val frame = pool.copyOf(m)
+            if (frame == null) {
+                droppedCount.incrementAndGet()
+                return
+            }
+
+            val queued = tasks.execute {
+                val event = RecordingWriteEvent()
+                event.begin()
+
+                when (format) {
+                    Format.PNG -> writePng(frame, seq, timestamp)
+                    Format.RAW -> writeRaw(frame, timestamp)
+                }
+
+                if (event.shouldCommit()) {
+                    event.recording = "lossless"
+                    event.stream = name
+                    event.sequence = seq
+                    event.commit()
+                }
+            }
+
+            if (!queued) {
+                frame.returnMat()
+                droppedCount.incrementAndGet()
+            }
+        }
+
+        private fun writePng(frame: MatRecycler.RecyclableMat, seq: Long, timestamp: Long) {
+            try {
+                // pipelines work in RGB(A), imwrite expects BGR(A)
+                when (frame.channels()) {
+                    4 -> Imgproc.cvtColor(frame, frame, Imgproc.COLOR_RGBA2BGRA)
+                    3 -> Imgproc.cvtColor(frame, frame, Imgproc.COLOR_RGB2BGR)
+                }
+
+                val fileName = "%08d.png".format(seq)
+
+                if (!Imgcodecs.imwrite(File(streamDir, fileName).absolutePath, frame, pngParams)) {
+                    logger.warn("Unable to write frame $seq of stream $name")
+                    return
+                }
+
+                synchronized(this) {
+                    indexWriter?.apply {
+                        write("$seq\t$timestamp\t${frame.width()}\t${frame.height()}\t${frame.type()}\t$fileName")
+                        newLine()
+                    }
+                }
+
+                writtenCount.incrementAndGet()
+            } catch (e: Exception) {
+                logger.error("Error while writing frame $seq of stream $name", e)
+            } finally {
+                frame.returnMat()
+            }
+        }
+
+        private fun writeRaw(frame: MatRecycler.RecyclableMat, timestamp: Long) {
+            try {
+                val writer = rawWriter ?: RawFrameDumpWriter(
+                    File(dir, "$name.${RawFrameDump.EXTENSION}"), frame.width(), frame.height()
+                ).also { rawWriter = it }
+
+                writer.writeFrame(frame, timestamp)
+                writtenCount.incrementAndGet()
+            } catch (e: Exception) {
+                logger.error("Error while writing raw frame of stream $name", e)
+            } finally {
+                frame.returnMat()
+            }
+        }
+
+        @Synchronized internal fun finish() {
+            indexWriter?.close()
+            indexWriter = null
+
+            rawWriter?.close()
+            rawWriter = null
+        }
+
+        override fun toString() = "Stream($name, posted=$posted, written=$written, dropped=$dropped)"
+
+    }
+
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.output
+
+import org.opencv.core.CvType
+import org.opencv.core.Mat
+import org.opencv.core.Size
+import org.opencv.imgproc.Imgproc
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+
+/**
+ * Raw frame dump container. Frames are stored uncompressed, all with the
+ * same size and type, so that they can be memory mapped and used as Mat
+ * headers directly, without any decoding step.
+ *
+ * Layout (little endian):
+ * - a [HEADER_SIZE] bytes header, see [Header]
+ * - `frameCount` frames of `frameBytes` bytes each, back to back
+ * - the frame index, one long per frame with its capture timestamp in
+ *   nanoseconds, relative to the first frame
+ */
+object RawFrameDump {
+
+    const val EXTENSION = "eocvraw"
+
+    const val VERSION = 1
+    const val HEADER_SIZE = 64
+
+    private val MAGIC = "EOCVRAW\u0000".toByteArray(Charsets.US_ASCII)
+
+    data class Header(
+        val width: Int,
+        val height: Int,
+        val cvType: Int,
+        val frameCount: Int,
+        val frameBytes: Long,
+        val indexOffset: Long,
+        val fps: Double
+    ) {
+        val size get() = Size(width.toDouble(), height.toDouble())
+
+        fun frameOffset(index: Int) = HEADER_SIZE + index.toLong() * frameBytes
+    }
+
+    fun writeHeader(header: Header): ByteBuffer {
+        val buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+
+        buffer.put(MAGIC)
+        buffer.putInt(VERSION)
+        buffer.putInt(header.width)
+        buffer.putInt(header.height)
+        buffer.putInt(header.cvType)
+        buffer.putInt(header.frameCount)
+        buffer.putInt(0) // reserved
+        buffer.putLong(header.frameBytes)
+        buffer.putLong(header.indexOffset)
+        buffer.putDouble(header.fps)
+
+        buffer.rewind()
+        return buffer
+    }
+
+    @Throws(IOException::class)
+    fun readHeader(channel: FileChannel): Header {
+        val buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position().toLong()) < 0) {
+                throw IOException("Raw frame dump is truncated, missing header")
+            }
+        }
+        buffer.flip()
+
+        val magic = ByteArray(MAGIC.size)
+        buffer.get(magic)
+
+        if (!magic.contentEquals(MAGIC)) {
+            throw IOException("Not a raw frame dump, bad magic")
+        }
+
+        val version = buffer.getInt()
+        if (version != VERSION) {
+            throw IOException("Unsupported raw frame dump version $version")
+        }
+
+        val width = buffer.getInt()
+        val height = buffer.getInt()
+        val cvType = buffer.getInt()
+        val frameCount = buffer.getInt()
+        buffer.getInt() // reserved
+
+        return Header(width, height, cvType, frameCount, buffer.getLong(), buffer.getLong(), buffer.getDouble())
+    }
+
+    @Throws(IOException::class)
+    fun readIndex(channel: FileChannel, header: Header): LongArray {
+        val buffer = ByteBuffer.allocate(header.frameCount * 8).order(ByteOrder.LITTLE_ENDIAN)
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, header.indexOffset + buffer.position()) < 0) {
+                throw IOException("Raw frame dump is truncated, missing frame index")
+            }
+        }
+        buffer.flip()
+
+        return LongArray(header.frameCount) { buffer.getLong() }
+    }
+
+}
+
+/**
+ * Writes frames into a [RawFrameDump] file. Every frame is converted to RGBA
+ * and resized to the dump size if needed, straight into a direct buffer that
+ * is then written to the file.
+ *
+ * The header and the frame index are only written once [close] is called,
+ * a dump that wasn't closed is not readable.
+ * @param fps the rate stored in the header, or 0 to derive it from the frame timestamps
+ */
+class RawFrameDumpWriter(
+    val file: File,
+    val width: Int,
+    val height: Int,
+    val fps: Double = 0.0
+) : AutoCloseable {
+
+    val frameBytes = width.toLong() * height * 4
+
+    private val channel = FileChannel.open(
+        file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+    )
+
+    private val frameBuffer = ByteBuffer.allocateDirect(frameBytes.toInt())
+    private val frameMat = Mat(height, width, CvType.CV_8UC4, frameBuffer)
+    private val resizedMat = Mat()
+
+    private var timestamps = LongArray(256)
+    private var firstTimestamp = 0L
+
+    var frameCount = 0
+        private set
+
+    var isClosed = false
+        private set
+
+    @Synchronized
+    fun writeFrame(mat: Mat, timestampNanos: Long = System.nanoTime()) {
+        if (isClosed) return
+
+        var src = mat
+        if (mat.width() != width || mat.height() != height) {
+            Imgproc.resize(mat, resizedMat, frameMat.size(), 0.0, 0.0, Imgproc.INTER_AREA)
+            src = resizedMat
+        }
+
+        when (src.channels()) {
+            4 -> src.copyTo(frameMat)
+            3 -> Imgproc.cvtColor(src, frameMat, Imgproc.COLOR_RGB2RGBA)
+            1 -> Imgproc.cvtColor(src, frameMat, Imgproc.COLOR_GRAY2RGBA)
+            else -> throw IllegalArgumentException("Unsupported number of channels ${src.channels()}")
+        }
+
+        val position = RawFrameDump.HEADER_SIZE + frameCount * frameBytes
+
+        frameBuffer.clear()
+        while (frameBuffer.hasRemaining()) {
+            channel.write(frameBuffer, position + frameBuffer.position())
+        }
+
+        if (frameCount == 0) firstTimestamp = timestampNanos
+        if (frameCount == timestamps.size) timestamps = timestamps.copyOf(timestamps.size * 2)
+
+        timestamps[frameCount] = timestampNanos - firstTimestamp
+        frameCount++
+    }
+
+    @Synchronized
+    override fun close() {
+        if (isClosed) return
+        isClosed = true
+
+        try {
+            val indexOffset = RawFrameDump.HEADER_SIZE + frameCount * frameBytes
+
+            val index = ByteBuffer.allocate(frameCount * 8).order(ByteOrder.LITTLE_ENDIAN)
+            for (i in 0 until frameCount) {
+                index.putLong(timestamps[i])
+            }
+            index.flip()
+
+            while (index.hasRemaining()) {
+                channel.write(index, indexOffset + index.position())
+            }
+
+            val headerFps = if (fps <= 0 && frameCount > 1 && timestamps[frameCount - 1] > 0) {
+                (frameCount - 1) / (timestamps[frameCount - 1] / 1_000_000_000.0)
+            } else fps
+
+            val header = RawFrameDump.writeHeader(
+                RawFrameDump.Header(width, height, CvType.CV_8UC4, frameCount, frameBytes, indexOffset, headerFps)
+            )
+
+            while (header.hasRemaining()) {
+                channel.write(header, header.position().toLong())
+            }
+
+            channel.force(true)
+        } finally {
+            channel.close()
+            frameMat.release()
+            resizedMat.release()
+        }
+    }
+
+}
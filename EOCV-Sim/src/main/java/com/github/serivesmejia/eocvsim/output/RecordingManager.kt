@@ -8,43 +8,111 @@ package com.github.serivesmejia.eocvsim.output
 import com.github.serivesmejia.eocvsim.config.ConfigManager
 import com.github.serivesmejia.eocvsim.gui.DialogFactory
 import com.github.serivesmejia.eocvsim.gui.Visualizer
+import com.github.serivesmejia.eocvsim.input.InputSourceManager
 import com.github.serivesmejia.eocvsim.pipeline.PipelineManager
 import com.github.serivesmejia.eocvsim.util.FileFilters
 import com.github.serivesmejia.eocvsim.util.SysUtil
 import com.github.serivesmejia.eocvsim.util.event.EventHandler
+import com.github.serivesmejia.eocvsim.util.event.EventListenerId
+import org.deltacv.common.image.MatPoster
 import org.deltacv.common.util.loggerForThis
+import org.firstinspires.ftc.robotcore.internal.opmode.EOCVSimTelemetryImpl
+import org.firstinspires.ftc.robotcore.internal.opmode.TelemetryTransmissionReceiver
 import org.koin.core.component.KoinComponent
 import org.koin.core.component.inject
 import org.koin.core.qualifier.named
+import org.opencv.core.Mat
 import java.io.File
+import java.io.IOException
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicLong
 import javax.swing.filechooser.FileFilter
+import kotlin.concurrent.thread
 
 class RecordingManager : KoinComponent {
 
+    companion object {
+        private const val RAW_DUMP_STOP_TIMEOUT_MILLIS = 30_000L
+    }
+
     val configManager: ConfigManager by inject()
     val pipelineManager: PipelineManager by inject()
+    val inputSourceManager: InputSourceManager by inject()
     val visualizer: Visualizer by inject()
     val dialogFactory: DialogFactory by inject()
     val onMainUpdate: EventHandler by inject(named("onMainLoop"))
 
     private val logger by loggerForThis()
 
+    /**
+     * Encodes the frames of every stream being recorded, the video recording
+     * and the lossless recording share its workers and Mats
+     */
+    val recordingPool by lazy { RecordingPool() }
+
     var currentRecordingSession: VideoRecordingSession? = null
         private set
 
+    private var videoOutputPoster: MatPoster? = null
+    private var videoInputListenerId: EventListenerId? = null
+
+    var currentRawDump: RawFrameDumpWriter? = null
+        private set
+
+    private var rawDumpListenerId: EventListenerId? = null
+    private var rawDumpTasks: RecordingPool.Tasks? = null
+    private val rawDumpDropped = AtomicLong()
+
+    var currentLosslessRecording: LosslessRecordingSession? = null
+        private set
+
+    private var losslessListenerId: EventListenerId? = null
+    private var losslessOutputPoster: MatPoster? = null
+
+    var currentTelemetryLog: TelemetryLogWriter? = null
+        private set
+
+    private var telemetryLogListenerId: EventListenerId? = null
+    private var loggedTelemetry: EOCVSimTelemetryImpl? = null
+
+    var currentTelemetryPlayer: TelemetryLogPlayer? = null
+        private set
+
     fun isCurrentlyRecording() = currentRecordingSession != null
 
+    fun isCurrentlyDumpingRaw() = rawDumpListenerId != null
+
+    fun isCurrentlyRecordingLossless() = currentLosslessRecording != null
+
+    fun isCurrentlyLoggingTelemetry() = currentTelemetryLog != null
+
     fun startRecordingSession() {
         if (currentRecordingSession == null) {
-            currentRecordingSession = VideoRecordingSession(
-                configManager.config.videoRecordingFps.fps.toDouble(), configManager.config.videoRecordingSize
+            val config = configManager.config
+
+            val session = VideoRecordingSession(
+                config.videoRecordingFps.fps.toDouble(), config.videoRecordingSize,
+                recordingDir = recordingDirectory(),
+                segmentSeconds = config.videoRecordingSegmentSeconds,
+                segmentBytes = config.videoRecordingSegmentMb * 1024L * 1024L,
+                pool = recordingPool
             )
 
-            currentRecordingSession!!.startRecordingSession()
+            session.startRecordingSession()
+            currentRecordingSession = session
 
-            logger.info("Recording session started")
+            if (config.videoRecordingIncludeInput) {
+                val inputStream = session.stream("input")
+                videoInputListenerId = onNewSourceFrame { mat, stamp -> inputStream.post(mat, stamp) }
+            }
+
+            // the viewport hands its output posters the frame along with the drawing of the
+            // pipeline's onDrawFrame, rendered at the source resolution
+            videoOutputPoster = PipelineStreamPoster(session.stream("output")).also {
+                visualizer.viewport.attachOutputPoster(it)
+            }
 
-            pipelineManager.pipelineOutputPosters.add(currentRecordingSession!!.matPoster)
+            logger.info("Recording session started")
         }
     }
 
@@ -52,10 +120,15 @@ class RecordingManager : KoinComponent {
         currentRecordingSession?.let { itVideo ->
             visualizer.pipelineSelectorPanel.buttonsPanel.pipelineRecordBtt.isEnabled = false
 
+            videoOutputPoster?.let { visualizer.viewport.detachOutputPoster(it) }
+            videoOutputPoster = null
+
+            videoInputListenerId?.let { onMainUpdate.removeListener(it) }
+            videoInputListenerId = null
+
             itVideo.stopRecordingSession()
-            pipelineManager.pipelineOutputPosters.remove(itVideo.matPoster)
 
-            logger.info("Recording session stopped")
+            logger.info("Recording session stopped, ${itVideo.droppedFrames} of ${itVideo.postedFrames} frames dropped")
 
             dialogFactory.createFileChooser(
                 visualizer.frame, DialogFactory.FileChooser.Mode.SAVE_FILE_SELECT, "", FileFilters.recordedVideoFilter
@@ -68,8 +141,10 @@ class RecordingManager : KoinComponent {
                             correctedFile = File(file.absolutePath + ".avi")
                         }
 
-
-                        itVideo.saveTo(correctedFile)
+                        configManager.config.videoRecordingLastSaveDirectory = correctedFile.absoluteFile.parent ?: ""
+                        saveRecording(itVideo, correctedFile)
+                    } else {
+                        itVideo.discardVideo()
                     }
 
                     visualizer.pipelineSelectorPanel.buttonsPanel.pipelineRecordBtt.isEnabled = true
@@ -79,5 +154,332 @@ class RecordingManager : KoinComponent {
         }
     }
 
+    /**
+     * Directory recordings are written into until they're saved: the configured one, or else
+     * the one the last recording was saved to, since recordings usually end up next to each
+     * other and that makes saving a rename. The temp directory if there's neither.
+     */
+    private fun recordingDirectory(): File? {
+        val config = configManager.config
+
+        if (config.videoRecordingDirectory.isNotBlank()) {
+            return File(config.videoRecordingDirectory)
+        }
+
+        return config.videoRecordingLastSaveDirectory.takeIf { it.isNotBlank() }
+            ?.let { File(it) }
+            ?.takeIf { it.isDirectory && it.canWrite() }
+    }
+
+    /**
+     * Moves the recording to its destination. That's a rename when the recording
+     * directory is on the same filesystem, otherwise the copy happens off the main loop.
+     */
+    private fun saveRecording(session: VideoRecordingSession, file: File) {
+        thread(name = "RecordingManager-Save", isDaemon = true) {
+            try {
+                val files = session.saveTo(file, configManager.config.videoRecordingIoBufferKb * 1024)
+                logger.info("Recording saved to ${files.joinToString { it.absolutePath }}")
+            } catch (e: Exception) {
+                logger.error("Unable to save recording to ${file.absolutePath}", e)
+            }
+        }
+    }
+
+    /**
+     * Starts dumping every new frame coming out of the current input source into
+     * a [RawFrameDump] file, which can then be played back with a RawDumpSource.
+     * The dump takes the size of the first frame, later frames are resized to it.
+     * Frames are copied into the [recordingPool] and written by its workers, in order,
+     * frames are dropped when all of its Mats are waiting to be written.
+     * Must be called from the main loop.
+     */
+    fun startRawDump(file: File) {
+        if (rawDumpListenerId != null) return
+
+        val dumpFile = if (file.extension != RawFrameDump.EXTENSION) {
+            File(file.absolutePath + "." + RawFrameDump.EXTENSION)
+        } else file
+
+        // frames are appended to a single file, so they need to be written in order
+        val tasks = recordingPool.tasks(ordered = true)
+        rawDumpTasks = tasks
+        rawDumpDropped.set(0)
+
+        val failed = AtomicBoolean(false)
+
+        rawDumpListenerId = onNewSourceFrame { mat, stamp ->
+            val writer = currentRawDump ?: try {
+                RawFrameDumpWriter(dumpFile, mat.width(), mat.height()).also {
+                    currentRawDump = it
+                    logger.info("Raw frame dump started at ${dumpFile.absolutePath} (${mat.width()}x${mat.height()})")
+                }
+            } catch (e: IOException) {
+                logger.error("Unable to start raw frame dump", e)
+                stopRawDump()
+                return@onNewSourceFrame
+            }
+
+            val frame = recordingPool.copyOf(mat)
+            if (frame == null) {
+                rawDumpDropped.incrementAndGet()
+                return@onNewSourceFrame
+            }
+
+            val queued = tasks.execute {
+                try {
+                    if (!failed.get()) writer.writeFrame(frame, stamp.timestampNanos)
+                } catch (e: Exception) {
+                    if (failed.compareAndSet(false, true)) {
+                        logger.error("Error while writing raw frame dump, stopping", e)
+                        onMainUpdate.once { if (currentRawDump === writer) stopRawDump() }
+                    }
+                } finally {
+                    frame.returnMat()
+                }
+            }
+
+            if (!queued) {
+                frame.returnMat()
+                rawDumpDropped.incrementAndGet()
+            }
+        }
+    }
+
+    /**
+     * Stops the current raw dump, writing its header and frame index once the queued
+     * frames are written, in the background unless [blocking] is true.
+     * Must be called from the main loop.
+     */
+    fun stopRawDump(blocking: Boolean = false) {
+        rawDumpListenerId?.let { onMainUpdate.removeListener(it) }
+        rawDumpListenerId = null
+
+        val tasks = rawDumpTasks
+        rawDumpTasks = null
+
+        val writer = currentRawDump ?: return
+        currentRawDump = null
+
+        val dropped = rawDumpDropped.get()
+
+        val close = thread(name = "RecordingManager-RawDumpClose", isDaemon = true) {
+            if (tasks != null && !tasks.awaitIdle(RAW_DUMP_STOP_TIMEOUT_MILLIS)) {
+                logger.warn("Timed out waiting for the queued frames of the raw frame dump to be written")
+            }
+
+            try {
+                writer.close()
+                logger.info(
+                    "Raw frame dump stopped, ${writer.frameCount} frames written to ${writer.file.absolutePath} " +
+                            "($dropped dropped)"
+                )
+            } catch (e: Exception) {
+                logger.error("Error while finishing raw frame dump", e)
+            }
+        }
+
+        if (blocking) close.join()
+    }
+
+    /**
+     * Starts recording the input source frames and the pipeline output frames
+     * losslessly, into a new dataset directory inside [parentDir].
+     * Must be called from the main loop.
+     */
+    fun startLosslessRecording(parentDir: File) {
+        if (currentLosslessRecording != null) return
+
+        val session = try {
+            LosslessRecordingSession(parentDir, configManager.config.losslessRecordingFormat, recordingPool)
+        } catch (e: IOException) {
+            logger.error("Unable to start lossless recording", e)
+            return
+        }
+
+        val inputStream = session.stream("input")
+
+        losslessListenerId = onNewSourceFrame { mat, stamp -> inputStream.post(mat, stamp) }
+
+        losslessOutputPoster = PipelineStreamPoster(session.stream("output")).also {
+            visualizer.viewport.attachOutputPoster(it)
+        }
+
+        currentLosslessRecording = session
+
+        logger.info("Lossless recording started at ${session.dir.absolutePath} (${session.format})")
+    }
+
+    /**
+     * Stops the current lossless recording, the queued frames are written in the
+     * background unless [blocking] is true. Must be called from the main loop.
+     */
+    fun stopLosslessRecording(blocking: Boolean = false) {
+        val session = currentLosslessRecording ?: return
+
+        losslessListenerId?.let { onMainUpdate.removeListener(it) }
+        losslessListenerId = null
+
+        losslessOutputPoster?.let { visualizer.viewport.detachOutputPoster(it) }
+        losslessOutputPoster = null
+
+        currentLosslessRecording = null
+
+        val stop = thread(name = "RecordingManager-LosslessStop", isDaemon = true) {
+            try {
+                session.stop()
+            } catch (e: Exception) {
+                logger.error("Error while finishing lossless recording", e)
+            }
+        }
+
+        if (blocking) stop.join()
+    }
+
+    /**
+     * Starts logging every update of the current pipeline's telemetry, and of the ones
+     * of the pipelines selected afterwards, into a [TelemetryLog] file. Each entry gets
+     * the sequence number of the frame the pipeline was processing, the same one frames
+     * are recorded with. Must be called from the main loop.
+     */
+    fun startTelemetryLog(file: File) {
+        if (currentTelemetryLog != null) return
+
+        val logFile = if (file.extension != TelemetryLog.EXTENSION) {
+            File(file.absolutePath + "." + TelemetryLog.EXTENSION)
+        } else file
+
+        val writer = try {
+            TelemetryLogWriter(logFile) { pipelineManager.pipelineFrameSequence }
+        } catch (e: IOException) {
+            logger.error("Unable to start telemetry log", e)
+            return
+        }
+
+        currentTelemetryLog = writer
+        attachTelemetryLog(writer)
+
+        telemetryLogListenerId = pipelineManager.onPipelineChange { attachTelemetryLog(writer) }
+
+        logger.info("Telemetry log started at ${logFile.absolutePath}")
+    }
+
+    private fun attachTelemetryLog(writer: TelemetryLogWriter) {
+        loggedTelemetry?.removeRecordReceiver(writer)
+
+        loggedTelemetry = pipelineManager.currentTelemetry as? EOCVSimTelemetryImpl
+        loggedTelemetry?.addRecordReceiver(writer)
+    }
+
+    /**
+     * Stops the current telemetry log, writing its time index in the background
+     * unless [blocking] is true. Must be called from the main loop.
+     */
+    fun stopTelemetryLog(blocking: Boolean = false) {
+        val writer = currentTelemetryLog ?: return
+
+        telemetryLogListenerId?.let { pipelineManager.onPipelineChange.removeListener(it) }
+        telemetryLogListenerId = null
+
+        loggedTelemetry?.removeRecordReceiver(writer)
+        loggedTelemetry = null
+
+        currentTelemetryLog = null
+
+        val close = thread(name = "RecordingManager-TelemetryLogClose", isDaemon = true) {
+            try {
+                writer.close()
+                logger.info(
+                    "Telemetry log stopped, ${writer.entryCount} entries written to ${writer.file.absolutePath} " +
+                            "(${writer.droppedEntries} dropped)"
+                )
+            } catch (e: Exception) {
+                logger.error("Error while finishing telemetry log", e)
+            }
+        }
+
+        if (blocking) close.join()
+    }
+
+    /**
+     * Plays a [TelemetryLog] back into the telemetry panels with its original timing.
+     * The panels stop showing the live telemetry until the playback ends or
+     * [stopTelemetryReplay] is called. Must be called from the main loop.
+     */
+    fun replayTelemetryLog(file: File) {
+        stopTelemetryReplay()
+
+        val reader = try {
+            TelemetryLogReader(file)
+        } catch (e: IOException) {
+            logger.error("Unable to open telemetry log ${file.absolutePath}", e)
+            return
+        }
+
+        val panels = listOf<TelemetryTransmissionReceiver>(
+            visualizer.sidebarPipelineTabPanel.telemetryPanel,
+            visualizer.sidebarOpModeTabPanel.telemetryPanel
+        )
+
+        val liveTelemetry = pipelineManager.currentTelemetry as? EOCVSimTelemetryImpl
+        panels.forEach { liveTelemetry?.removeTransmissionReceiver(it) }
+
+        val player = TelemetryLogPlayer(reader, panels)
+        currentTelemetryPlayer = player
+
+        logger.info("Replaying telemetry log ${file.absolutePath}, ${reader.entryCount} entries")
+
+        player.play {
+            reader.close()
+
+            onMainUpdate.once {
+                if (currentTelemetryPlayer === player) currentTelemetryPlayer = null
+
+                // hand the panels back to whichever telemetry is live now
+                val telemetry = pipelineManager.currentTelemetry as? EOCVSimTelemetryImpl ?: return@once
+
+                panels.forEach { telemetry.addTransmissionReceiver(it) }
+                telemetry.forceTelemetryTransmission()
+            }
+        }
+    }
+
+    /**
+     * Stops the telemetry log playback, if any. Must be called from the main loop.
+     */
+    fun stopTelemetryReplay() {
+        currentTelemetryPlayer?.stop()
+        currentTelemetryPlayer = null
+    }
+
+    /**
+     * Calls [block] from the main loop with every new frame coming out of the
+     * current input source, along with its sequence number and the time it arrived.
+     * The source's own capture time isn't used, cameras report it in a different
+     * clock and unit than the [System.nanoTime] the pipeline output is stamped with.
+     */
+    private fun onNewSourceFrame(block: (Mat, FrameStamp) -> Unit): EventListenerId {
+        var lastSequence = -1L
+
+        return onMainUpdate {
+            val mat = inputSourceManager.lastMatFromSource ?: return@onMainUpdate
+            val sequence = inputSourceManager.frameSequence
+
+            if (sequence == lastSequence || mat.empty()) return@onMainUpdate
+            lastSequence = sequence
+
+            block(mat, FrameStamp(sequence, inputSourceManager.frameArrivalNanos))
+        }
+    }
+
+    /**
+     * Stamps the frames coming out of the pipeline with the sequence
+     * number of the input frame they were produced from
+     */
+    private inner class PipelineStreamPoster(private val target: MatPoster) : MatPoster {
+        override fun post(m: Mat, context: Any?) {
+            target.post(m, FrameStamp(pipelineManager.pipelineFrameSequence, System.nanoTime()))
+        }
+    }
+
 }
-
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.output
+
+import org.deltacv.common.util.loggerForThis
+import org.opencv.core.Mat
+import org.openftc.easyopencv.MatRecycler
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Sequence number and timestamp of a posted frame. Frames posted to different
+ * recording streams with the same sequence number come from the same input frame.
+ * [timestampNanos] is always in the [System.nanoTime] clock, stamps of every
+ * stream get compared with each other.
+ */
+data class FrameStamp(val sequence: Long, val timestampNanos: Long)
+
+/**
+ * Worker pool and Mat pool shared by every stream being recorded, so that
+ * recording several streams at once doesn't need a set of threads and
+ * buffers per stream.
+ * @param workerCount number of threads encoding frames
+ * @param bufferCount number of frames that can be waiting to be encoded, across all streams
+ */
+class RecordingPool @JvmOverloads constructor(
+    workerCount: Int = DEFAULT_WORKER_COUNT,
+    bufferCount: Int = workerCount * 3
+) {
+
+    companion object {
+        @JvmField val DEFAULT_WORKER_COUNT = (Runtime.getRuntime().availableProcessors() / 2).coerceAtLeast(1)
+    }
+
+    private val logger by loggerForThis()
+
+    private val recycler = MatRecycler(bufferCount.coerceAtLeast(1))
+
+    private val executor: ExecutorService = Executors.newFixedThreadPool(workerCount.coerceAtLeast(1)) {
+        Thread(it, "RecordingPoolWorker").apply { isDaemon = true }
+    }
+
+    /**
+     * Copies [m] into a pooled Mat, or returns null if they're all in use
+     */
+    fun copyOf(m: Mat): MatRecycler.RecyclableMat? {
+        val buffer = recycler.takeMatOrNull() ?: return null
+        m.copyTo(buffer)
+
+        return buffer
+    }
+
+    /**
+     * Creates a set of tasks running on this pool that can be waited for.
+     * @param ordered whether the tasks run one at a time, in submission order
+     */
+    fun tasks(ordered: Boolean) = Tasks(ordered)
+
+    fun shutdown() {
+        executor.shutdown()
+        recycler.releaseAll()
+    }
+
+    inner class Tasks internal constructor(val ordered: Boolean) {
+
+        private val pending = AtomicInteger()
+        private val idleLock = Object()
+
+        private val queue = ConcurrentLinkedQueue<Runnable>()
+        private val draining = AtomicBoolean(false)
+
+        val pendingCount get() = pending.get()
+
+        /**
+         * @return false if the pool is shut down and the task was not queued
+         */
+        fun execute(task: Runnable): Boolean {
+            pending.incrementAndGet()
+
+            try {
+                if (ordered) {
+                    queue.add(task)
+                    executor.execute(::drain)
+                } else {
+                    executor.execute { run(task) }
+                }
+            } catch (_: RejectedExecutionException) {
+                if (!ordered || queue.remove(task)) done()
+                return false
+            }
+
+            return true
+        }
+
+        private fun drain() {
+            // a single worker drains at a time, the others return right away instead of waiting
+            while (queue.isNotEmpty() && draining.compareAndSet(false, true)) {
+                try {
+                    while (true) {
+                        run(queue.poll() ?: break)
+                    }
+                } finally {
+                    draining.set(false)
+                }
+            }
+        }
+
+        private fun run(task: Runnable) {
+            try {
+                task.run()
+            } catch (e: Exception) {
+                logger.error("Uncaught exception in recording task", e)
+            } finally {
+                done()
+            }
+        }
+
+        private fun done() {
+            if (pending.decrementAndGet() == 0) {
+                synchronized(idleLock) { idleLock.notifyAll() }
+            }
+        }
+
+        /**
+         * Waits up to [timeoutMillis] for every submitted task to finish
+         * @return whether all the tasks finished
+         */
+        fun awaitIdle(timeoutMillis: Long): Boolean {
+            val deadline = System.currentTimeMillis() + timeoutMillis
+
+            synchronized(idleLock) {
+                while (pending.get() > 0) {
+                    val remaining = deadline - System.currentTimeMillis()
+                    if (remaining <= 0) return false
+
+                    idleLock.wait(remaining)
+                }
+            }
+
+            return true
+        }
+
+    }
+
+}
+
+/**
+ * Gives every frame sequence number a single timestamp, the one of the first
+ * stream that posts it, so that all the streams place their frames identically
+ */
+class SequenceTimestamps {
+
+    companion object {
+        private const val KEEP = 1024
+    }
+
+    private val timestamps = ConcurrentHashMap<Long, Long>()
+
+    fun timestampOf(stamp: FrameStamp): Long {
+        val timestamp = timestamps.computeIfAbsent(stamp.sequence) { stamp.timestampNanos }
+        timestamps.remove(stamp.sequence - KEEP)
+
+        return timestamp
+    }
+
+}
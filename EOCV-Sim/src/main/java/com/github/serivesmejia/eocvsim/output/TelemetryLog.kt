@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.output
+
+import com.github.serivesmejia.eocvsim.util.jfr.RecordingWriteEvent
+import org.deltacv.common.util.loggerForThis
+import org.firstinspires.ftc.robotcore.internal.opmode.TelemetryRecordReceiver
+import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import java.util.IllegalFormatException
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+import kotlin.concurrent.thread
+
+/**
+ * Binary telemetry log. Every telemetry update is stored as one entry holding
+ * its raw items, so that a run can be inspected and correlated with recorded
+ * frames afterwards.
+ *
+ * Layout (little endian):
+ * - a [HEADER_SIZE] bytes header, see [Header]
+ * - `entryCount` entries back to back, each one being an int with the length
+ *   of the rest of the entry, the timestamp in nanoseconds relative to the start
+ *   of the log, the frame sequence number, a short with the item count and the
+ *   items. An item is its caption followed by its value, a type byte and the
+ *   value itself. Strings are an int length followed by UTF-8 bytes.
+ * - the time index, a timestamp and file offset (two longs) per entry
+ */
+object TelemetryLog {
+
+    const val EXTENSION = "eocvtlm"
+
+    const val VERSION = 1
+    const val HEADER_SIZE = 32
+
+    private val MAGIC = "EOCVTLM\u0000".toByteArray(Charsets.US_ASCII)
+
+    const val TYPE_NULL: Byte = 0
+    const val TYPE_STRING: Byte = 1
+    const val TYPE_LONG: Byte = 2
+    const val TYPE_DOUBLE: Byte = 3
+    const val TYPE_BOOLEAN: Byte = 4
+    const val TYPE_FORMAT: Byte = 5
+
+    /**
+     * @param indexOffset offset of the time index, or 0 if the log wasn't closed
+     */
+    data class Header(val entryCount: Int, val indexOffset: Long)
+
+    data class Item(val caption: String, val value: Any?)
+
+    class Entry(val timestampNanos: Long, val frameSequence: Long, val items: List<Item>)
+
+    /**
+     * Value of an item that was recorded along with a format, it's only formatted when shown
+     */
+    class Formatted(val format: String, val args: Array<Any?>) {
+        override fun toString() = try {
+            String.format(format, *args)
+        } catch (_: IllegalFormatException) {
+            format
+        }
+    }
+
+    fun writeHeader(header: Header): ByteBuffer {
+        val buffer = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+
+        buffer.put(MAGIC)
+        buffer.putInt(VERSION)
+        buffer.putInt(header.entryCount)
+        buffer.putLong(header.indexOffset)
+        buffer.putLong(0) // reserved
+
+        buffer.rewind()
+        return buffer
+    }
+
+    @Throws(IOException::class)
+    fun readHeader(channel: FileChannel): Header {
+        val buffer = readFully(channel, 0, HEADER_SIZE) ?: throw IOException("Telemetry log is truncated, missing header")
+
+        val magic = ByteArray(MAGIC.size)
+        buffer.get(magic)
+
+        if (!magic.contentEquals(MAGIC)) {
+            throw IOException("Not a telemetry log, bad magic")
+        }
+
+        val version = buffer.getInt()
+        if (version != VERSION) {
+            throw IOException("Unsupported telemetry log version $version")
+        }
+
+        return Header(buffer.getInt(), buffer.getLong())
+    }
+
+    /**
+     * Reads [length] bytes at [position], or returns null if the file ends before that
+     */
+    @Throws(IOException::class)
+    fun readFully(channel: FileChannel, position: Long, length: Int): ByteBuffer? {
+        val buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN)
+
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) return null
+        }
+        buffer.flip()
+
+        return buffer
+    }
+
+    /**
+     * Decodes an entry, [buffer] holds everything after its length
+     */
+    fun decodeEntry(buffer: ByteBuffer): Entry {
+        val timestamp = buffer.getLong()
+        val frameSequence = buffer.getLong()
+        val itemCount = buffer.getShort().toInt() and 0xFFFF
+
+        val items = List(itemCount) { Item(getString(buffer), getValue(buffer)) }
+
+        return Entry(timestamp, frameSequence, items)
+    }
+
+    private fun getValue(buffer: ByteBuffer): Any? = when (val type = buffer.get()) {
+        TYPE_NULL -> null
+        TYPE_STRING -> getString(buffer)
+        TYPE_LONG -> buffer.getLong()
+        TYPE_DOUBLE -> buffer.getDouble()
+        TYPE_BOOLEAN -> buffer.get() != 0.toByte()
+        TYPE_FORMAT -> {
+            val format = getString(buffer)
+            val argCount = buffer.get().toInt() and 0xFF
+
+            Formatted(format, Array(argCount) { getValue(buffer) })
+        }
+        else -> throw IOException("Unknown telemetry value type $type")
+    }
+
+    private fun getString(buffer: ByteBuffer): String {
+        val bytes = ByteArray(buffer.getInt())
+        buffer.get(bytes)
+
+        return String(bytes, Charsets.UTF_8)
+    }
+
+}
+
+/**
+ * Writes the updates of a telemetry into a [TelemetryLog] file.
+ *
+ * Entries are encoded on the thread calling update() into an in-memory batch,
+ * full batches are written to the file by a background thread, so updating never
+ * waits on the disk. When every batch is waiting to be written the entry is
+ * dropped and counted in [droppedEntries] instead.
+ *
+ * The time index and header are only written once [close] is called, a log that
+ * wasn't closed is still readable but needs to be scanned to build its index.
+ * @param frameSequence gives the sequence number of the frame each entry belongs to
+ */
+class TelemetryLogWriter @JvmOverloads constructor(
+    val file: File,
+    private val frameSequence: () -> Long = { 0L }
+) : TelemetryRecordReceiver, AutoCloseable {
+
+    companion object {
+        const val BATCH_SIZE = 64 * 1024
+        const val BATCH_COUNT = 4
+
+        /**
+         * A batch that isn't full is written anyway after this long
+         */
+        const val FLUSH_INTERVAL_MILLIS = 500L
+
+        private val END = ByteBuffer.allocate(0)
+    }
+
+    private val logger by loggerForThis()
+
+    private val channel = FileChannel.open(
+        file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+    )
+
+    private val startNanos = System.nanoTime()
+
+    // the entry being recorded
+    private var entry = newBuffer(4096)
+    private var entryItemCount = 0
+
+    private val spareBatches = ArrayBlockingQueue<ByteBuffer>(BATCH_COUNT)
+    private val fullBatches = LinkedBlockingQueue<ByteBuffer>()
+    private var batch: ByteBuffer? = newBuffer(BATCH_SIZE)
+
+    // bytes of the file taken by the batches handed to the writer thread
+    private var committedBytes = TelemetryLog.HEADER_SIZE.toLong()
+
+    private var timestamps = LongArray(1024)
+    private var offsets = LongArray(1024)
+
+    var entryCount = 0
+        private set
+
+    var droppedEntries = 0L
+        private set
+
+    @Volatile var isClosed = false
+        private set
+
+    @Volatile private var writeFailed = false
+
+    private val writerThread: Thread
+
+    init {
+        repeat(BATCH_COUNT - 1) { spareBatches.add(newBuffer(BATCH_SIZE)) }
+
+        channel.position(TelemetryLog.HEADER_SIZE.toLong())
+        writerThread = thread(name = "TelemetryLogWriter", isDaemon = true) { writeLoop() }
+    }
+
+    private fun newBuffer(size: Int) = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN)
+
+    @Synchronized
+    override fun beginRecord() {
+        entry.clear()
+        entryItemCount = 0
+
+        entry.putInt(0) // length, filled in by endRecord
+        entry.putLong(System.nanoTime() - startNanos)
+        entry.putLong(frameSequence())
+        entry.putShort(0) // item count, filled in by endRecord
+    }
+
+    @Synchronized
+    override fun recordItem(caption: String, value: Any?) {
+        if (entryItemCount >= 0xFFFF) return
+
+        putString(caption)
+        putValue(value)
+        entryItemCount++
+    }
+
+    @Synchronized
+    override fun recordFormattedItem(caption: String, format: String, args: Array<out Any?>) {
+        if (entryItemCount >= 0xFFFF) return
+
+        putString(caption)
+
+        ensureEntryCapacity(2)
+        entry.put(TelemetryLog.TYPE_FORMAT)
+        putString(format)
+
+        val argCount = args.size.coerceAtMost(0xFF)
+        entry.put(argCount.toByte())
+
+        for (i in 0 until argCount) {
+            putValue(args[i])
+        }
+
+        entryItemCount++
+    }
+
+    @Synchronized
+    override fun endRecord() {
+        if (isClosed || writeFailed) return
+
+        entry.putInt(0, entry.position() - 4)
+        entry.putShort(20, entryItemCount.toShort())
+        entry.flip()
+
+        val timestamp = entry.getLong(4)
+        val offset: Long
+
+        if (entry.remaining() > BATCH_SIZE) {
+            // bigger than a whole batch, gets written on its own right after the current one
+            handOffBatch()
+            offset = committedBytes
+
+            handOff(newBuffer(entry.remaining()).apply { put(entry); flip() })
+        } else {
+            if (batch.let { it == null || it.remaining() < entry.remaining() }) {
+                handOffBatch()
+            }
+
+            val target = batch
+            if (target == null) {
+                droppedEntries++
+                return
+            }
+
+            offset = committedBytes + target.position()
+            target.put(entry)
+        }
+
+        if (entryCount == timestamps.size) {
+            timestamps = timestamps.copyOf(timestamps.size * 2)
+            offsets = offsets.copyOf(offsets.size * 2)
+        }
+
+        timestamps[entryCount] = timestamp
+        offsets[entryCount] = offset
+        entryCount++
+    }
+
+    private fun putValue(value: Any?) {
+        ensureEntryCapacity(9)
+
+        when (value) {
+            null -> entry.put(TelemetryLog.TYPE_NULL)
+            is Double, is Float -> {
+                entry.put(TelemetryLog.TYPE_DOUBLE)
+                entry.putDouble((value as Number).toDouble())
+            }
+            is Long, is Int, is Short, is Byte -> {
+                entry.put(TelemetryLog.TYPE_LONG)
+                entry.putLong((value as Number).toLong())
+            }
+            is Boolean -> {
+                entry.put(TelemetryLog.TYPE_BOOLEAN)
+                entry.put(if (value) 1 else 0)
+            }
+            else -> {
+                entry.put(TelemetryLog.TYPE_STRING)
+                putString(value.toString())
+            }
+        }
+    }
+
+    private fun putString(string: String) {
+        val bytes = string.toByteArray(Charsets.UTF_8)
+
+        ensureEntryCapacity(4 + bytes.size)
+        entry.putInt(bytes.size)
+        entry.put(bytes)
+    }
+
+    private fun ensureEntryCapacity(bytes: Int) {
+        if (entry.remaining() >= bytes) return
+
+        val grown = newBuffer((entry.capacity() * 2).coerceAtLeast(entry.position() + bytes))
+        entry.flip()
+        grown.put(entry)
+
+        entry = grown
+    }
+
+    /**
+     * Hands the current batch to the writer thread and takes a spare one,
+     * leaves no batch if they're all waiting to be written
+     */
+    private fun handOffBatch() {
+        batch?.let {
+            if (it.position() > 0) {
+                it.flip()
+                handOff(it)
+            } else return
+        }
+
+        batch = spareBatches.poll()
+    }
+
+    private fun handOff(buffer: ByteBuffer) {
+        committedBytes += buffer.remaining()
+        fullBatches.add(buffer)
+    }
+
+    private fun writeLoop() {
+        while (true) {
+            val buffer = try {
+                fullBatches.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)
+            } catch (_: InterruptedException) {
+                break
+            }
+
+            if (buffer == null) {
+                synchronized(this) {
+                    if (!isClosed) handOffBatch()
+                }
+                continue
+            }
+
+            if (buffer === END) break
+
+            try {
+                if (!writeFailed) {
+                    val event = RecordingWriteEvent()
+                    event.begin()
+
+                    val bytes = buffer.remaining()
+                    while (buffer.hasRemaining()) channel.write(buffer)
+
+                    if (event.shouldCommit()) {
+                        event.recording = "telemetry"
+                        event.stream = file.name
+                        event.bytes = bytes.toLong()
+                        event.commit()
+                    }
+                }
+            } catch (e: IOException) {
+                logger.error("Unable to write telemetry log, stopping", e)
+                writeFailed = true
+            }
+
+            if (buffer.capacity() == BATCH_SIZE) {
+                buffer.clear()
+                spareBatches.offer(buffer)
+            }
+        }
+    }
+
+    override fun close() {
+        synchronized(this) {
+            if (isClosed) return
+            isClosed = true
+
+            batch?.let {
+                if (it.position() > 0) {
+                    it.flip()
+                    handOff(it)
+                }
+            }
+            batch = null
+
+            fullBatches.add(END)
+        }
+
+        writerThread.join()
+
+        try {
+            if (writeFailed) return
+
+            val index = newBuffer(entryCount * 16)
+            for (i in 0 until entryCount) {
+                index.putLong(timestamps[i])
+                index.putLong(offsets[i])
+            }
+            index.flip()
+
+            while (index.hasRemaining()) {
+                channel.write(index, committedBytes + index.position())
+            }
+
+            val header = TelemetryLog.writeHeader(TelemetryLog.Header(entryCount, committedBytes))
+
+            while (header.hasRemaining()) {
+                channel.write(header, header.position().toLong())
+            }
+
+            channel.force(true)
+        } finally {
+            channel.close()
+        }
+    }
+
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.output
+
+import org.deltacv.common.util.loggerForThis
+import org.firstinspires.ftc.robotcore.internal.opmode.EOCVSimTelemetryImpl
+import org.firstinspires.ftc.robotcore.internal.opmode.TelemetryTransmissionReceiver
+import java.io.File
+import java.io.IOException
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+import kotlin.concurrent.thread
+
+/**
+ * Reads a [TelemetryLog] file. Entries are read on demand, the time index
+ * is loaded when opening so that any point of the log can be found right away.
+ * Logs that weren't closed are scanned once to rebuild their index, up to the
+ * last complete entry.
+ */
+class TelemetryLogReader(val file: File) : AutoCloseable {
+
+    private val logger by loggerForThis()
+
+    private val channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)
+
+    private val timestamps: LongArray
+    private val offsets: LongArray
+
+    val entryCount get() = timestamps.size
+
+    /**
+     * Timestamp of the last entry, relative to the start of the log
+     */
+    val durationNanos get() = if (entryCount > 0) timestamps[entryCount - 1] else 0L
+
+    init {
+        try {
+            val header = TelemetryLog.readHeader(channel)
+
+            if (header.indexOffset > 0) {
+                val index = TelemetryLog.readFully(channel, header.indexOffset, header.entryCount * 16)
+                    ?: throw IOException("Telemetry log is truncated, missing time index")
+
+                timestamps = LongArray(header.entryCount)
+                offsets = LongArray(header.entryCount)
+
+                for (i in 0 until header.entryCount) {
+                    timestamps[i] = index.getLong()
+                    offsets[i] = index.getLong()
+                }
+            } else {
+                logger.warn("Telemetry log ${file.name} wasn't closed, scanning it to rebuild its index")
+
+                val scannedTimestamps = ArrayList<Long>()
+                val scannedOffsets = ArrayList<Long>()
+
+                var offset = TelemetryLog.HEADER_SIZE.toLong()
+
+                while (true) {
+                    val head = TelemetryLog.readFully(channel, offset, 12) ?: break
+                    val length = head.getInt()
+
+                    // an entry that was cut off while writing
+                    if (length < 8 || offset + 4 + length > channel.size()) break
+
+                    scannedTimestamps.add(head.getLong())
+                    scannedOffsets.add(offset)
+
+                    offset += 4 + length
+                }
+
+                timestamps = scannedTimestamps.toLongArray()
+                offsets = scannedOffsets.toLongArray()
+            }
+        } catch (e: Exception) {
+            channel.close()
+            throw e
+        }
+    }
+
+    fun timestampAt(index: Int) = timestamps[index]
+
+    /**
+     * Finds the entry shown at [timestampNanos], the last one recorded at or before it
+     * @return the index of the entry, or -1 if it's before the first one
+     */
+    fun indexAt(timestampNanos: Long): Int {
+        var low = 0
+        var high = entryCount - 1
+        var found = -1
+
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+
+            if (timestamps[mid] <= timestampNanos) {
+                found = mid
+                low = mid + 1
+            } else {
+                high = mid - 1
+            }
+        }
+
+        return found
+    }
+
+    @Throws(IOException::class)
+    fun read(index: Int): TelemetryLog.Entry {
+        val offset = offsets[index]
+
+        val length = TelemetryLog.readFully(channel, offset, 4)?.getInt()
+            ?: throw IOException("Telemetry log is truncated at entry $index")
+
+        val buffer = TelemetryLog.readFully(channel, offset + 4, length)
+            ?: throw IOException("Telemetry log is truncated at entry $index")
+
+        return TelemetryLog.decodeEntry(buffer)
+    }
+
+    override fun close() {
+        channel.close()
+    }
+
+}
+
+/**
+ * Replays a [TelemetryLog] into transmission receivers, such as the telemetry panel,
+ * by feeding its entries to a telemetry of its own.
+ * Entries are shown with the timing they were recorded with.
+ */
+class TelemetryLogPlayer(
+    val reader: TelemetryLogReader,
+    receivers: Collection<TelemetryTransmissionReceiver>
+) {
+
+    private val logger by loggerForThis()
+
+    val telemetry = EOCVSimTelemetryImpl()
+
+    private var playerThread: Thread? = null
+
+    // the player waits on this between entries instead of sleeping, interrupting
+    // it could land on a read and close the reader's channel
+    private val stopLock = Object()
+    @Volatile private var stopRequested = false
+
+    val isPlaying get() = playerThread?.isAlive == true
+
+    init {
+        for (receiver in receivers) {
+            telemetry.addTransmissionReceiver(receiver)
+        }
+    }
+
+    /**
+     * Shows the entry recorded at [timestampNanos] right away
+     */
+    fun showAt(timestampNanos: Long) {
+        val index = reader.indexAt(timestampNanos)
+        if (index >= 0) show(index)
+    }
+
+    fun show(index: Int) {
+        val entry = reader.read(index)
+
+        telemetry.clearAll()
+        for (item in entry.items) {
+            telemetry.addData(item.caption, item.value)
+        }
+
+        telemetry.forceTelemetryTransmission()
+    }
+
+    /**
+     * Plays the log from the entry at [fromNanos] up to its end, in the background
+     * @param onFinish called from the player thread when playback ends or is stopped
+     */
+    @Synchronized
+    fun play(fromNanos: Long = 0, onFinish: () -> Unit = {}) {
+        stop()
+
+        stopRequested = false
+
+        playerThread = thread(name = "TelemetryLogPlayer", isDaemon = true) {
+            val first = reader.indexAt(fromNanos).coerceAtLeast(0)
+            val startNanos = System.nanoTime()
+
+            try {
+                for (i in first until reader.entryCount) {
+                    val due = startNanos + (reader.timestampAt(i) - reader.timestampAt(first))
+
+                    synchronized(stopLock) {
+                        var wait = due - System.nanoTime()
+
+                        while (wait > 0 && !stopRequested) {
+                            stopLock.wait(wait / 1_000_000, (wait % 1_000_000).toInt())
+                            wait = due - System.nanoTime()
+                        }
+                    }
+
+                    if (stopRequested) break
+                    show(i)
+                }
+            } catch (e: Exception) {
+                logger.error("Error while playing back telemetry log ${reader.file.name}", e)
+            } finally {
+                onFinish()
+            }
+        }
+    }
+
+    @Synchronized
+    fun stop() {
+        playerThread?.let {
+            synchronized(stopLock) {
+                stopRequested = true
+                stopLock.notifyAll()
+            }
+
+            it.join()
+        }
+
+        playerThread = null
+    }
+
+}
@@ -5,34 +5,106 @@
 
 package com.github.serivesmejia.eocvsim.output
 
-import com.github.serivesmejia.eocvsim.gui.util.ThreadedMatPoster
 import com.github.serivesmejia.eocvsim.util.StrUtil
-import org.deltacv.vision.external.util.extension.aspectRatio
-import org.deltacv.vision.external.util.extension.clipTo
-import com.github.serivesmejia.eocvsim.util.fps.FpsCounter
+import com.github.serivesmejia.eocvsim.util.jfr.RecordingWriteEvent
 import org.deltacv.common.image.MatPoster
+import org.deltacv.common.util.loggerForThis
+import org.deltacv.vision.external.util.extension.clipTo
 import org.opencv.core.*
+import org.opencv.imgcodecs.Imgcodecs
 import org.opencv.imgproc.Imgproc
 import org.opencv.videoio.VideoWriter
+import org.opencv.videoio.Videoio
 import java.io.File
+import java.io.IOException
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+import java.nio.file.AtomicMoveNotSupportedException
 import java.nio.file.Files
 import java.nio.file.StandardCopyOption
-import kotlin.math.roundToInt
+import java.nio.file.StandardOpenOption
+import java.util.TreeMap
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicLong
+import kotlin.math.roundToLong
 
-class VideoRecordingSession(
+/**
+ * Records one or more streams of posted frames into MJPG videos, one per [stream].
+ *
+ * Posting only copies the frame into a Mat of the [RecordingPool] and queues it,
+ * conversion, scaling and encoding all happen on the pool's workers, which are
+ * shared by every stream. The posted frame is never modified and posting never
+ * blocks, when the encoders fall behind and the pool runs out of Mats the frame
+ * is dropped and counted.
+ *
+ * The videos have a constant rate of [videoFps], frames are placed in them by their
+ * timestamps: a frame that arrives late holds the previous frame over the gap,
+ * frames arriving faster than the video rate are skipped. When the video backend
+ * can take already encoded frames, each frame is JPEG encoded once and the held
+ * frames reuse its packet, otherwise they're encoded again. All the streams share
+ * one timeline, and frames posted with a [FrameStamp] are placed by the timestamp
+ * of their sequence number, so frames coming from the same input frame land at
+ * the same position in every video.
+ *
+ * The videos are written into [recordingDir] and moved to their destination on [saveTo],
+ * which is instant when both are on the same filesystem. They can be split into
+ * several files once a segment reaches [segmentSeconds] or [segmentBytes].
+ * @param recordingDir directory the videos are written into while recording, or null for the temp directory
+ * @param segmentSeconds duration after which a new file is started, or 0 to never split by duration
+ * @param segmentBytes size after which a new file is started, or 0 to never split by size
+ * @param pool pool encoding the frames, if null the session creates its own and shuts it down when stopped
+ */
+class VideoRecordingSession @JvmOverloads constructor(
     val videoFps: Double = 30.0,
     val videoSize: Size = Size(320.0, 240.0),
-    val isFramesRgb: Boolean = true
+    val isFramesRgb: Boolean = true,
+    val recordingDir: File? = null,
+    val segmentSeconds: Double = 0.0,
+    val segmentBytes: Long = 0,
+    pool: RecordingPool? = null
 ) {
 
-    private val videoWriter = VideoWriter()
-    private val tempFile = File.createTempFile(StrUtil.random(), ".avi")
+    companion object {
+        /**
+         * Gaps longer than this in which no stream got any frame (e.g. the input source
+         * was paused) aren't filled, the timeline of every stream is shifted to continue
+         * right after the last frame
+         */
+        const val MAX_GAP_SECONDS = 5.0
+
+        /**
+         * How often, in frames, the size of the current segment is checked
+         */
+        private const val SEGMENT_SIZE_CHECK_INTERVAL = 15
+
+        const val DEFAULT_IO_BUFFER_SIZE = 1024 * 1024
+
+        private const val STOP_TIMEOUT_MILLIS = 30_000L
+    }
+
+    private val logger by loggerForThis()
+
+    private val ownsPool = pool == null
+    private val pool = pool ?: RecordingPool()
+
+    private val streams = ConcurrentHashMap<String, Stream>()
+    private val sequenceTimestamps = SequenceTimestamps()
 
-    @Volatile private var videoMat: Mat? = null
+    private val slotNanos = 1_000_000_000.0 / videoFps
 
-    val matPoster = ThreadedMatPoster("VideoRec", videoFps.toInt())
+    // shared timeline of all the streams, see timelineNanos
+    private val timelineShifts = TreeMap<Long, Long>()
+    private var firstTimestamp = -1L
+    private var lastTimestamp = -1L
 
-    private val fpsCounter = FpsCounter()
+    /**
+     * Frames posted while recording, across all streams
+     */
+    val postedFrames get() = streams.values.sumOf { it.posted }
+    /**
+     * Frames that couldn't be queued because the encoders were behind, across all streams
+     */
+    val droppedFrames get() = streams.values.sumOf { it.dropped }
 
     @Volatile var hasStarted = false
         private set
@@ -41,103 +113,371 @@ class VideoRecordingSession(
 
     val isRecording get() = hasStarted && !hasStopped
 
-    init {
-        matPoster.addPostable { postMat(it) }
-    }
+    /**
+     * Gets the stream with the given name, creating it if needed.
+     * Frames posted to it are recorded into their own video.
+     */
+    fun stream(name: String): Stream = streams.computeIfAbsent(name) { Stream(it) }
+
+    val allStreams: Collection<Stream> get() = streams.values
 
     @Synchronized fun startRecordingSession() {
-        videoWriter.open(tempFile.toString(), VideoWriter.fourcc('M', 'J', 'P', 'G'), videoFps, videoSize)
-        hasStarted = true;
+        if (hasStarted) return
+
+        recordingDir?.mkdirs()
+        hasStarted = true
     }
 
+    /**
+     * Stops accepting frames, waits for the queued ones to be encoded and finishes the videos
+     */
     @Synchronized fun stopRecordingSession() {
-        videoWriter.release(); videoMat?.release(); matPoster.stop()
+        if (!hasStarted || hasStopped) return
         hasStopped = true
+
+        for (stream in streams.values) {
+            if (!stream.tasks.awaitIdle(STOP_TIMEOUT_MILLIS)) {
+                logger.warn("Timed out waiting for the queued frames of stream ${stream.name} to be encoded")
+            }
+
+            stream.finish()
+            logger.info("Recording of $stream finished")
+        }
+
+        if (ownsPool) pool.shutdown()
     }
 
-    fun saveTo(file: File) {
-        if(!hasStopped) return
-        Files.copy(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING)
-        Files.delete(tempFile.toPath())
+    /**
+     * Moves the recorded videos to [file]. When more than one stream was recorded, each
+     * one is saved next to [file] with the stream name as a suffix, and a video split
+     * into several segments is saved with a numbered suffix. Files are moved atomically
+     * when possible, otherwise they're copied with a buffer of [ioBufferSize] bytes
+     * and deleted afterwards.
+     * @return the files the videos were saved into
+     */
+    @Throws(IOException::class)
+    fun saveTo(file: File, ioBufferSize: Int = DEFAULT_IO_BUFFER_SIZE): List<File> {
+        if(!hasStopped) return listOf()
+
+        val recorded = streams.values.filter { stream -> stream.segments.any { it.exists() } }.sortedBy { it.name }
+        val saved = mutableListOf<File>()
+
+        for (stream in recorded) {
+            val streamFile = if (recorded.size == 1) file else {
+                File(file.parentFile, "${file.nameWithoutExtension}_${stream.name}.${file.extension}")
+            }
+
+            val segments = stream.segments.filter { it.exists() }
+
+            val destinations = if (segments.size == 1) listOf(streamFile) else segments.indices.map {
+                File(streamFile.parentFile, "${streamFile.nameWithoutExtension}_${"%03d".format(it)}.${streamFile.extension}")
+            }
+
+            for ((segment, destination) in segments.zip(destinations)) {
+                move(segment, destination, ioBufferSize)
+            }
+
+            saved += destinations
+        }
+
+        return saved
     }
 
-    fun discardVideo() {
-        if(tempFile.exists())
-            Files.delete(tempFile.toPath())
+    private fun move(from: File, to: File, ioBufferSize: Int) {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING)
+            return
+        } catch (_: AtomicMoveNotSupportedException) {
+            // different filesystems, copy it over instead
+        }
+
+        logger.info("Copying ${from.absolutePath} to ${to.absolutePath}, recording directory is on another filesystem")
+
+        FileChannel.open(from.toPath(), StandardOpenOption.READ).use { input ->
+            FileChannel.open(
+                to.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING
+            ).use { output ->
+                val buffer = ByteBuffer.allocateDirect(ioBufferSize.coerceAtLeast(4096))
+
+                while (input.read(buffer) >= 0) {
+                    buffer.flip()
+                    while (buffer.hasRemaining()) output.write(buffer)
+                    buffer.clear()
+                }
+
+                output.force(true)
+            }
+        }
+
+        Files.delete(from.toPath())
     }
 
-    @Synchronized fun postMatAsync(inputMat: Mat) {
-        if(!videoWriter.isOpened) return
-        matPoster.post(inputMat)
+    /**
+     * Position of [timestamp] in the timeline shared by all the streams, from the first
+     * frame of the session and without the gaps longer than [MAX_GAP_SECONDS] in which
+     * no stream got any frame. A timestamp always maps to the same position, whichever
+     * stream posts it and whenever it's posted, so that the streams stay aligned.
+     */
+    private fun timelineNanos(timestamp: Long): Long = synchronized(timelineShifts) {
+        if (firstTimestamp < 0) firstTimestamp = timestamp
+
+        if (lastTimestamp >= 0 && timestamp - lastTimestamp > MAX_GAP_SECONDS * 1_000_000_000) {
+            // everything from here on continues one slot after the last frame before the gap
+            val shift = (timelineShifts.lastEntry()?.value ?: 0L) + timestamp - lastTimestamp - slotNanos.roundToLong()
+            timelineShifts[timestamp] = shift
+        }
+
+        lastTimestamp = maxOf(lastTimestamp, timestamp)
+
+        timestamp - firstTimestamp - (timelineShifts.floorEntry(timestamp)?.value ?: 0L)
     }
 
-    @Synchronized fun postMat(inputMat: Mat) {
-        if(!videoWriter.isOpened) return
+    fun discardVideo() {
+        for (stream in streams.values) {
+            for (segment in stream.segments) {
+                Files.deleteIfExists(segment.toPath())
+            }
+        }
+    }
+
+    inner class Stream(val name: String) : MatPoster {
+
+        // frames of a stream are encoded one at a time and in order,
+        // everything below is only touched by those tasks
+        internal val tasks = pool.tasks(ordered = true)
 
-        if(videoMat == null)
-            videoMat = Mat(videoSize, inputMat.type())
-        else
-            videoMat!!.setTo(Scalar(0.0, 0.0, 0.0))
+        private val videoWriter = VideoWriter()
 
-        //we need BGR frames
-        if(isFramesRgb) {
-            Imgproc.cvtColor(inputMat, inputMat, Imgproc.COLOR_RGB2BGR)
+        // whether the writer takes JPEG packets encoded by us rather than Mats it encodes itself
+        private var writesPackets = false
+        // JPEG encoding of videoMat, reused by every slot holding the same frame
+        private val packet = MatOfByte()
+        private var packetStale = true
+
+        private val segmentFiles = mutableListOf<File>()
+        private var framesInSegment = 0L
+
+        private val videoMat = Mat(videoSize, CvType.CV_8UC3, Scalar(0.0, 0.0, 0.0))
+        private val resizedMat = Mat()
+        private var letterboxInputSize = Size()
+        private var letterboxRect = Rect()
+
+        private var nextSlot = 0L
+
+        private val postedCount = AtomicLong()
+        private val droppedCount = AtomicLong()
+        private val skippedCount = AtomicLong()
+        private val writtenCount = AtomicLong()
+        private val heldCount = AtomicLong()
+        private val encodeNanosCount = AtomicLong()
+
+        /**
+         * Frames posted while recording
+         */
+        val posted get() = postedCount.get()
+        /**
+         * Frames that couldn't be queued because the encoders were behind
+         */
+        val dropped get() = droppedCount.get()
+        /**
+         * Frames that arrived faster than the video rate and were not written
+         */
+        val skipped get() = skippedCount.get()
+        /**
+         * Frames written into the video, including the ones holding a previous frame over a gap
+         */
+        val written get() = writtenCount.get()
+        /**
+         * Frames written to hold the previous frame over a gap between timestamps
+         */
+        val held get() = heldCount.get()
+        /**
+         * Time the pool's workers spent converting and encoding the frames of this stream
+         */
+        val encodeNanos get() = encodeNanosCount.get()
+
+        /**
+         * Frames per second this stream could be encoded at, going by [encodeNanos]
+         */
+        val encodeFps get() = encodeNanos.let { if (it > 0) written * 1_000_000_000.0 / it else 0.0 }
+
+        /**
+         * Files the video has been written into so far, one per segment
+         */
+        val segments: List<File> get() = synchronized(segmentFiles) { segmentFiles.toList() }
+
+        /**
+         * Queues a copy of [m] to be encoded. If [context] is a [FrameStamp] the frame is
+         * placed by the timestamp of its sequence number, otherwise by the current time.
+         */
+        override fun post(m: Mat, context: Any?) {
+            if (!isRecording || m.empty()) return
+
+            val stamp = context as? FrameStamp
+
+            val timestamp = timelineNanos(stamp?.let { sequenceTimestamps.timestampOf(it) } ?: System.nanoTime())
+            postedCount.incrementAndGet()
+
+            val frame = pool.copyOf(m)
+            if (frame == null) {
+                droppedCount.incrementAndGet()
+                return
+            }
+
+            val queued = tasks.execute {
+                try {
+                    val event = RecordingWriteEvent()
+                    event.begin()
+
+                    val start = System.nanoTime()
+                    encode(frame, timestamp)
+                    encodeNanosCount.addAndGet(System.nanoTime() - start)
+
+                    if (event.shouldCommit()) {
+                        event.recording = "video"
+                        event.stream = name
+                        event.sequence = stamp?.sequence ?: -1
+                        event.commit()
+                    }
+                } finally {
+                    frame.returnMat()
+                }
+            }
+
+            if (!queued) {
+                frame.returnMat()
+                droppedCount.incrementAndGet()
+            }
         }
 
-        if(inputMat.size() == videoSize) { //nice, the mat size is the exact same as the video size
-            compensateFpsWrite(inputMat, fpsCounter.fps.toDouble(), videoFps)
-        } else { //uh oh, this might get a bit harder here...
-            val videoR = videoSize.aspectRatio()
-            val inputR = inputMat.aspectRatio()
+        /**
+         * @param timelineNanos position of the frame in the shared timeline, from [timelineNanos]
+         */
+        private fun encode(frame: Mat, timelineNanos: Long) {
+            if (segmentFiles.isEmpty()) openSegment()
 
-            //ok, we have the same aspect ratio, we can just scale to the required size
-            if(videoR == inputR) {
-                Imgproc.resize(inputMat, videoMat, videoSize, 0.0, 0.0, Imgproc.INTER_AREA)
-                compensateFpsWrite(videoMat!!, fpsCounter.fps.toDouble(), videoFps)
-            } else { //hmm, not the same aspect ratio, we'll need to do some fancy stuff here...
-                val inputW = inputMat.size().width
-                val inputH = inputMat.size().height
+            val slot = (timelineNanos / slotNanos).roundToLong()
 
-                val widthRatio = videoSize.width / inputW
-                val heightRatio = videoSize.height / inputH
-                val bestRatio = widthRatio.coerceAtMost(heightRatio)
+            if (slot < nextSlot) {
+                skippedCount.incrementAndGet()
+                return
+            }
+
+            // hold the previous frame until this one is due. a stream whose first
+            // frame comes after the other streams' starts out black, to stay aligned
+            while (nextSlot < slot) {
+                writeFrame()
+                nextSlot++
+
+                heldCount.incrementAndGet()
+            }
+
+            toVideoMat(frame)
 
-                val newSize = Size(inputW * bestRatio, inputH * bestRatio).clipTo(videoSize)
+            writeFrame()
+            nextSlot = slot + 1
+        }
+
+        private fun openSegment() {
+            val file = File.createTempFile(StrUtil.random(), ".avi", recordingDir)
+            synchronized(segmentFiles) { segmentFiles.add(file) }
+
+            val fourcc = VideoWriter.fourcc('M', 'J', 'P', 'G')
+
+            // only some backends can encapsulate encoded frames, the others refuse to open with it
+            writesPackets = videoWriter.open(
+                file.toString(), fourcc, videoFps, videoSize, MatOfInt(Videoio.VIDEOWRITER_PROP_RAW_VIDEO, 1)
+            )
+
+            if (!writesPackets) {
+                videoWriter.open(file.toString(), fourcc, videoFps, videoSize)
+            }
+
+            framesInSegment = 0
+        }
+
+        private fun writeFrame() {
+            if (writesPackets) {
+                if (packetStale) {
+                    Imgcodecs.imencode(".jpg", videoMat, packet)
+                    packetStale = false
+                }
+
+                videoWriter.write(packet)
+            } else {
+                videoWriter.write(videoMat)
+            }
+
+            writtenCount.incrementAndGet()
+            framesInSegment++
+
+            val durationReached = segmentSeconds > 0 && framesInSegment >= segmentSeconds * videoFps
+            val sizeReached = segmentBytes > 0 && framesInSegment % SEGMENT_SIZE_CHECK_INTERVAL == 0L &&
+                    segments.last().length() >= segmentBytes
+
+            if (durationReached || sizeReached) {
+                videoWriter.release()
+                openSegment()
+            }
+        }
+
+        /**
+         * Converts the frame to BGR straight into [videoMat], scaling it to fit
+         * and centering it with black bars when the aspect ratio doesn't match
+         */
+        private fun toVideoMat(frame: Mat) {
+            if (frame.size() != letterboxInputSize) {
+                letterboxInputSize = frame.size()
+
+                val bestRatio = (videoSize.width / frame.width()).coerceAtMost(videoSize.height / frame.height())
+                val newSize = Size(frame.width() * bestRatio, frame.height() * bestRatio).clipTo(videoSize)
 
                 //get offsets so that we center the image instead of leaving it at (0,0)
                 //(basically the black bars you see)
                 val xOffset = (videoSize.width - newSize.width) / 2
                 val yOffset = (videoSize.height - newSize.height) / 2
 
-                Imgproc.resize(inputMat, inputMat, newSize, 0.0, 0.0, Imgproc.INTER_AREA)
+                letterboxRect = Rect(Point(xOffset, yOffset), newSize)
+                videoMat.setTo(Scalar(0.0, 0.0, 0.0))
+            }
 
-                //get submat of the exact required size and offset position from the "videoMat",
-                //which has the user-defined size of the current video.
-                val submat = videoMat!!.submat(Rect(Point(xOffset, yOffset), newSize))
+            val scaled = if (frame.size() == letterboxRect.size()) frame else {
+                Imgproc.resize(frame, resizedMat, letterboxRect.size(), 0.0, 0.0, Imgproc.INTER_AREA)
+                resizedMat
+            }
 
-                //then we copy our adjusted mat into the gotten submat. since a submat is just
-                //a reference to the parent mat, when we copy here our data will be actually
-                //copied to the actual mat, and so our new mat will be of the correct size and
-                //centered with the required offset
-                inputMat.copyTo(submat);
+            //the submat references the region of videoMat, so converting into
+            //it writes the frame centered into the video frame directly
+            val dst = videoMat.submat(letterboxRect)
+            packetStale = true
 
-                compensateFpsWrite(videoMat!!, fpsCounter.fps.toDouble(), videoFps)
+            when (scaled.channels()) {
+                4 -> Imgproc.cvtColor(scaled, dst, if (isFramesRgb) Imgproc.COLOR_RGBA2BGR else Imgproc.COLOR_BGRA2BGR)
+                3 -> if (isFramesRgb) Imgproc.cvtColor(scaled, dst, Imgproc.COLOR_RGB2BGR) else scaled.copyTo(dst)
+                1 -> Imgproc.cvtColor(scaled, dst, Imgproc.COLOR_GRAY2BGR)
+                else -> logger.warn("Unsupported number of channels ${scaled.channels()}, skipping frame")
             }
 
-            fpsCounter.update()
+            dst.release()
         }
-    }
 
-    //compensating for variable fps, we write the same mat multiple
-    //times so that our video stays in sync with the correct speed.
-    @Synchronized private fun compensateFpsWrite(mat: Mat, currentFps: Double, targetFps: Double) {
-        if (currentFps < targetFps && currentFps > 0) {
-            repeat((targetFps / currentFps).roundToInt()) {
-                videoWriter.write(mat)
+        internal fun finish() {
+            videoWriter.release()
+            videoMat.release()
+            resizedMat.release()
+            packet.release()
+
+            // a segment that was started right before stopping holds no frames
+            synchronized(segmentFiles) {
+                if (framesInSegment == 0L && segmentFiles.size > 1) {
+                    Files.deleteIfExists(segmentFiles.removeAt(segmentFiles.lastIndex).toPath())
+                }
             }
-        } else {
-            videoWriter.write(mat)
         }
+
+        override fun toString() = "Stream($name, posted=$posted, dropped=$dropped, skipped=$skipped, " +
+                "written=$written, held=$held, segments=${segments.size}, encodeFps=${"%.1f".format(encodeFps)})"
+
     }
 
 }
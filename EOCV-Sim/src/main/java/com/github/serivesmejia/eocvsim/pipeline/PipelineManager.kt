@@ -17,12 +17,14 @@ import com.github.serivesmejia.eocvsim.pipeline.instantiator.PipelineInstantiato
 import com.github.serivesmejia.eocvsim.pipeline.instantiator.processor.ProcessorInstantiator
 import com.github.serivesmejia.eocvsim.pipeline.util.PipelineExceptionTracker
 import com.github.serivesmejia.eocvsim.pipeline.util.PipelineSnapshot
+import com.github.serivesmejia.eocvsim.pipeline.util.SlowFrameCapture
 import com.github.serivesmejia.eocvsim.tuner.TunableFieldRegistry
 import com.github.serivesmejia.eocvsim.util.InitClasspathScan
 import com.github.serivesmejia.eocvsim.util.ReflectUtil
 import com.github.serivesmejia.eocvsim.util.StrUtil
 import com.github.serivesmejia.eocvsim.util.SysUtil
 import com.github.serivesmejia.eocvsim.util.event.EventHandler
+import com.github.serivesmejia.eocvsim.util.jfr.PipelineProcessFrameEvent
 import com.github.serivesmejia.eocvsim.util.orchestration.initDependency
 import com.github.serivesmejia.eocvsim.util.orchestration.runDependency
 import com.github.serivesmejia.eocvsim.util.orchestration.PhaseOrchestrableBase
@@ -40,6 +42,7 @@ import org.firstinspires.ftc.vision.VisionProcessor
 import org.koin.core.component.KoinComponent
 import org.koin.core.component.inject
 import org.koin.core.qualifier.named
+import org.opencv.core.Mat
 import org.openftc.easyopencv.OpenCvPipeline
 import org.openftc.easyopencv.OpenCvViewport
 import org.openftc.easyopencv.processFrameInternal
@@ -96,8 +99,21 @@ class PipelineManager : PhaseOrchestrableBase(), KoinComponent {
     val logger by loggerForThis()
 
     val pipelineOutputPosters = ArrayList<MatPoster>()
+
+    /**
+     * [InputSourceManager.frameSequence] of the input frame the pipeline is processing,
+     * or last processed. Frames posted to [pipelineOutputPosters] come from this frame.
+     */
+    @Volatile var pipelineFrameSequence = 0L
+        private set
+
     val pipelineFpsCounter = FpsCounter()
 
+    /**
+     * Saves the input of frames slower than the configured threshold
+     */
+    val slowFrameCapture = SlowFrameCapture()
+
     var hasInitCurrentPipeline = false
         private set
     var lastPipelineAction = "processFrame"
@@ -306,6 +322,10 @@ class PipelineManager : PhaseOrchestrableBase(), KoinComponent {
             }
 
             wasBuildRunning = compiledPipelineManager.isBuildRunning
+
+            // sends out updates that were held back by the transmission interval,
+            // so that a burst of update() calls ends with its last one being shown
+            telemetry.tryUpdateIfDirty()
         }
 
         if (paused || currentPipeline == null) {
@@ -320,11 +340,16 @@ class PipelineManager : PhaseOrchestrableBase(), KoinComponent {
         }
 
         val inputMat = inputSourceManager.lastMatFromSource
+        val inputSequence = inputSourceManager.frameSequence
 
         pipelineStatisticsCalculator.newPipelineFrameStart()
 
+        slowFrameCapture.thresholdMs = configManager.config.slowFrameCaptureThresholdMs
+
         //run our pipeline in the background until it finishes or gets cancelled
         val pipelineJob = scope.launch(currentPipelineContext!!) {
+            var inputCopy: Mat? = null
+
             try {
                 //if we have a pipeline, we run it right here, passing the input mat
                 //given to us. we'll post the frame the pipeline returns as long
@@ -338,18 +363,36 @@ class PipelineManager : PhaseOrchestrableBase(), KoinComponent {
                 //check if we're still active (not timeouted)
                 //after initialization
                 if (inputMat != null) {
+                    pipelineFrameSequence = inputSequence
+
                     if (!hasInitCurrentPipeline) {
                         for (pipeHandler in pipelineHandlers) {
                             pipeHandler.preInit()
                         }
                     }
 
+                    if (slowFrameCapture.isEnabled) {
+                        inputCopy = slowFrameCapture.copyInput(inputMat)
+                    }
+
                     pipelineStatisticsCalculator.beforeProcessFrame()
 
+                    val event = PipelineProcessFrameEvent()
+                    event.begin()
+
                     val pipelineResult = currentPipeline?.processFrameInternal(inputMat)
 
+                    event.end()
+
                     pipelineStatisticsCalculator.afterProcessFrame()
 
+                    if (event.shouldCommit()) {
+                        event.pipeline = currentPipelineName
+                        event.sequence = inputSequence
+                        event.init = !hasInitCurrentPipeline
+                        event.commit()
+                    }
+
                     pipelineResult?.let { outputMat ->
                         if (isActive) {
                             pipelineFpsCounter.update()
@@ -404,6 +447,10 @@ class PipelineManager : PhaseOrchestrableBase(), KoinComponent {
             }
 
             pipelineStatisticsCalculator.endFrame()
+
+            inputCopy?.let {
+                slowFrameCapture.frameEnded(it, pipelineStatisticsCalculator, currentPipelineName, inputSequence)
+            }
         }
 
         val configTimeout = configManager.config.pipelineTimeout
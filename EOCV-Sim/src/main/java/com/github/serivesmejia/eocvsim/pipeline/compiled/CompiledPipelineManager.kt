@@ -13,6 +13,7 @@ import com.github.serivesmejia.eocvsim.pipeline.PipelineSource
 import com.github.serivesmejia.eocvsim.util.StrUtil
 import com.github.serivesmejia.eocvsim.util.SysUtil
 import com.github.serivesmejia.eocvsim.util.event.EventHandler
+import com.github.serivesmejia.eocvsim.util.jfr.WorkspaceBuildEvent
 import org.deltacv.common.util.loggerForThis
 import com.github.serivesmejia.eocvsim.workspace.config.WorkspaceConfigLoader
 import com.github.serivesmejia.eocvsim.workspace.util.template.DefaultWorkspaceTemplate
@@ -82,6 +83,12 @@ class CompiledPipelineManager : PhaseOrchestrableBase(), KoinComponent {
     var isBuildRunning = false
         private set
 
+    /**
+     * Number of builds started since the simulator started
+     */
+    var buildSequence = 0L
+        private set
+
     override suspend fun init() {
         logger.info("Initializing...")
 
@@ -108,7 +115,9 @@ class CompiledPipelineManager : PhaseOrchestrableBase(), KoinComponent {
 
     override suspend fun run() { }
 
-    override suspend fun destroy() { }
+    override suspend fun destroy() {
+        ResidentCompilerService.invalidate()
+    }
 
     @OptIn(DelicateCoroutinesApi::class)
     suspend fun uncheckedBuild(): PipelineCompileResult {
@@ -117,6 +126,12 @@ class CompiledPipelineManager : PhaseOrchestrableBase(), KoinComponent {
         )
 
         isBuildRunning = true
+        buildSequence++
+
+        val event = WorkspaceBuildEvent()
+        event.begin()
+        event.sequence = buildSequence
+
         onBuildStart.run()
 
         if(!PipelineCompiler.IS_USABLE) {
@@ -129,6 +144,9 @@ class CompiledPipelineManager : PhaseOrchestrableBase(), KoinComponent {
             onBuildEnd.run()
             isBuildRunning = false
 
+            event.status = lastBuildResult!!.status.name
+            event.commit()
+
             return lastBuildResult!!
         }
 
@@ -147,10 +165,16 @@ class CompiledPipelineManager : PhaseOrchestrableBase(), KoinComponent {
         val result = compiler.compile(PIPELINES_OUTPUT_JAR)
         lastBuildResult = result
 
+        event.end()
+        event.status = result.status.name
+        event.warm = result.warm
+        event.commit()
+
         val timeElapsed = String.format("%.2f", runtime.seconds())
 
         currentPipelineClassLoader = null
-        val messageEnd = "(took $timeElapsed seconds)\n\n${result.message}".trim()
+        val compilerState = if(result.warm) "warm" else "cold"
+        val messageEnd = "(took $timeElapsed seconds, $compilerState compiler)\n\n${result.message}".trim()
 
         pipelineManager.requestRemoveAllPipelinesFrom(
             PipelineSource.COMPILED_ON_RUNTIME,
@@ -11,7 +11,6 @@ import com.github.serivesmejia.eocvsim.util.compiler.compiler
 import org.deltacv.common.util.loggerFor
 import java.io.File
 import java.io.PrintWriter
-import java.nio.charset.Charset
 import java.util.*
 import javax.tools.*
 
@@ -68,10 +67,9 @@ class PipelineCompiler(
 
     constructor(inputPath: File) : this(inputPath, SysUtil.filesUnder(inputPath, ".java"))
 
-    fun compile(outputJar: File): PipelineCompileResult {
+    fun compile(outputJar: File): PipelineCompileResult = ResidentCompilerService.withFileManager(this) { fileManager, warm ->
         val javac = COMPILER!!.javaCompiler
-        
-        val fileManager = PipelineStandardFileManager(javac.getStandardFileManager(this, Locale.getDefault(), Charset.defaultCharset()))
+
         fileManager.sourcePath = Collections.singleton(sourcesInputPath)
 
         val javaFileObjects = fileManager.getJavaFileObjects(*sourceFiles.toTypedArray())
@@ -97,12 +95,12 @@ class PipelineCompiler(
                     JarPacker.packResAndClassesUnder(outputJar, outputClasses, resInputPath, resFiles)
                 }
 
-                return PipelineCompileResult(PipelineCompileStatus.SUCCESS, latestDiagnostic)
+                PipelineCompileResult(PipelineCompileStatus.SUCCESS, latestDiagnostic, warm)
+            } else {
+                PipelineCompileResult(PipelineCompileStatus.FAILED, latestDiagnostic, warm)
             }
-
-            return PipelineCompileResult(PipelineCompileStatus.FAILED, latestDiagnostic)
         } else {
-            return PipelineCompileResult(PipelineCompileStatus.NO_SOURCE, "No source files")
+            PipelineCompileResult(PipelineCompileStatus.NO_SOURCE, "No source files", warm)
         }
     }
 
@@ -159,4 +157,4 @@ enum class PipelineCompileStatus {
     NO_SOURCE
 }
 
-data class PipelineCompileResult(val status: PipelineCompileStatus, val message: String)
+data class PipelineCompileResult(val status: PipelineCompileStatus, val message: String, val warm: Boolean = false)
@@ -13,7 +13,10 @@ import java.util.*
 import javax.tools.StandardJavaFileManager
 import javax.tools.StandardLocation
 
-class PipelineStandardFileManager(delegate: StandardJavaFileManager) : DelegatingStandardFileManager(delegate) {
+class PipelineStandardFileManager(
+    delegate: StandardJavaFileManager,
+    classpath: List<File> = scanClasspath()
+) : DelegatingStandardFileManager(delegate) {
 
     var sourcePath: Iterable<File>
         set(value) = delegate.setLocation(StandardLocation.SOURCE_PATH, value)
@@ -22,7 +25,11 @@ class PipelineStandardFileManager(delegate: StandardJavaFileManager) : Delegatin
     companion object {
         val logger by loggerFor(PipelineStandardFileManager::class)
 
-        val classpath by lazy {
+        /**
+         * Lists the jars the pipelines are compiled against.
+         * Only walks the classpath folders, the jars themselves aren't opened here.
+         */
+        fun scanClasspath(): List<File> {
             val classpathList = arrayListOf<File>()
 
             logger.trace("Scanning classpath files...")
@@ -42,7 +49,7 @@ class PipelineStandardFileManager(delegate: StandardJavaFileManager) : Delegatin
                 classpathList.addAll(files)
             }
 
-            classpathList.toList()
+            return classpathList.toList()
         }
     }
 
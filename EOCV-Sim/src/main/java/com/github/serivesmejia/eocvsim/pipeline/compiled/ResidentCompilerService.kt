@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.pipeline.compiled
+
+import com.github.serivesmejia.eocvsim.util.compiler.compiler
+import org.deltacv.common.util.loggerFor
+import java.nio.charset.Charset
+import java.util.*
+import javax.tools.DiagnosticListener
+import javax.tools.JavaFileObject
+
+/**
+ * Keeps a single [PipelineStandardFileManager] alive between workspace builds.
+ * The file manager holds the opened classpath archives (EOCV-Sim, OpenCV, plugins...)
+ * and their directory indexes, so only the first build after a classpath change pays
+ * for reading them. Every other build reuses the warm instance.
+ *
+ * The file manager is thrown away as soon as the classpath fingerprint (path, size
+ * and modification time of every jar) changes, or when [invalidate] is called.
+ */
+object ResidentCompilerService {
+
+    val logger by loggerFor(ResidentCompilerService::class)
+
+    private var fileManager: PipelineStandardFileManager? = null
+    private var classpathFingerprint: List<ClasspathEntry>? = null
+
+    /**
+     * Diagnostics reported by the file manager itself (not by the compile task)
+     * are forwarded to the compiler currently holding the lease.
+     */
+    private var currentListener: DiagnosticListener<JavaFileObject>? = null
+
+    private val forwardingListener = DiagnosticListener<JavaFileObject> {
+        currentListener?.report(it)
+    }
+
+    var coldCompiles = 0
+        private set
+    var warmCompiles = 0
+        private set
+
+    var lastColdCompileMillis = 0L
+        private set
+    var lastWarmCompileMillis = 0L
+        private set
+
+    /**
+     * Runs [block] with the resident file manager, creating it if
+     * it doesn't exist yet or if the classpath changed since the last build.
+     */
+    @Synchronized
+    fun <T> withFileManager(
+        listener: DiagnosticListener<JavaFileObject>,
+        block: (PipelineStandardFileManager, Boolean) -> T
+    ): T {
+        val classpath = PipelineStandardFileManager.scanClasspath()
+        val fingerprint = classpath.map { ClasspathEntry(it.absolutePath, it.length(), it.lastModified()) }
+
+        if(fileManager != null && fingerprint != classpathFingerprint) {
+            logger.info("Classpath changed, discarding the resident compiler state")
+            invalidate()
+        }
+
+        val warm = fileManager != null
+
+        val manager = fileManager ?: PipelineStandardFileManager(
+            compiler!!.javaCompiler.getStandardFileManager(forwardingListener, Locale.getDefault(), Charset.defaultCharset()),
+            classpath
+        ).also {
+            fileManager = it
+            classpathFingerprint = fingerprint
+        }
+
+        currentListener = listener
+        val startTime = System.currentTimeMillis()
+
+        try {
+            return block(manager, warm)
+        } finally {
+            currentListener = null
+            val took = System.currentTimeMillis() - startTime
+
+            if(warm) {
+                warmCompiles++
+                lastWarmCompileMillis = took
+            } else {
+                coldCompiles++
+                lastColdCompileMillis = took
+            }
+
+            logger.info("Compiled with a {} compiler in {} ms (last cold: {} ms, last warm: {} ms)",
+                if(warm) "warm" else "cold", took, lastColdCompileMillis, lastWarmCompileMillis
+            )
+        }
+    }
+
+    /**
+     * Closes the resident file manager, the next build will start cold
+     */
+    @Synchronized
+    fun invalidate() {
+        try {
+            fileManager?.close()
+        } catch(e: Exception) {
+            logger.warn("Exception while closing the resident file manager", e)
+        }
+
+        fileManager = null
+        classpathFingerprint = null
+    }
+
+    private data class ClasspathEntry(val path: String, val size: Long, val lastModified: Long)
+
+}
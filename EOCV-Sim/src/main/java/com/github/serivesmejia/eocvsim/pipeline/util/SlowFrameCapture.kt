@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package com.github.serivesmejia.eocvsim.pipeline.util
+
+import com.github.serivesmejia.eocvsim.util.SysUtil
+import org.deltacv.common.pipeline.FrameTimeHistory
+import org.deltacv.common.pipeline.PipelineStatisticsCalculator
+import org.deltacv.common.util.loggerForThis
+import org.opencv.core.Mat
+import org.opencv.imgcodecs.Imgcodecs
+import org.opencv.imgproc.Imgproc
+import java.io.File
+import java.time.LocalDateTime
+import java.time.format.DateTimeFormatter
+import java.util.Locale
+import java.util.Properties
+import java.util.concurrent.Executors
+
+/**
+ * Saves the input of frames that took longer than [thresholdMs] to [dir], along with
+ * the time spent in every [FrameTimeHistory.Stage], so that intermittent slow frames
+ * can be reproduced later by opening the saved input as an image source.
+ *
+ * Every capture is a directory containing [INPUT_FILE] and [BREAKDOWN_FILE].
+ * The input has to be copied before the pipeline gets it, since pipelines usually
+ * draw over it, so while enabled every frame costs a copy. Writing happens in the
+ * background, at most one capture every [MIN_CAPTURE_INTERVAL_MILLIS].
+ */
+class SlowFrameCapture(val dir: File = DEFAULT_DIR) {
+
+    companion object {
+        val DEFAULT_DIR = File(SysUtil.getEOCVSimFolder(), File.separator + "slow_frames")
+
+        const val INPUT_FILE = "input.png"
+        const val BREAKDOWN_FILE = "frame.properties"
+
+        const val MIN_CAPTURE_INTERVAL_MILLIS = 1000L
+
+        private val dirNameFormatter = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS")
+    }
+
+    private val logger by loggerForThis()
+
+    /**
+     * Frames that take longer than this are captured, 0 disables capturing
+     */
+    @Volatile var thresholdMs = 0
+
+    val isEnabled get() = thresholdMs > 0
+
+    private val writer = Executors.newSingleThreadExecutor {
+        Thread(it, "SlowFrameCapture-Writer").apply { isDaemon = true }
+    }
+
+    private var spare: Mat? = null
+    private var isWriting = false
+    private var lastCaptureMillis = 0L
+
+    /**
+     * Copies [input] before it's handed to the pipeline
+     * @return the copy, to be passed to [frameEnded] once the frame is over
+     */
+    fun copyInput(input: Mat): Mat {
+        val copy = synchronized(this) {
+            spare.also { spare = null }
+        } ?: Mat()
+
+        input.copyTo(copy)
+        return copy
+    }
+
+    /**
+     * Captures the frame if it went over the threshold, [stats] have to be
+     * past [PipelineStatisticsCalculator.endFrame] for this frame
+     * @param inputCopy the copy returned by [copyInput], owned by this capture afterwards
+     */
+    fun frameEnded(
+        inputCopy: Mat,
+        stats: PipelineStatisticsCalculator,
+        pipelineName: String,
+        sequence: Long
+    ) {
+        val threshold = thresholdMs
+        val frameNanos = stats.lastFrameNanos
+
+        val shouldCapture = synchronized(this) {
+            val now = System.currentTimeMillis()
+
+            (threshold > 0 && frameNanos > threshold * 1_000_000L && !isWriting &&
+                    now - lastCaptureMillis >= MIN_CAPTURE_INTERVAL_MILLIS).also {
+                if (it) {
+                    isWriting = true
+                    lastCaptureMillis = now
+                }
+            }
+        }
+
+        if (!shouldCapture) {
+            recycle(inputCopy)
+            return
+        }
+
+        val breakdown = Properties()
+        breakdown["pipeline"] = pipelineName
+        breakdown["sequence"] = sequence.toString()
+        breakdown["thresholdMs"] = threshold.toString()
+        breakdown["width"] = inputCopy.width().toString()
+        breakdown["height"] = inputCopy.height().toString()
+        breakdown["cvType"] = inputCopy.type().toString()
+        breakdown["totalMs"] = nanosToMs(frameNanos)
+        breakdown["inputMs"] = nanosToMs(stats.lastInputNanos)
+        breakdown["pipelineMs"] = nanosToMs(stats.lastPipelineNanos)
+        breakdown["postMs"] = nanosToMs(stats.lastPostNanos)
+        breakdown["avgFps"] = stats.avgFps.toString()
+        breakdown["avgPipelineMs"] = stats.avgPipelineTime.toString()
+        breakdown["avgTotalFrameMs"] = stats.avgTotalFrameTime.toString()
+
+        writer.execute {
+            try {
+                write(inputCopy, breakdown)
+            } catch (e: Exception) {
+                logger.error("Error while saving slow frame capture", e)
+            } finally {
+                synchronized(this) { isWriting = false }
+                recycle(inputCopy)
+            }
+        }
+    }
+
+    private fun write(input: Mat, breakdown: Properties) {
+        val captureDir = File(dir, "frame-${LocalDateTime.now().format(dirNameFormatter)}-${breakdown["sequence"]}")
+        captureDir.mkdirs()
+
+        // pipelines work in RGB(A), imwrite expects BGR(A)
+        when (input.channels()) {
+            4 -> Imgproc.cvtColor(input, input, Imgproc.COLOR_RGBA2BGRA)
+            3 -> Imgproc.cvtColor(input, input, Imgproc.COLOR_RGB2BGR)
+        }
+
+        if (!input.empty() && !Imgcodecs.imwrite(File(captureDir, INPUT_FILE).absolutePath, input)) {
+            logger.warn("Unable to write the input of a slow frame to ${captureDir.absolutePath}")
+        }
+
+        File(captureDir, BREAKDOWN_FILE).outputStream().use {
+            breakdown.store(it, "Slow frame capture")
+        }
+
+        logger.info("Frame ${breakdown["sequence"]} took ${breakdown["totalMs"]}ms, captured to ${captureDir.absolutePath}")
+    }
+
+    private fun recycle(mat: Mat) {
+        val kept = synchronized(this) {
+            (spare == null).also { if (it) spare = mat }
+        }
+
+        if (!kept) mat.release()
+    }
+
+    private fun nanosToMs(nanos: Long) = String.format(Locale.ROOT, "%.3f", nanos / 1_000_000.0)
+
+}
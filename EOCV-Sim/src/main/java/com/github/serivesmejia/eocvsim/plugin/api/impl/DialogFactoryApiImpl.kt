@@ -63,6 +63,9 @@ class DialogFactoryApiImpl(owner: EOCVSimPlugin, val internalVisualizer: Visuali
             InputSourceApi.Type.VIDEO -> SourceType.VIDEO
             InputSourceApi.Type.CAMERA -> SourceType.CAMERA
             InputSourceApi.Type.HTTP -> SourceType.HTTP
+            InputSourceApi.Type.IMAGE_SEQUENCE -> SourceType.IMAGE_SEQUENCE
+            InputSourceApi.Type.RAW_DUMP -> SourceType.RAW_DUMP
+            InputSourceApi.Type.SYNTHETIC -> SourceType.SYNTHETIC
         }
 
         dialogFactory.createSourceDialog(type, initialFile)
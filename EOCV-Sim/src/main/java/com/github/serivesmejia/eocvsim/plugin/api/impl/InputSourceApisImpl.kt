@@ -8,7 +8,10 @@ package com.github.serivesmejia.eocvsim.plugin.api.impl
 import com.github.serivesmejia.eocvsim.input.InputSourceManager
 import com.github.serivesmejia.eocvsim.input.source.CameraSource
 import com.github.serivesmejia.eocvsim.input.source.HttpSource
+import com.github.serivesmejia.eocvsim.input.source.ImageSequenceSource
 import com.github.serivesmejia.eocvsim.input.source.ImageSource
+import com.github.serivesmejia.eocvsim.input.source.RawDumpSource
+import com.github.serivesmejia.eocvsim.input.source.SyntheticSource
 import com.github.serivesmejia.eocvsim.input.source.VideoSource
 import org.deltacv.eocvsim.plugin.EOCVSimPlugin
 import org.deltacv.eocvsim.plugin.api.InputSourceApi
@@ -29,6 +32,20 @@ class InputSourceApiImpl(owner: EOCVSimPlugin, val internalInputSource: com.gith
             is ImageSource -> New.Image(internalInputSource.imgPath, internalInputSource.sourceSize)
             is VideoSource -> New.Video(internalInputSource.videoPath, internalInputSource.sourceSize)
             is HttpSource -> New.Http(internalInputSource.url)
+            is ImageSequenceSource -> New.ImageSequence(
+                internalInputSource.dirPath,
+                internalInputSource.pattern,
+                internalInputSource.fps,
+                internalInputSource.sourceSize
+            )
+            is RawDumpSource -> New.RawDump(internalInputSource.filePath, internalInputSource.fps, internalInputSource.unthrottled)
+            is SyntheticSource -> New.Synthetic(
+                internalInputSource.seed,
+                internalInputSource.size,
+                internalInputSource.fps,
+                internalInputSource.shapeCount,
+                internalInputSource.drawTags
+            )
             else -> throw IllegalStateException("Unknown input source type: ${internalInputSource::class.java}")
         }
     }
@@ -61,6 +78,9 @@ class InputSourceManagerApiImpl(owner: EOCVSimPlugin, val internalInputSourceMan
             is InputSourceApi.New.Image -> ImageSource(aNew.filePath, aNew.size)
             is InputSourceApi.New.Video -> VideoSource(aNew.filePath, aNew.size)
             is InputSourceApi.New.Http -> HttpSource(aNew.url)
+            is InputSourceApi.New.ImageSequence -> ImageSequenceSource(aNew.dirPath, aNew.pattern, aNew.fps, aNew.size)
+            is InputSourceApi.New.RawDump -> RawDumpSource(aNew.filePath, aNew.fps, aNew.unthrottled)
+            is InputSourceApi.New.Synthetic -> SyntheticSource(aNew.seed, aNew.size, aNew.fps, aNew.shapeCount, aNew.drawTags)
         }
 
         internalInputSourceManager.addInputSource(name, source)
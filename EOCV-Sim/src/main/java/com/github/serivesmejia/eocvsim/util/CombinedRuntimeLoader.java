@@ -23,23 +23,45 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HexFormat;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /** Loads dynamic libraries for all platforms. */
 public final class CombinedRuntimeLoader {
     private CombinedRuntimeLoader() {}
 
+    private static final Logger logger = LoggerFactory.getLogger(CombinedRuntimeLoader.class);
+
+    /**
+     * Name of the file, inside the extraction directory, recording the size, modification
+     * time and verified hash of every extracted library. A file whose size and mtime still
+     * match its stamp is trusted without being hashed again.
+     */
+    private static final String STAMP_FILE_NAME = ".extraction-stamp";
+
+    private static final Map<String, Long> libraryLoadTimesNanos = new ConcurrentHashMap<>();
+
     private static String extractionDirectory;
 
     private static final Object extractCompleteLock = new Object();
@@ -200,45 +222,147 @@ public final class CombinedRuntimeLoader {
             setExtractionDirectory(extractionPathString);
         }
 
-        List<String> extractedFiles = new ArrayList<>();
+        var stampFile = Paths.get(extractionPathString, STAMP_FILE_NAME);
+        var oldStamps = readStamps(stampFile);
+        var newStamps = new ConcurrentHashMap<String, Stamp>();
 
-        for (String file : filenameToHash.keySet()) {
-            try (var stream = clazz.getResourceAsStream(file)) {
-                Objects.requireNonNull(stream);
+        List<String> extractedFiles = new ArrayList<>();
+        List<Future<?>> tasks = new ArrayList<>();
 
-                var outputFile = Paths.get(extractionPathString, new File(file).getName());
+        int threads = Math.max(1, Math.min(filenameToHash.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "NativeExtractor");
+            t.setDaemon(true);
+            return t;
+        });
 
-                String fileHash = filenameToHash.get(file);
+        final var finalExtractionPath = extractionPathString;
 
+        try {
+            for (String file : filenameToHash.keySet()) {
+                var outputFile = Paths.get(finalExtractionPath, new File(file).getName());
                 extractedFiles.add(outputFile.toString());
-                if (outputFile.toFile().exists()) {
-                    if (hashEm(outputFile.toFile()).equals(fileHash)) {
-                        continue;
-                    } else {
-                        // Hashes don't match, delete and re-extract
-                        System.err.println(
-                                outputFile.toAbsolutePath().toString()
-                                        + " failed validation - deleting and re-extracting");
-                        outputFile.toFile().delete();
+
+                tasks.add(executor.submit(() -> {
+                    var stamp = extractAndVerify(clazz, file, outputFile, filenameToHash.get(file), oldStamps);
+                    newStamps.put(stamp.name(), stamp);
+                    return null;
+                }));
+            }
+
+            for (var task : tasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException io) {
+                        throw io;
                     }
+                    throw new IOException("Failed to extract native libraries", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while extracting native libraries", e);
                 }
-                var parent = outputFile.getParent();
-                if (parent == null) {
-                    throw new IOException("Output file has no parent");
-                }
-                parent.toFile().mkdirs();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
 
-                try (var os = Files.newOutputStream(outputFile)) {
-                    Files.copy(stream, outputFile, StandardCopyOption.REPLACE_EXISTING);
-                }
+        if (!newStamps.equals(oldStamps)) {
+            writeStamps(stampFile, newStamps);
+        }
+
+        return extractedFiles;
+    }
+
+    private record Stamp(String name, long size, long lastModified, String hash) {}
+
+    /**
+     * Extract a single library if needed, and verify it. Verification is skipped if the
+     * file on disk still matches the stamp recorded when it was last verified.
+     */
+    private static <T> Stamp extractAndVerify(
+            Class<T> clazz, String file, Path outputFile, String fileHash, Map<String, Stamp> stamps)
+            throws IOException {
+        var name = outputFile.getFileName().toString();
+
+        if (outputFile.toFile().exists()) {
+            var stamp = stamps.get(name);
+            var size = Files.size(outputFile);
+            var lastModified = Files.getLastModifiedTime(outputFile).toMillis();
+
+            if (stamp != null
+                    && stamp.size() == size
+                    && stamp.lastModified() == lastModified
+                    && stamp.hash().equals(fileHash)) {
+                return stamp;
+            }
+
+            if (hashEm(outputFile.toFile()).equals(fileHash)) {
+                return new Stamp(name, size, lastModified, fileHash);
+            } else {
+                // Hashes don't match, delete and re-extract
+                logger.warn("{} failed validation - deleting and re-extracting", outputFile.toAbsolutePath());
+                outputFile.toFile().delete();
+            }
+        }
+
+        var parent = outputFile.getParent();
+        if (parent == null) {
+            throw new IOException("Output file has no parent");
+        }
+        parent.toFile().mkdirs();
+
+        try (var stream = clazz.getResourceAsStream(file)) {
+            Objects.requireNonNull(stream);
+            Files.copy(stream, outputFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        if (!hashEm(outputFile.toFile()).equals(fileHash)) {
+            throw new IOException("Hash of extracted file does not match expected hash");
+        }
 
-                if (!hashEm(outputFile.toFile()).equals(fileHash)) {
-                    throw new IOException("Hash of extracted file does not match expected hash");
+        return new Stamp(name, Files.size(outputFile), Files.getLastModifiedTime(outputFile).toMillis(), fileHash);
+    }
+
+    private static Map<String, Stamp> readStamps(Path stampFile) {
+        Map<String, Stamp> stamps = new LinkedHashMap<>();
+        if (!Files.exists(stampFile)) {
+            return stamps;
+        }
+
+        try {
+            for (String line : Files.readAllLines(stampFile, StandardCharsets.UTF_8)) {
+                String[] parts = line.split("\t");
+                if (parts.length != 4) {
+                    continue;
                 }
+
+                stamps.put(parts[0], new Stamp(parts[0], Long.parseLong(parts[1]), Long.parseLong(parts[2]), parts[3]));
             }
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Failed to read native extraction stamp, all libraries will be verified", e);
+            stamps.clear();
         }
 
-        return extractedFiles;
+        return stamps;
+    }
+
+    private static void writeStamps(Path stampFile, Map<String, Stamp> stamps) {
+        StringBuilder sb = new StringBuilder();
+        for (var stamp : stamps.values()) {
+            sb.append(stamp.name()).append('\t')
+                    .append(stamp.size()).append('\t')
+                    .append(stamp.lastModified()).append('\t')
+                    .append(stamp.hash()).append('\n');
+        }
+
+        try {
+            var tmpFile = stampFile.resolveSibling(STAMP_FILE_NAME + ".tmp");
+            Files.writeString(tmpFile, sb.toString(), StandardCharsets.UTF_8);
+            Files.move(tmpFile, stampFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Failed to write native extraction stamp", e);
+        }
     }
 
     private static String hashEm(File f) throws IOException {
@@ -270,7 +394,13 @@ public final class CombinedRuntimeLoader {
                 if (extractedFile.contains(libraryName)) {
                     // Load it
                     currentPath = extractedFile;
+
+                    long startTime = System.nanoTime();
                     System.load(extractedFile);
+                    long took = System.nanoTime() - startTime;
+
+                    libraryLoadTimesNanos.put(libraryName, took);
+                    logger.info("Loaded native library {} in {} ms", libraryName, took / 1_000_000.0);
                     return;
                 }
             }
@@ -280,6 +410,15 @@ public final class CombinedRuntimeLoader {
         }
     }
 
+    /**
+     * Returns the time it took to load each native library, by library name
+     *
+     * @return An unmodifiable map of library name to load time in nanoseconds
+     */
+    public static Map<String, Long> getLibraryLoadTimesNanos() {
+        return Collections.unmodifiableMap(libraryLoadTimesNanos);
+    }
+
     /**
      * Load a list of native libraries out of a single directory.
      *
@@ -293,8 +432,12 @@ public final class CombinedRuntimeLoader {
         synchronized (extractCompleteLock) {
             if (!extractAndVerifyComplete) {
                 // Extract everything
+                long startTime = System.currentTimeMillis();
                 filesAlreadyExtracted = extractLibraries(clazz, "/ResourceInformation.json");
                 extractAndVerifyComplete = true;
+
+                logger.info("Extracted and verified {} native libraries in {} ms",
+                        filesAlreadyExtracted.size(), System.currentTimeMillis() - startTime);
             }
 
             for (var library : librariesToLoad) {
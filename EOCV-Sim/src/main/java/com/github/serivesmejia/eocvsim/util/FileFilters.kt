@@ -29,6 +29,21 @@ object FileFilters {
      */
     @JvmField val recordedVideoFilter = FileNameExtensionFilter("AVI (*.avi)", "avi")
 
+    /**
+     * Filter for raw frame dumps
+     */
+    @JvmField val rawFrameDumpFilter = FileNameExtensionFilter("Raw Frame Dump (*.eocvraw)", "eocvraw")
+
+    /**
+     * Filter for telemetry logs
+     */
+    @JvmField val telemetryLogFilter = FileNameExtensionFilter("Telemetry Log (*.eocvtlm)", "eocvtlm")
+
+    /**
+     * Filter for Java Flight Recorder files
+     */
+    @JvmField val flightRecordingFilter = FileNameExtensionFilter("Flight Recording (*.jfr)", "jfr")
+
     /**
      * Filter for log files
      */
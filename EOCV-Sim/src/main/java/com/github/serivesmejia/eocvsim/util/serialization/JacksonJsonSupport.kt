@@ -10,6 +10,7 @@ import com.fasterxml.jackson.annotation.PropertyAccessor
 import com.fasterxml.jackson.databind.DeserializationFeature
 import com.fasterxml.jackson.databind.ObjectMapper
 import com.fasterxml.jackson.databind.SerializationFeature
+import com.fasterxml.jackson.dataformat.smile.SmileFactory
 import com.fasterxml.jackson.module.kotlin.registerKotlinModule
 
 /**
@@ -18,6 +19,8 @@ import com.fasterxml.jackson.module.kotlin.registerKotlinModule
  * `persistenceMapper` is configured for the config/input-source files and only
  * serializes fields, avoiding getter-based schema drift from computed properties.
  * `ipcMapper` keeps the same Kotlin support but is meant for internal message payloads.
+ * `ipcBinaryMapper` is the same as `ipcMapper` but encodes to Smile (binary JSON), for
+ * compact internal messages.
  */
 object JacksonJsonSupport {
 
@@ -37,4 +40,11 @@ object JacksonJsonSupport {
         .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
         .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
         .enable(SerializationFeature.INDENT_OUTPUT)
+
+    @JvmField
+    val ipcBinaryMapper: ObjectMapper = ObjectMapper(SmileFactory())
+        .registerKotlinModule()
+        .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+        .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
 }
@@ -192,6 +192,8 @@ open class FilePluginLoaderImpl(
 
         plugin.onLoad()
 
+        logger.debug("Loaded plugin ${pluginInfo.name} class loader metrics: ${pluginClassLoader.metrics}")
+
         loaded = true
     }
 
@@ -7,12 +7,12 @@ package org.deltacv.eocvsim.plugin.loader
 
 import com.github.serivesmejia.eocvsim.util.SysUtil
 import com.github.serivesmejia.eocvsim.util.extension.removeFromEnd
-import org.deltacv.eocvsim.sandbox.restrictions.MethodCallByteCodeChecker
+import org.deltacv.common.util.loggerForThis
 import org.deltacv.eocvsim.sandbox.restrictions.dynamicCodeExactMatchBlacklist
-import org.deltacv.eocvsim.sandbox.restrictions.dynamicCodeMethodBlacklist
-import org.deltacv.eocvsim.sandbox.restrictions.dynamicCodePackageAlwaysBlacklist
-import org.deltacv.eocvsim.sandbox.restrictions.dynamicCodePackageBlacklist
-import org.deltacv.eocvsim.sandbox.restrictions.dynamicCodePackageWhitelist
+import org.deltacv.eocvsim.sandbox.restrictions.dynamicCodeMethodCheckCache
+import org.deltacv.eocvsim.sandbox.restrictions.dynamicCodePackageAlwaysBlacklistTrie
+import org.deltacv.eocvsim.sandbox.restrictions.dynamicCodePackageBlacklistTrie
+import org.deltacv.eocvsim.sandbox.restrictions.dynamicCodePackageWhitelistTrie
 import java.io.ByteArrayOutputStream
 import java.lang.ref.WeakReference
 import java.io.File
@@ -20,6 +20,7 @@ import java.io.IOException
 import java.io.InputStream
 import java.net.URI
 import java.net.URL
+import java.util.concurrent.atomic.AtomicLong
 import java.util.zip.ZipEntry
 import java.util.zip.ZipFile
 
@@ -35,40 +36,128 @@ class PluginClassLoader(
     val pluginLoader: PluginLoader
 ) : ClassLoader(), PluginContextHolder {
 
+    val logger by loggerForThis()
+
     private var additionalZipFiles = mutableListOf<WeakReference<ZipFile>>()
 
     private var zipFiles = mutableMapOf<File, ZipFile>()
 
-    private var classpathCacheLock = Any()
-    private var classpathCache = mutableMapOf<String, File>()
-
     private val zipFile = try {
         ZipFile(pluginJar)
     } catch (e: Exception) {
         throw IOException("Failed to open plugin JAR file", e)
     }
 
+    /**
+     * Maps every package directory (e.g. "org/opencv/core") found in the
+     * classpath jars to the jars containing it, in classpath order.
+     * Built once, on the first lookup that misses the plugin jar, so that class
+     * and resource lookups don't have to scan every jar.
+     */
+    private val packageIndex by lazy { buildPackageIndex() }
+
     private val loadedClasses = mutableMapOf<String, Class<*>>()
 
+    private var prechecked = false
+
+    val metrics = Metrics()
+
+    private fun buildPackageIndex(): Map<String, List<ZipFile>> {
+        val index = mutableMapOf<String, MutableList<ZipFile>>()
+        val indexTime = System.nanoTime()
+
+        for (file in classpath) {
+            if (file == pluginJar || zipFiles.containsKey(file)) continue
+
+            val classpathZip = try {
+                ZipFile(file)
+            } catch (e: Exception) {
+                logger.warn("Failed to open classpath file ${file.absolutePath}", e)
+                continue
+            }
+
+            zipFiles[file] = classpathZip
+
+            for (entry in classpathZip.entries()) {
+                index.addJar(packageOf(entry.name), classpathZip)
+
+                // directories are looked up as "some/dir/" and as "some/dir", which the jar resolves to the former
+                if (entry.isDirectory) {
+                    index.addJar(packageOf(entry.name.removeSuffix("/")), classpathZip)
+                }
+            }
+        }
+
+        metrics.indexBuildNanos = System.nanoTime() - indexTime
+
+        logger.debug(
+            "Indexed {} packages from {} classpath jars in {} ms",
+            index.size, zipFiles.size, metrics.indexBuildNanos / 1_000_000
+        )
+
+        return index
+    }
+
+    private fun MutableMap<String, MutableList<ZipFile>>.addJar(packageName: String, jar: ZipFile) {
+        val jars = getOrPut(packageName) { mutableListOf() }
+        if (jars.lastOrNull() !== jar) jars.add(jar)
+    }
+
     private fun loadClass(entry: ZipEntry, zipFile: ZipFile = this.zipFile): Class<*> {
         val name = entry.name.removeFromEnd(".class").replace('/', '.')
+        val startTime = System.nanoTime()
 
         zipFile.getInputStream(entry).use { inStream ->
             ByteArrayOutputStream().use { outStream ->
                 SysUtil.copyStream(inStream, outStream)
                 val bytes = outStream.toByteArray()
 
-                if (!pluginLoader.hasSuperAccess)
-                    MethodCallByteCodeChecker(bytes, dynamicCodeMethodBlacklist)
+                if (!pluginLoader.hasSuperAccess) {
+                    precheckPluginClasses()
+                    dynamicCodeMethodCheckCache.check(bytes)
+                }
 
                 val clazz = defineClass(name, bytes, 0, bytes.size)
                 loadedClasses[name] = clazz
 
+                metrics.classesDefined.incrementAndGet()
+                metrics.defineNanos.addAndGet(System.nanoTime() - startTime)
+
                 return clazz
             }
         }
     }
 
+    /**
+     * Runs the bytecode check over every class of the plugin jar in parallel,
+     * so that the individual class loads only hit the verdict cache afterwards.
+     * Only done once, and only if the plugin doesn't have super access.
+     * Multi-release variants under META-INF/ and module descriptors are skipped,
+     * they're never defined by this class loader through the regular class names.
+     */
+    @Synchronized
+    private fun precheckPluginClasses() {
+        if (prechecked) return
+        prechecked = true
+
+        val startTime = System.currentTimeMillis()
+
+        val classes = zipFile.entries().asSequence()
+            .filter {
+                !it.isDirectory && it.name.endsWith(".class") &&
+                        !it.name.startsWith("META-INF/") && !it.name.endsWith("module-info.class")
+            }
+            .map { entry -> zipFile.getInputStream(entry).use { it.readBytes() } }
+            .toList()
+
+        val checked = dynamicCodeMethodCheckCache.precheck(classes)
+
+        logger.debug(
+            "Bytecode check of {}: {} classes, {} not cached, took {} ms",
+            pluginJar.name, classes.size, checked, System.currentTimeMillis() - startTime
+        )
+    }
+
     override fun findClass(name: String) = loadedClasses[name] ?: loadClass(name, false)
 
     /**
@@ -86,40 +175,26 @@ class PluginClassLoader(
         try {
             if (clazz == null) {
                 // 1) ALWAYS deny (no exceptions)
-                for (pkg in dynamicCodePackageAlwaysBlacklist) {
-                    if (name.startsWith(pkg)) {
-                        throw IllegalAccessError("Usage of $name is always forbidden for plugins")
-                    }
+                if (dynamicCodePackageAlwaysBlacklistTrie.matchesRawPrefix(name)) {
+                    throw IllegalAccessError("Usage of $name is always forbidden for plugins")
                 }
 
                 // 2) Super access skips everything else
                 if (!pluginLoader.hasSuperAccess) {
 
                     // 3) Exact class deny (precision kill)
-                    for (cls in dynamicCodeExactMatchBlacklist) {
-                        if (name == cls) {
-                            throw IllegalAccessError("Usage of $name is forbidden for plugins")
-                        }
+                    if (name in dynamicCodeExactMatchBlacklist) {
+                        throw IllegalAccessError("Usage of $name is forbidden for plugins")
                     }
 
                     // 4) Whitelist gate
-                    var whitelisted = false
-                    for (pkg in dynamicCodePackageWhitelist) {
-                        if (inPackage(name, pkg)) {
-                            whitelisted = true
-                            break
-                        }
-                    }
-
-                    if (!whitelisted) {
+                    if (!dynamicCodePackageWhitelistTrie.matchesPackage(name)) {
                         throw IllegalAccessError("Plugins are not whitelisted to use $name")
                     }
 
                     // 5) Sub-package blacklist (overrides whitelist)
-                    for (pkg in dynamicCodePackageBlacklist) {
-                        if (inPackage(name, pkg)) {
-                            throw IllegalAccessError("Plugins are blacklisted from using $name")
-                        }
+                    if (dynamicCodePackageBlacklistTrie.matchesPackage(name)) {
+                        throw IllegalAccessError("Plugins are blacklisted from using $name")
                     }
                 }
 
@@ -138,8 +213,9 @@ class PluginClassLoader(
         return clazz!!
     }
 
-    private fun inPackage(className: String, pkg: String): Boolean {
-        return className == pkg || className.startsWith("$pkg.")
+    private fun packageOf(entryName: String): String {
+        val lastSlash = entryName.lastIndexOf('/')
+        return if (lastSlash == -1) "" else entryName.substring(0, lastSlash)
     }
 
     override fun getResourceAsStream(name: String): InputStream? {
@@ -184,55 +260,15 @@ class PluginClassLoader(
      * Get a resource from the classpath specified in the constructor
      */
     fun resourceFromClasspath(name: String): URL? {
-        fun resFromJarFile(file: File): URL? {
-            if (file == pluginJar) return null
+        metrics.classpathLookups.incrementAndGet()
 
-            try {
-                val zipFile = zipFiles[file] ?: ZipFile(file)
-                zipFiles[file] = zipFile
+        for (jar in packageIndex[packageOf(name)] ?: return null) {
+            jar.getEntry(name) ?: continue
 
-                zipFile.getEntry(name) ?: return null
-
-                val packages = name.split("/")
-
-                val firstPackage = if (packages.size > 3)
-                    packages[0] + "." + packages[1] + "." + packages[3]
-                else if (packages.size > 2)
-                    packages[0] + "." + packages[1]
-                else name
-
-                synchronized(classpathCacheLock) {
-                    classpathCache[firstPackage] = file
-                }
-
-                try {
-                    return URI("jar:file:${file.absolutePath}!/$name").toURL()
-                } catch (_: Exception) {
-                }
+            try {
+                return URI("jar:file:${File(jar.name).absolutePath}!/$name").toURL()
             } catch (_: Exception) {
             }
-
-            return null
-        }
-
-        val cache = synchronized(classpathCacheLock) {
-            classpathCache.filterKeys { name.contains(it.replace("/", ".")) }
-        }
-
-        for ((cacheName, file) in cache) {
-            if (name.contains(cacheName)) {
-                val res = resFromJarFile(file)
-                if (res != null) {
-                    return res
-                }
-            }
-        }
-
-        for (file in classpath) {
-            val res = resFromJarFile(file)
-            if (res != null) {
-                return res
-            }
         }
 
         return null
@@ -242,50 +278,17 @@ class PluginClassLoader(
      * Load a class from the classpath specified in the constructor
      */
     fun classFromClasspath(className: String): Class<*>? {
-        fun classFromJarFile(file: File): Class<*>? {
-            if (file == pluginJar) return null
-
-            try {
-                val zipFile = zipFiles[file] ?: ZipFile(file)
-                zipFiles[file] = zipFile
+        metrics.classpathLookups.incrementAndGet()
 
-                val entry = zipFile.getEntry(className.replace('.', '/') + ".class") ?: return null
+        val entryName = className.replace('.', '/') + ".class"
 
-                val packages = className.split(".")
+        for (jar in packageIndex[packageOf(entryName)] ?: return null) {
+            val entry = jar.getEntry(entryName) ?: continue
 
-                val firstPackage = if (packages.size > 3)
-                    packages[0] + "." + packages[1] + "." + packages[3]
-                else if (packages.size > 2)
-                    packages[0] + "." + packages[1]
-                else className
-
-                synchronized(classpathCacheLock) {
-                    classpathCache[firstPackage] = file
-                }
-
-                return loadClass(entry, zipFile = zipFile)
+            try {
+                return loadClass(entry, zipFile = jar)
             } catch (_: Exception) {
             }
-
-            return null
-        }
-
-        val cache = synchronized(classpathCacheLock) {
-            classpathCache.filterKeys { className.contains(it) }
-        }
-
-        for ((name, file) in cache) {
-            if (className.contains(name)) {
-                val clazz = classFromJarFile(file)
-                if (clazz != null) {
-                    return clazz
-                }
-            }
-        }
-
-        for (file in classpath) {
-            val clazz = classFromJarFile(file)
-            if (clazz != null) return clazz
         }
 
         return null
@@ -303,5 +306,21 @@ class PluginClassLoader(
 
     override fun toString() = "PluginClassLoader@\"${pluginJar.name}\""
 
+    class Metrics {
+        @Volatile
+        var indexBuildNanos = 0L
+            internal set
+
+        val classesDefined = AtomicLong()
+        val defineNanos = AtomicLong()
+        val classpathLookups = AtomicLong()
+
+        val averageDefineNanos get() = classesDefined.get().let { if (it == 0L) 0L else defineNanos.get() / it }
+
+        override fun toString() =
+            "index built in ${indexBuildNanos / 1_000}us, ${classesDefined.get()} classes defined " +
+                    "(avg ${averageDefineNanos / 1_000}us each), ${classpathLookups.get()} classpath lookups"
+    }
+
     override val pluginContext by lazy { PluginContext(pluginLoader) }
 }
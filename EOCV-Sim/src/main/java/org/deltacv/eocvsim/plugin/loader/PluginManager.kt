@@ -21,8 +21,12 @@ import org.deltacv.eocvsim.plugin.repository.PluginRepositoryManager
 import org.deltacv.eocvsim.plugin.security.superaccess.SuperAccessDaemon
 import org.deltacv.eocvsim.plugin.security.superaccess.SuperAccessDaemonClient
 import org.deltacv.eocvsim.plugin.security.toMutable
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
 import kotlinx.coroutines.channels.Channel
 import kotlinx.coroutines.runBlocking
+import kotlinx.coroutines.withContext
 import org.koin.core.component.KoinComponent
 import org.koin.core.component.inject
 import org.koin.core.qualifier.named
@@ -149,25 +153,39 @@ class PluginManager : PhaseOrchestrableBase(), KoinComponent {
             outputHandler.sendOutputLine("No plugin files to load")
         }
 
-        for (pluginFile in pluginFiles) {
-            try {
-                val loader = FilePluginLoaderImpl(
-                    pluginFile,
-                    repositoryManager.resolvedFiles,
-                    if (pluginFile in repositoryManager.resolvedFiles)
-                        PluginSource.REPOSITORY else PluginSource.FILE,
-                    this,
-                    outputHandler
-                )
+        // plugin loaders are independent from each other, so they're created concurrently
+        // (opening the jars and indexing their classpath). they're added in the original
+        // order afterward so that loading and enabling stays deterministic
+        val createdLoaders = withContext(Dispatchers.IO) {
+            pluginFiles.map { pluginFile ->
+                async {
+                    val loader = try {
+                        FilePluginLoaderImpl(
+                            pluginFile,
+                            repositoryManager.resolvedFiles,
+                            if (pluginFile in repositoryManager.resolvedFiles)
+                                PluginSource.REPOSITORY else PluginSource.FILE,
+                            this@PluginManager,
+                            outputHandler
+                        )
+                    } catch (e: Throwable) {
+                        reportLoaderCreationFailure(pluginFile, e)
+                        return@async null
+                    }
 
-                _loaders.add(loader)
-                loader.fetchInfoFromToml()
-            } catch (e: Throwable) {
-                outputHandler.sendOutputLine("Failure creating PluginLoader for ${pluginFile.name}: ${e.message}")
-                logger.error("Failure creating PluginLoader for ${pluginFile.name}", e)
-            }
+                    try {
+                        loader.fetchInfoFromToml()
+                    } catch (e: Throwable) {
+                        reportLoaderCreationFailure(pluginFile, e)
+                    }
+
+                    loader
+                }
+            }.awaitAll()
         }
 
+        _loaders.addAll(createdLoaders.filterNotNull())
+
         enableTimestamp = System.currentTimeMillis()
         isEnabled = true
 
@@ -213,6 +231,11 @@ class PluginManager : PhaseOrchestrableBase(), KoinComponent {
         loadPlugins()
     }
 
+    private fun reportLoaderCreationFailure(pluginFile: File, e: Throwable) {
+        outputHandler.sendOutputLine("Failure creating PluginLoader for ${pluginFile.name}: ${e.message}")
+        logger.error("Failure creating PluginLoader for ${pluginFile.name}", e)
+    }
+
     override suspend fun run() { }
 
     override suspend fun destroy() {
@@ -234,6 +257,8 @@ class PluginManager : PhaseOrchestrableBase(), KoinComponent {
      * @see PluginLoader.load
      */
     private fun loadPlugins() {
+        verifySignatures()
+
         for (loader in _loaders.toTypedArray()) {
             try {
                 val hash = loader.hash()
@@ -271,6 +296,36 @@ class PluginManager : PhaseOrchestrableBase(), KoinComponent {
         }
     }
 
+    /**
+     * Verifies the signatures of all file plugins concurrently ahead of loading them.
+     * The results are kept by each loader, failures are left to be thrown by the
+     * sequential [PluginLoader.load] calls so that they're reported in order.
+     */
+    private fun verifySignatures() {
+        val startTime = System.currentTimeMillis()
+
+        val fileLoaders = _loaders.filterIsInstance<FilePluginLoaderImpl>().filter {
+            try {
+                it.shouldEnable
+            } catch (_: Throwable) {
+                false
+            }
+        }
+
+        runBlocking(Dispatchers.IO) {
+            fileLoaders.map { loader ->
+                async {
+                    try {
+                        loader.signature
+                    } catch (_: Throwable) {
+                    }
+                }
+            }.awaitAll()
+        }
+
+        logger.info("Verified signatures of ${fileLoaders.size} plugins in ${System.currentTimeMillis() - startTime} ms")
+    }
+
     /**
      * Enables all plugins
      * @see PluginLoader.enable
@@ -7,6 +7,7 @@ package org.deltacv.eocvsim.plugin.security.superaccess
 
 import com.github.serivesmejia.eocvsim.util.extension.fileHash
 import com.github.serivesmejia.eocvsim.util.extension.plus
+import com.github.serivesmejia.eocvsim.util.io.FileWatcher
 import com.github.serivesmejia.eocvsim.util.serialization.JacksonJsonSupport
 import org.deltacv.common.util.loggerForThis
 import com.fasterxml.jackson.annotation.JsonTypeInfo
@@ -24,6 +25,7 @@ import org.java_websocket.handshake.ServerHandshake
 import java.io.File
 import java.lang.Exception
 import java.net.URI
+import java.nio.ByteBuffer
 import java.util.concurrent.ConcurrentHashMap
 import java.util.concurrent.Executors
 import java.util.concurrent.locks.ReentrantLock
@@ -36,6 +38,7 @@ object SuperAccessDaemon {
     val logger by loggerForThis()
 
     val mapper = JacksonJsonSupport.ipcMapper
+    val binaryMapper = JacksonJsonSupport.ipcBinaryMapper
 
     @get:Synchronized
     @set:Synchronized
@@ -57,9 +60,50 @@ object SuperAccessDaemon {
 
     val SUPERACCESS_FILE = PluginManager.PLUGIN_CACHING_FOLDER + File.separator + "superaccess.txt"
 
-    private val access = ConcurrentHashMap<String, Boolean>()
     private val fileLock = ReentrantLock()
 
+    /**
+     * In-memory copy of the hashes granted in [SUPERACCESS_FILE].
+     * Reloaded by a file watcher whenever the file changes on disk,
+     * so checks don't need to read and parse the file every time.
+     */
+    private val grantedHashes = ConcurrentHashMap.newKeySet<String>()
+    @Volatile
+    private var grantedFileStamp = Pair(-1L, -1L)
+
+    private fun reloadGrantedHashes() = fileLock.withLock {
+        val stamp = Pair(SUPERACCESS_FILE.length(), SUPERACCESS_FILE.lastModified())
+        if(stamp == grantedFileStamp) return@withLock
+
+        val lines = if(SUPERACCESS_FILE.exists()) SUPERACCESS_FILE.readLines() else emptyList()
+
+        grantedHashes.retainAll(lines.toSet())
+        lines.filterTo(grantedHashes) { it.isNotBlank() }
+
+        grantedFileStamp = stamp
+        logger.info("Loaded ${grantedHashes.size} SuperAccess grants")
+    }
+
+    // always hashed from the current contents, size and mtime can be kept while swapping the file.
+    // repeated checks are absorbed by the cache of the SuperAccessDaemonClient instead
+    private fun hasAccess(pluginFile: File) = pluginFile.fileHash() in grantedHashes
+
+    private fun grantAccess(pluginFile: File) {
+        val hash = pluginFile.fileHash()
+
+        fileLock.withLock {
+            if (!SUPERACCESS_FILE.exists()) {
+                SUPERACCESS_FILE.createNewFile()
+            }
+            // Re-check in case another thread granted access in the meantime
+            if (grantedHashes.add(hash)) {
+                SUPERACCESS_FILE.appendText(hash + "\n")
+            }
+
+            grantedFileStamp = Pair(SUPERACCESS_FILE.length(), SUPERACCESS_FILE.lastModified())
+        }
+    }
+
     @JvmStatic
     fun main(args: Array<String>) {
         if(args.size < 2) {
@@ -75,6 +119,12 @@ object SuperAccessDaemon {
         System.setProperty("apple.awt.application.appearance", "system")
         System.setProperty("apple.awt.application.name", "EasyOpenCV Simulator - SuperAccess")
 
+        reloadGrantedHashes()
+
+        val watcher = FileWatcher(listOf(PluginManager.PLUGIN_CACHING_FOLDER), listOf("txt"), "SuperAccess")
+        watcher.onChange { reloadGrantedHashes() }
+        watcher.init()
+
         // start websocket client, listen for EOCV-Sim's requests
         WsClient(args[0].toIntOrNull() ?: throw IllegalArgumentException("Port is not a valid int"), args[1].toBoolean()).connect()
     }
@@ -89,36 +139,42 @@ object SuperAccessDaemon {
         }
 
         override fun onMessage(msg: String) {
-            val message = mapper.readValue(msg, SuperAccessMessage::class.java)
+            handleMessage(mapper.readValue(msg, SuperAccessMessage::class.java), false)
+        }
+
+        override fun onMessage(bytes: ByteBuffer) {
+            val data = ByteArray(bytes.remaining())
+            bytes.get(data)
 
+            handleMessage(binaryMapper.readValue(data, SuperAccessMessage::class.java), true)
+        }
+
+        // responses are sent back with the same encoding the message came with
+        private fun handleMessage(message: SuperAccessMessage, binary: Boolean) {
             executor.submit {
                 when (message) {
                     is SuperAccessMessage.Request -> {
-                        handleRequest(message)
+                        handleRequest(message, binary)
                     }
 
                     is SuperAccessMessage.Check -> {
-                        handleCheck(message)
+                        handleCheck(message, binary)
                     }
                 }
             }
         }
 
-        private fun handleRequest(message: SuperAccessMessage.Request) {
+        private fun handleRequest(message: SuperAccessMessage.Request, binary: Boolean) {
             val pluginFile = File(message.pluginPath)
 
             val parser = parsePlugin(pluginFile) ?: run {
                 logger.error("Failed to parse plugin at ${message.pluginPath}")
-                send(mapper.writeValueAsString(SuperAccessResponse.Failure(message.id)))
+                respond(SuperAccessResponse.Failure(message.id), binary)
                 return@handleRequest
             }
 
-            val hasAccess = fileLock.withLock {
-                SUPERACCESS_FILE.exists() && SUPERACCESS_FILE.readLines().contains(pluginFile.fileHash())
-            }
-
-            if(hasAccess) {
-                accessGranted(message.id, message.pluginPath)
+            if(hasAccess(pluginFile)) {
+                accessGranted(message.id, binary)
                 return
             }
 
@@ -160,16 +216,8 @@ object SuperAccessDaemon {
 
             // helper function to grant access, avoid code duplication
             fun grant() {
-                fileLock.withLock {
-                    if (!SUPERACCESS_FILE.exists()) {
-                        SUPERACCESS_FILE.createNewFile()
-                    }
-                    // Re-check in case another thread granted access in the meantime
-                    if (!SUPERACCESS_FILE.readLines().contains(pluginFile.fileHash())) {
-                        SUPERACCESS_FILE.appendText(pluginFile.fileHash() + "\n")
-                    }
-                }
-                accessGranted(message.id, message.pluginPath)
+                grantAccess(pluginFile)
+                accessGranted(message.id, binary)
             }
 
             warning += if(validAuthority != null) {
@@ -193,46 +241,32 @@ object SuperAccessDaemon {
                     if(granted) {
                         grant()
                     } else {
-                        accessDenied(message.id, message.pluginPath)
+                        accessDenied(message.id, binary)
                     }
                 }
             }
         }
 
-        private fun handleCheck(message: SuperAccessMessage.Check) {
-            if(access.containsKey(message.pluginPath)) {
-                if(access[message.pluginPath] == true) {
-                    accessGranted(message.id, message.pluginPath)
-                    return
-                } else {
-                    accessDenied(message.id, message.pluginPath)
-                    return
-                }
+        private fun handleCheck(message: SuperAccessMessage.Check, binary: Boolean) {
+            if(hasAccess(File(message.pluginPath))) {
+                accessGranted(message.id, binary)
+            } else {
+                accessDenied(message.id, binary)
             }
+        }
 
-            val pluginFile = File(message.pluginPath)
+        private fun accessGranted(id: Int, binary: Boolean) = respond(SuperAccessResponse.Success(id), binary)
 
-            val hasAccess = fileLock.withLock {
-                SUPERACCESS_FILE.exists() && SUPERACCESS_FILE.readLines().contains(pluginFile.fileHash())
-            }
+        private fun accessDenied(id: Int, binary: Boolean) = respond(SuperAccessResponse.Failure(id), binary)
 
-            if(hasAccess) {
-                accessGranted(message.id, message.pluginPath)
+        private fun respond(response: SuperAccessResponse, binary: Boolean) {
+            if(binary) {
+                send(binaryMapper.writeValueAsBytes(response))
             } else {
-                accessDenied(message.id, message.pluginPath)
+                send(mapper.writeValueAsString(response))
             }
         }
 
-        private fun accessGranted(id: Int, pluginPath: String) {
-            access[pluginPath] = true
-            send(mapper.writeValueAsString(SuperAccessResponse.Success(id)))
-        }
-
-        private fun accessDenied(id: Int, pluginPath: String) {
-            access[pluginPath] = false
-            send(mapper.writeValueAsString(SuperAccessResponse.Failure(id)))
-        }
-
         override fun onClose(p0: Int, p1: String?, p2: Boolean) {
             logger.info("SuperAccessDaemon connection closed: $p0, $p1, $p2")
             exitProcess(-1)
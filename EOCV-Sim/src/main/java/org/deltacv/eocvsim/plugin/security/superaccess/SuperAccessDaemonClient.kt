@@ -9,18 +9,22 @@ import com.github.serivesmejia.eocvsim.util.JavaProcess
 import com.github.serivesmejia.eocvsim.util.serialization.JacksonJsonSupport
 import org.deltacv.common.util.loggerForThis
 import org.java_websocket.WebSocket
+import org.java_websocket.exceptions.WebsocketNotConnectedException
 import org.java_websocket.handshake.ClientHandshake
 import org.java_websocket.server.WebSocketServer
 import java.io.File
 import java.lang.Exception
 import java.net.InetSocketAddress
+import java.nio.ByteBuffer
+import java.util.concurrent.CompletableFuture
 import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.TimeoutException
 import java.util.concurrent.locks.Condition
 import java.util.concurrent.locks.ReentrantLock
 import kotlin.concurrent.withLock
 
 typealias ResponseReceiver = (SuperAccessDaemon.SuperAccessResponse) -> Unit
-typealias ResponseCondition = (SuperAccessDaemon.SuperAccessResponse) -> Boolean
 
 private data class AccessCache(
     val file: String,
@@ -28,11 +32,22 @@ private data class AccessCache(
     val timestamp: Long
 )
 
+/**
+ * Talks to the [SuperAccessDaemon] process over a single long-lived WebSocket connection
+ * @param cacheTTLMillis how long an access check result is reused before asking the daemon again
+ * @param autoacceptOnTrusted whether the daemon should grant access automatically to signed plugins
+ * @param binaryMessages whether to encode messages with Smile (binary) instead of JSON text
+ */
 class SuperAccessDaemonClient(
     val cacheTTLMillis: Long = 3_000,
-    val autoacceptOnTrusted: Boolean
+    val autoacceptOnTrusted: Boolean,
+    val binaryMessages: Boolean = true
 ) {
 
+    companion object {
+        const val CHECK_TIMEOUT_SECONDS = 5L
+    }
+
     val logger by loggerForThis()
 
     private val startLock = ReentrantLock()
@@ -52,8 +67,11 @@ class SuperAccessDaemonClient(
         server = WsServer(startLock, startCondition, autoacceptOnTrusted)
         server!!.start()
 
+        // the daemon may connect before we get to wait for it
         startLock.withLock {
-            startCondition.await()
+            while (!server!!.isConnected) {
+                startCondition.await()
+            }
         }
 
         logger.info("SuperAccessDaemonClient initialized")
@@ -62,31 +80,24 @@ class SuperAccessDaemonClient(
 
     fun sendRequest(request: SuperAccessDaemon.SuperAccessMessage.Request, onResponse: (Boolean) -> Unit) {
         initIfNeeded()
-        
-        if(server!!.connections.isEmpty()) {
-            onResponse(false)
-            return
-        }
-
-        server!!.broadcast(JacksonJsonSupport.ipcMapper.writeValueAsString(request))
 
+        // registered before sending, the response may arrive before sendMessage returns
         server!!.addResponseReceiver(request.id) { response ->
-            val result = when (response) {
-                is SuperAccessDaemon.SuperAccessResponse.Success -> {
-                    onResponse(true)
-                    true
-                }
-
-                is SuperAccessDaemon.SuperAccessResponse.Failure -> {
-                    onResponse(false)
-                    false
-                }
-            }
+            val result = response is SuperAccessDaemon.SuperAccessResponse.Success
 
             synchronized(cacheLock) {
                 val newCache = AccessCache(request.pluginPath, result, System.currentTimeMillis())
                 accessCache[request.pluginPath] = newCache
             }
+
+            onResponse(result)
+        }
+
+        if (!server!!.sendMessage(request, binaryMessages)) {
+            server!!.removeResponseReceiver(request.id)
+
+            logger.warn("Unable to send super access request for ${request.pluginPath}, the daemon isn't connected")
+            onResponse(false)
         }
     }
 
@@ -103,40 +114,36 @@ class SuperAccessDaemonClient(
         
         initIfNeeded()
 
-        val lock = ReentrantLock()
-        val condition = lock.newCondition()
-
         val check = SuperAccessDaemon.SuperAccessMessage.Check(file.absolutePath)
-        server!!.broadcast(JacksonJsonSupport.ipcMapper.writeValueAsString(check))
-
-        var hasAccess = false
+        val hasAccess = CompletableFuture<Boolean>()
 
         server!!.addResponseReceiver(check.id) { response ->
-            if(response is SuperAccessDaemon.SuperAccessResponse.Success) {
-                hasAccess = true
+            hasAccess.complete(response is SuperAccessDaemon.SuperAccessResponse.Success)
+        }
 
-                lock.withLock {
-                    condition.signalAll()
-                }
-            } else if(response is SuperAccessDaemon.SuperAccessResponse.Failure) {
-                hasAccess = false
+        if (!server!!.sendMessage(check, binaryMessages)) {
+            server!!.removeResponseReceiver(check.id)
 
-                lock.withLock {
-                    condition.signalAll()
-                }
-            }
+            logger.warn("Unable to check super access for ${file.absolutePath}, the daemon isn't connected")
+            return false
         }
 
-        lock.withLock {
-            condition.await(5, java.util.concurrent.TimeUnit.SECONDS)
+        // failures to get an answer aren't cached, the next check asks again
+        val result = try {
+            hasAccess.get(CHECK_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+        } catch (_: TimeoutException) {
+            server!!.removeResponseReceiver(check.id)
+
+            logger.warn("The daemon didn't answer the super access check for ${file.absolutePath} in time")
+            return false
         }
 
         synchronized(cacheLock) {
-            val newCache = AccessCache(file.absolutePath, hasAccess, System.currentTimeMillis())
+            val newCache = AccessCache(file.absolutePath, result, System.currentTimeMillis())
             accessCache[file.absolutePath]  = newCache
         }
 
-        return hasAccess
+        return result
     }
 
     private class WsServer(
@@ -149,18 +156,46 @@ class SuperAccessDaemonClient(
 
         val logger by loggerForThis()
 
+        // receivers of the responses still pending, by message id
         private val responseReceiverLock = Any()
-        private val responseReceiver = mutableMapOf<ResponseCondition, ResponseReceiver>()
-
         private val pendingRequests = mutableMapOf<Int, ResponseReceiver>()
+
         private var processRestarts = 0
 
+        @Volatile
+        private var daemonConnection: WebSocket? = null
+
+        val isConnected get() = daemonConnection != null
+
+        /**
+         * Sends a message to the daemon through its connection, reused for every message
+         * @return false if the daemon isn't connected and the message couldn't be sent
+         */
+        fun sendMessage(message: SuperAccessDaemon.SuperAccessMessage, binary: Boolean): Boolean {
+            val connection = daemonConnection ?: connections.firstOrNull() ?: return false
+
+            try {
+                if(binary) {
+                    connection.send(JacksonJsonSupport.ipcBinaryMapper.writeValueAsBytes(message))
+                } else {
+                    connection.send(JacksonJsonSupport.ipcMapper.writeValueAsString(message))
+                }
+            } catch(_: WebsocketNotConnectedException) {
+                return false
+            }
+
+            return true
+        }
+
         // Notify all pending requests if the process dies
         private fun notifyPendingRequestsOfFailure() {
-            pendingRequests.forEach { key, value ->
+            val pending = synchronized(responseReceiverLock) {
+                pendingRequests.toMap().also { pendingRequests.clear() }
+            }
+
+            pending.forEach { (key, value) ->
                 value(SuperAccessDaemon.SuperAccessResponse.Failure(key))
             }
-            pendingRequests.clear()
         }
 
         override fun onOpen(conn: WebSocket, p1: ClientHandshake?) {
@@ -168,8 +203,11 @@ class SuperAccessDaemonClient(
             if(hostString != "127.0.0.1" && hostString != "localhost" && hostString != "0.0.0.0") {
                 logger.warn("Connection from ${conn.remoteSocketAddress} refused, only localhost connections are allowed")
                 conn.close(1013, "Ipc does not allow connections incoming from non-localhost addresses")
+                return
             }
 
+            daemonConnection = conn
+
             logger.info("SuperAccessDaemon is here.")
 
             processRestarts = 0
@@ -186,21 +224,28 @@ class SuperAccessDaemonClient(
             p3: Boolean
         ) {
             logger.info("SuperAccessDaemon is gone.")
+
+            if(p0 == daemonConnection) daemonConnection = null
             notifyPendingRequestsOfFailure() // Notify all waiting clients
         }
 
         override fun onMessage(ws: WebSocket, msg: String) {
-            val response = JacksonJsonSupport.ipcMapper.readValue(msg, SuperAccessDaemon.SuperAccessResponse::class.java)
+            handleResponse(JacksonJsonSupport.ipcMapper.readValue(msg, SuperAccessDaemon.SuperAccessResponse::class.java))
+        }
 
-            synchronized(responseReceiverLock) {
-                for ((condition, receiver) in responseReceiver.toMap()) {
-                    if (condition(response)) {
-                        receiver(response)
-                    }
-                }
+        override fun onMessage(ws: WebSocket, bytes: ByteBuffer) {
+            val data = ByteArray(bytes.remaining())
+            bytes.get(data)
+
+            handleResponse(JacksonJsonSupport.ipcBinaryMapper.readValue(data, SuperAccessDaemon.SuperAccessResponse::class.java))
+        }
+
+        private fun handleResponse(response: SuperAccessDaemon.SuperAccessResponse) {
+            val receiver = synchronized(responseReceiverLock) {
+                pendingRequests.remove(response.id)
             }
 
-            pendingRequests.remove(response.id)
+            receiver?.invoke(response)
         }
 
         override fun onError(p0: WebSocket?, p1: Exception?) {
@@ -234,11 +279,19 @@ class SuperAccessDaemonClient(
             startProcess()
         }
 
+        /**
+         * Registers [receiver] to be called once with the response to the message of [id],
+         * has to be done before sending the message
+         */
         fun addResponseReceiver(id: Int, receiver: ResponseReceiver) {
-            pendingRequests[id] = receiver
+            synchronized(responseReceiverLock) {
+                pendingRequests[id] = receiver
+            }
+        }
 
+        fun removeResponseReceiver(id: Int) {
             synchronized(responseReceiverLock) {
-                responseReceiver[{ it.id == id }] = receiver
+                pendingRequests.remove(id)
             }
         }
     }
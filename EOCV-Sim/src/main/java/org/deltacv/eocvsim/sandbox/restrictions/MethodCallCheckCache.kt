@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.sandbox.restrictions
+
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.runBlocking
+import java.security.MessageDigest
+import java.util.concurrent.ConcurrentHashMap
+
+/**
+ * In-memory cache of [MethodCallByteCodeChecker] verdicts, for the current session.
+ *
+ * Classes are keyed by the SHA-256 of their bytecode, so the same class loaded
+ * again (e.g. when plugins are reloaded) skips the check. The verdicts are never
+ * persisted, anything on disk could be edited to get a class past the check.
+ *
+ * Only passing verdicts are stored, a class that fails the check is checked
+ * again (and rejected again) whenever it's loaded.
+ * @param methodBlacklist the method blacklist passed to the checker
+ */
+class MethodCallCheckCache(
+    private val methodBlacklist: Set<String>
+) {
+
+    companion object {
+        fun sha256(bytes: ByteArray): String =
+            MessageDigest.getInstance("SHA-256").digest(bytes).joinToString("") { "%02x".format(it) }
+    }
+
+    private val verified = ConcurrentHashMap.newKeySet<String>()
+
+    /**
+     * Checks the given class bytecode, skipping the check if an identical
+     * class already passed it before
+     * @throws IllegalAccessError if the class calls a blacklisted method
+     */
+    fun check(bytecode: ByteArray) {
+        val hash = sha256(bytecode)
+        if (hash in verified) return
+
+        MethodCallByteCodeChecker(bytecode, methodBlacklist)
+
+        verified.add(hash)
+    }
+
+    /**
+     * Checks every given class in parallel, populating the cache.
+     * Failures of any kind are not thrown here, the verdict is left to [check]
+     * once the offending class is actually loaded.
+     * @return the number of classes that had to be checked (cache misses)
+     */
+    fun precheck(classes: List<ByteArray>): Int {
+        val misses = classes.filter { sha256(it) !in verified }
+        if (misses.isEmpty()) return 0
+
+        runBlocking(Dispatchers.Default) {
+            misses.map { bytecode ->
+                async {
+                    // a class that can't be checked (malformed, unsupported class version...)
+                    // shouldn't abort the others, it fails again when it gets loaded
+                    try {
+                        check(bytecode)
+                    } catch (_: Throwable) {
+                    }
+                }
+            }.awaitAll()
+        }
+
+        return misses.size
+    }
+
+}
+
+val dynamicCodeMethodCheckCache by lazy {
+    MethodCallCheckCache(dynamicCodeMethodBlacklist)
+}
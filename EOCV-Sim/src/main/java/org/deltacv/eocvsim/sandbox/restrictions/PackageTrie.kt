@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.sandbox.restrictions
+
+/**
+ * Character trie over fully qualified names, used to match a class
+ * name against the sandbox package lists in a single walk of the name
+ * instead of looping over every entry of the list.
+ * @param entries the package or class names to match against
+ */
+class PackageTrie(entries: Iterable<String>) {
+
+    private class Node {
+        val children = HashMap<Char, Node>(4)
+        var terminal = false
+    }
+
+    private val root = Node()
+
+    init {
+        for (entry in entries) {
+            var node = root
+            for (c in entry) {
+                node = node.children.getOrPut(c) { Node() }
+            }
+            node.terminal = true
+        }
+    }
+
+    /**
+     * Equivalent to `entries.any { name.startsWith(it) }`
+     */
+    fun matchesRawPrefix(name: String): Boolean {
+        var node = root
+        if (node.terminal) return true
+
+        for (c in name) {
+            node = node.children[c] ?: return false
+            if (node.terminal) return true
+        }
+
+        return false
+    }
+
+    /**
+     * Equivalent to `entries.any { name == it || name.startsWith("$it.") }`
+     */
+    fun matchesPackage(name: String): Boolean {
+        var node = root
+
+        for ((i, c) in name.withIndex()) {
+            node = node.children[c] ?: return false
+
+            if (node.terminal && (i == name.length - 1 || name[i + 1] == '.')) {
+                return true
+            }
+        }
+
+        return false
+    }
+
+}
+
+val dynamicCodePackageWhitelistTrie by lazy { PackageTrie(dynamicCodePackageWhitelist) }
+val dynamicCodePackageBlacklistTrie by lazy { PackageTrie(dynamicCodePackageBlacklist) }
+val dynamicCodePackageAlwaysBlacklistTrie by lazy { PackageTrie(dynamicCodePackageAlwaysBlacklist) }
@@ -34,6 +34,7 @@ package org.firstinspires.ftc.robotcore.internal.opmode;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import com.github.serivesmejia.eocvsim.util.jfr.TelemetryUpdateEvent;
 
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.util.ElapsedTime;
@@ -48,6 +49,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * {@link EOCVSimTelemetryImpl} is the system-provided implementation of the {@link Telemetry} interface.
@@ -71,6 +73,8 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
         protected Object        value           = null;
         protected Func<T>       valueProducer   = null;
         protected String        composed        = null;
+        protected Object        produced        = null;
+        protected boolean       hasProduced     = false;
 
         //------------------------------------------------------------------------------------------
         // Construction
@@ -89,11 +93,7 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
         }
 
         Value(Object value) {
-            if ((value instanceof Double) || (value instanceof Float)) {
-                this.value = decimalFormat.format(value);
-            } else {
-                this.value = value;
-            }
+            this.value = value;
         }
 
         Value(Func<T> valueProducer)
@@ -110,26 +110,95 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
             return this.valueProducer != null;
         }
 
+        /**
+         * Whether the composed text can never change: no producer, and only
+         * strings or boxed primitives as the value or format args. Anything
+         * else may be a mutable object whose text changes between updates
+         */
+        boolean isImmutable()
+        {
+            if (isProducer()) return false;
+
+            if (this.formatArgs != null)
+            {
+                for (Object arg : this.formatArgs)
+                {
+                    if (!isImmutable(arg)) return false;
+                }
+                return true;
+            }
+
+            return isImmutable(this.value);
+        }
+
+        private boolean isImmutable(Object obj)
+        {
+            return obj == null
+                    || obj instanceof String || obj instanceof Boolean || obj instanceof Character
+                    || obj instanceof Integer || obj instanceof Long || obj instanceof Double
+                    || obj instanceof Float || obj instanceof Short || obj instanceof Byte;
+        }
+
         @NonNull String getComposed(boolean recompose)
         {
-            if (recompose || composed==null)
+            // immutable values (setValue() replaces the whole Value) are only composed once
+            if (composed==null || (recompose && !isImmutable()))
             {
                 composed = compose();
             }
             return composed;
         }
 
+        void record(String caption, TelemetryRecordReceiver receiver)
+        {
+            if (format != null)
+            {
+                if (this.formatArgs != null)      receiver.recordFormattedItem(caption, this.format, this.formatArgs);
+                else if (this.valueProducer != null) receiver.recordFormattedItem(caption, this.format, new Object[] { capture() });
+                else                              receiver.recordItem(caption, null);
+            }
+            else
+            {
+                receiver.recordItem(caption, this.valueProducer != null ? capture() : this.value);
+            }
+        }
+
+        /**
+         * Evaluates the producer for a record. Records are taken before composing,
+         * so the value is kept for the next composition to show the same value
+         */
+        private Object capture()
+        {
+            produced = this.valueProducer.value();
+            hasProduced = true;
+            return produced;
+        }
+
+        private Object produce()
+        {
+            if (hasProduced)
+            {
+                Object value = produced;
+                produced = null;
+                hasProduced = false;
+                return value;
+            }
+
+            return this.valueProducer.value();
+        }
+
         protected String compose()
         {
             if (format != null)
             {
                 if (this.formatArgs != null)      return String.format(this.format, this.formatArgs);
-                if (this.valueProducer != null)   return String.format(this.format, this.valueProducer.value());
+                if (this.valueProducer != null)   return String.format(this.format, produce());
             }
             else
             {
+                if ((this.value instanceof Double) || (this.value instanceof Float)) return decimalFormat.format(this.value);
                 if (this.value != null)          return this.value.toString();
-                if (this.valueProducer != null)  return this.valueProducer.value().toString();
+                if (this.valueProducer != null)  return produce().toString();
             }
 
             return "";
@@ -280,6 +349,12 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
 
         boolean showIfEmpty = true;
 
+        // what the last composed line was made of, it's only rebuilt when any of it changes
+        String composedLine      = null;
+        String composedCaption   = null;
+        String composedValue     = null;
+        String composedSeparator = null;
+
         //------------------------------------------------------------------------------------------
         // Construction
         //------------------------------------------------------------------------------------------
@@ -301,13 +376,39 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
             synchronized (theLock)
             {
                 String composed = this.value.getComposed(recompose);
+                String separator = getCaptionValueSeparator();
+
+                if (composedLine != null
+                        && composed.equals(composedValue)
+                        && Objects.equals(this.caption, composedCaption)
+                        && separator.equals(composedSeparator))
+                {
+                    return composedLine;
+                }
+
+                composedValue = composed;
+                composedCaption = this.caption;
+                composedSeparator = separator;
 
                 if(!showIfEmpty && this.caption.trim().isEmpty() && composed.trim().isEmpty()) {
-                    return "";
+                    composedLine = "";
+                } else {
+                    composedLine = this.caption + separator + composed;
                 }
 
-                return String.format("%s%s%s", this.caption, getCaptionValueSeparator(), composed);
+                return composedLine;
+            }
+        }
+
+        void record(TelemetryRecordReceiver receiver)
+        {
+            // the internal status items, while they're not showing anything
+            if (!showIfEmpty && this.caption.trim().isEmpty())
+            {
+                return;
             }
+
+            this.value.record(this.caption, receiver);
         }
 
         @Override public String getCaption()
@@ -411,6 +512,13 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
         String            lineCaption;
         LineableContainer lineables;
 
+        // composed items of the last composition, the line is only rebuilt when one of them changes
+        ArrayList<String> composedParts = new ArrayList<>();
+        ArrayList<String> parts         = new ArrayList<>();
+        String            composedSeparator = null;
+        String            composedLine      = null;
+        StringBuilder     builder           = new StringBuilder();
+
         //------------------------------------------------------------------------------------------
         // Construction
         //------------------------------------------------------------------------------------------
@@ -428,19 +536,51 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
 
         @Override public String getComposed(boolean recompose)
         {
-            StringBuilder result = new StringBuilder();
-            result.append(this.lineCaption);
-            boolean firstTime = true;
-            for (Lineable lineable : lineables)
+            synchronized (theLock)
             {
-                if (!firstTime)
+                parts.clear();
+                for (Lineable lineable : lineables)
                 {
-                    result.append(getItemSeparator());
+                    parts.add(lineable.getComposed(recompose));
                 }
-                result.append(lineable.getComposed(recompose));
-                firstTime = false;
+
+                String separator = getItemSeparator();
+
+                // unchanged items hand back the same string they composed last time,
+                // the equals() is for items that were cleared and added again
+                boolean changed = composedLine == null
+                        || !separator.equals(composedSeparator)
+                        || parts.size() != composedParts.size();
+
+                for (int i = 0; !changed && i < parts.size(); i++)
+                {
+                    changed = !isSameLine(parts.get(i), composedParts.get(i));
+                }
+
+                if (!changed)
+                {
+                    return composedLine;
+                }
+
+                builder.setLength(0);
+                builder.append(this.lineCaption);
+                for (int i = 0; i < parts.size(); i++)
+                {
+                    if (i > 0)
+                    {
+                        builder.append(separator);
+                    }
+                    builder.append(parts.get(i));
+                }
+
+                ArrayList<String> previous = composedParts;
+                composedParts = parts;
+                parts = previous;
+
+                composedSeparator = separator;
+                composedLine = builder.toString();
+                return composedLine;
             }
-            return result.toString();
         }
 
         @Override public Item addData(String caption, String format, Object... args)
@@ -473,6 +613,7 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
         int          capacity;
         DisplayOrder displayOrder;
         boolean      isDirty;
+        int          version;       // changes whenever what the log displays does
 
         //------------------------------------------------------------------------------------------
         // Construction
@@ -490,6 +631,7 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
         void markDirty()
         {
             this.isDirty = true;
+            this.version++;
         }
 
         void markClean()
@@ -539,6 +681,7 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
             this.capacity   = 9;
             this.isDirty    = false;
             this.displayOrder = DisplayOrder.OLDEST_FIRST;
+            this.version++;
         }
 
         //------------------------------------------------------------------------------------------
@@ -556,6 +699,7 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
             {
                 this.capacity = capacity;
                 prune();
+                this.version++;
             }
         }
 
@@ -569,6 +713,7 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
             synchronized (getLock())
             {
                 this.displayOrder = displayOrder;
+                this.version++;
             }
         }
 
@@ -620,10 +765,19 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
     protected String              itemSeparator;
     protected DecimalFormat       decimalFormat = new DecimalFormat("0.####");
 
+    /*
+     * EOCV-Sim: what was last handed to the transmission receivers, to skip transmitting
+     * again when nothing changed
+     */
+    protected ArrayList<String>   transmittedLines = new ArrayList<>();
+    protected int                 transmittedLogVersion = -1;
+    protected StringBuilder       transmissionBuilder = new StringBuilder();
+
     /*
     * EOCV-Sim
      */
     protected ArrayList<TelemetryTransmissionReceiver> transmissionReceivers = new ArrayList<>();
+    protected ArrayList<TelemetryRecordReceiver> recordReceivers = new ArrayList<>();
 
     public Item errItem;
     public Item infoItem;
@@ -645,6 +799,8 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
         this.composedLines = new ArrayList<String>();
         this.actions = new LinkedList<Runnable>();
         log.reset(); // Reuse the log instance in case the user stores a reference to it
+        this.transmittedLines.clear();
+        this.transmittedLogVersion = -1;
         this.transmissionTimer = new ElapsedTime();
         this.isDirty     = false;
         this.clearOnAdd  = false;
@@ -711,6 +867,9 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
 
     protected boolean tryUpdate(UpdateReason updateReason)
     {
+        TelemetryUpdateEvent event = new TelemetryUpdateEvent();
+        event.begin();
+
         synchronized (theLock)
         {
             boolean result = false;
@@ -724,6 +883,12 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
             boolean recompose = updateReason==UpdateReason.USER
                     || isDirty();         // only way we get dirty is from a previous UpdateReason.USER
 
+            // EOCV-Sim: every user update is recorded, even the ones that don't get transmitted
+            if (updateReason==UpdateReason.USER)
+            {
+                this.saveToRecorders();
+            }
+
             if (intervalElapsed && wantToTransmit)
             {
                 // Evaluate any delayed actions we've been asked to do
@@ -758,6 +923,14 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
                 this.clearOnAdd = isAutoClear();
             }
 
+            // the IFDIRTY updates with nothing to send come every frame, they aren't worth recording
+            if (wantToTransmit && event.shouldCommit())
+            {
+                event.reason = updateReason.name();
+                event.transmitted = result;
+                event.commit();
+            }
+
             return result;
         }
 
@@ -767,21 +940,31 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
 
     protected void saveToTransmitter(boolean recompose)
     {
-        StringBuilder currentSb = new StringBuilder();
-
         // When we recompose, we save the composed lines. Thus, they will stick around
         // even after we might get clear()'d. In that way, they'll still be there to
         // transmit if a log() write should happen to occur after the clear() but before
         // a subsequent user update().
         if (recompose)
         {
-            this.composedLines = new ArrayList<String>();
+            this.composedLines.clear();
             for (Lineable lineable : this.lines)
             {
                 this.composedLines.add(lineable.getComposed(recompose));
             }
         }
 
+        if (isUnchangedSinceTransmission())
+        {
+            return;
+        }
+
+        this.transmittedLines.clear();
+        this.transmittedLines.addAll(this.composedLines);
+        this.transmittedLogVersion = this.log.version;
+
+        StringBuilder currentSb = this.transmissionBuilder;
+        currentSb.setLength(0);
+
         // Add in the composed lines
         int iLine = 0;
         for (iLine = 0; iLine < this.composedLines.size(); iLine++)
@@ -807,18 +990,96 @@ public class EOCVSimTelemetryImpl implements Telemetry, TelemetryInternal
         }
     }
 
+    protected void saveToRecorders()
+    {
+        for (TelemetryRecordReceiver receiver : recordReceivers)
+        {
+            receiver.beginRecord();
+            saveToRecorder(this.lines, receiver);
+            receiver.endRecord();
+        }
+    }
+
+    protected void saveToRecorder(LineableContainer container, TelemetryRecordReceiver receiver)
+    {
+        // the items of a line are recorded as standalone items, without the line caption
+        for (Lineable lineable : container)
+        {
+            if (lineable instanceof LineImpl)
+            {
+                saveToRecorder(((LineImpl)lineable).lineables, receiver);
+            }
+            else if (lineable instanceof ItemImpl)
+            {
+                ((ItemImpl)lineable).record(receiver);
+            }
+        }
+    }
+
+    protected static boolean isSameLine(String a, String b)
+    {
+        // OpModes usually clear and add their items again on every update,
+        // so lines are often equal without being the same instance
+        return a == b || a.equals(b);
+    }
+
+    protected boolean isUnchangedSinceTransmission()
+    {
+        if (this.log.version != this.transmittedLogVersion || this.composedLines.size() != this.transmittedLines.size())
+        {
+            return false;
+        }
+
+        for (int i = 0; i < this.composedLines.size(); i++)
+        {
+            if (!isSameLine(this.composedLines.get(i), this.transmittedLines.get(i)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Transmits right away regardless of the transmission interval,
+     * unless nothing changed since the last transmission
+     */
     public void forceTelemetryTransmission() {
-        saveToTransmitter(true);
+        synchronized (theLock)
+        {
+            saveToTransmitter(true);
+        }
     }
 
     public void addTransmissionReceiver(TelemetryTransmissionReceiver transmissionReceiver) {
-        transmissionReceivers.add(transmissionReceiver);
+        synchronized (theLock)
+        {
+            transmissionReceivers.add(transmissionReceiver);
+
+            // make sure the new receiver gets the current telemetry on the next transmission
+            transmittedLogVersion = -1;
+        }
     }
 
     public boolean removeTransmissionReceiver(TelemetryTransmissionReceiver transmissionReceiver) {
         return transmissionReceivers.remove(transmissionReceiver);
     }
 
+    public void addRecordReceiver(TelemetryRecordReceiver recordReceiver) {
+        synchronized (theLock)
+        {
+            recordReceivers.add(recordReceiver);
+        }
+    }
+
+    public boolean removeRecordReceiver(TelemetryRecordReceiver recordReceiver) {
+        synchronized (theLock)
+        {
+            return recordReceivers.remove(recordReceiver);
+        }
+    }
+
     //----------------------------------------------------------------------------------------------
     // Accessors
     //----------------------------------------------------------------------------------------------
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.firstinspires.ftc.robotcore.internal.opmode
+
+/**
+ * Receives the raw items of every [org.firstinspires.ftc.robotcore.external.Telemetry.update],
+ * before they're formatted and regardless of the transmission interval.
+ * Calls for a single update come between [beginRecord] and [endRecord].
+ */
+interface TelemetryRecordReceiver {
+    fun beginRecord()
+
+    /**
+     * An item whose value is shown as is, [value] is either a boxed primitive, a String or null
+     */
+    fun recordItem(caption: String, value: Any?)
+
+    /**
+     * An item whose value is shown by formatting [args] with [format]
+     */
+    fun recordFormattedItem(caption: String, format: String, args: Array<out Any?>)
+
+    fun endRecord()
+}
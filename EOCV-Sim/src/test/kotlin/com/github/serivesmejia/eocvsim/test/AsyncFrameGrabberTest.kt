@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+@file:Suppress("UNUSED")
+
+package com.github.serivesmejia.eocvsim.test
+
+import com.github.serivesmejia.eocvsim.input.AsyncFrameGrabber
+import com.github.serivesmejia.eocvsim.util.LibraryLoader
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.longs.shouldBeGreaterThan
+import io.kotest.matchers.longs.shouldBeLessThan
+import io.kotest.matchers.shouldBe
+import org.opencv.core.CvType
+import org.opencv.core.Mat
+import org.opencv.core.Scalar
+import org.opencv.core.Size
+import org.opencv.imgproc.Imgproc
+import java.util.concurrent.atomic.AtomicBoolean
+
+/**
+ * Stand-in for a camera or HTTP stream, serving synthetic BGR frames
+ * at a fixed rate. It can be told to stall, in which case every grab
+ * times out like it would with a misbehaving device.
+ */
+private class StandInStream(val fps: Double = 100.0, val timeoutMillis: Long = 100) {
+
+    @Volatile var stalled = false
+    private var frameNumber = 0
+
+    fun grab(dst: Mat): Long {
+        if (stalled) {
+            Thread.sleep(timeoutMillis)
+            return 0L
+        }
+
+        Thread.sleep((1000 / fps).toLong())
+
+        dst.create(48, 64, CvType.CV_8UC3)
+        dst.setTo(Scalar((frameNumber++ % 256).toDouble(), 0.0, 0.0))
+
+        return System.nanoTime()
+    }
+
+}
+
+class AsyncFrameGrabberTest : StringSpec({
+    beforeSpec {
+        LibraryLoader.loadLibraries()
+    }
+
+    "Frames flow from the stand-in stream" {
+        val grabber = AsyncFrameGrabber("StandIn", grab = StandInStream()::grab)
+        grabber.start()
+
+        val dst = Mat()
+
+        val gotFrame = grabber.awaitLatest(1000) { frame, _ ->
+            Imgproc.cvtColor(frame, dst, Imgproc.COLOR_BGR2RGBA)
+        }
+
+        gotFrame shouldBe true
+        dst.size() shouldBe Size(64.0, 48.0)
+        dst.channels() shouldBe 4
+
+        grabber.stop()
+        dst.release()
+    }
+
+    "Takes never block on a stalled stream" {
+        val stream = StandInStream()
+        val grabber = AsyncFrameGrabber("StandIn", grab = stream::grab)
+        grabber.start()
+
+        grabber.awaitLatest(1000) { _, _ -> }
+        stream.stalled = true
+
+        Thread.sleep(stream.timeoutMillis * 3)
+        grabber.takeLatest { _, _ -> } // drain whatever arrived before stalling
+
+        val start = System.nanoTime()
+        repeat(100) {
+            grabber.takeLatest { _, _ -> } shouldBe false
+        }
+        val took = System.nanoTime() - start
+
+        took shouldBeLessThan stream.timeoutMillis * 1_000_000
+        grabber.stale shouldBeGreaterThan 99L
+        grabber.timedOut shouldBeGreaterThan 0L
+
+        grabber.stop(stream.timeoutMillis * 2)
+    }
+
+    "Frames nobody takes are counted as dropped" {
+        val grabber = AsyncFrameGrabber("StandIn", grab = StandInStream()::grab)
+        grabber.start()
+
+        Thread.sleep(300)
+
+        grabber.dropped shouldBeGreaterThan 0L
+        grabber.takeLatest { _, _ -> } shouldBe true
+
+        grabber.stop()
+    }
+
+    "The device is only released once an in-flight grab returns" {
+        val stream = StandInStream(timeoutMillis = 500)
+        val grabber = AsyncFrameGrabber("StandIn", grab = stream::grab)
+        grabber.start()
+
+        grabber.awaitLatest(1000) { _, _ -> }
+        stream.stalled = true
+        Thread.sleep(50) // let the grab thread get stuck in a stalled grab
+
+        val released = AtomicBoolean(false)
+        grabber.stop(50) { released.set(true) }
+
+        released.get() shouldBe false
+
+        Thread.sleep(stream.timeoutMillis * 2)
+        released.get() shouldBe true
+    }
+})
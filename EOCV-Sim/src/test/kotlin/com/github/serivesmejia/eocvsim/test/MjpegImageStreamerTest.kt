@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+@file:Suppress("UNUSED")
+
+package com.github.serivesmejia.eocvsim.test
+
+import com.github.serivesmejia.eocvsim.util.LibraryLoader
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.string.shouldContain
+import org.deltacv.eocvsim.stream.MjpegImageStreamer
+import org.opencv.core.CvType
+import org.opencv.core.Mat
+import org.opencv.core.MatOfByte
+import org.opencv.core.Scalar
+import org.opencv.core.Size
+import org.opencv.imgcodecs.Imgcodecs
+import org.opencv.imgproc.Imgproc
+import java.io.DataInputStream
+import java.net.InetAddress
+import java.net.Socket
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlin.concurrent.thread
+
+/**
+ * Reads the header lines of a response or multipart part, up to the blank line
+ */
+private fun DataInputStream.readHeaderLines(): List<String> {
+    val lines = mutableListOf<String>()
+    val line = StringBuilder()
+
+    while (true) {
+        val c = read()
+        if (c < 0) break
+
+        if (c == '\n'.code) {
+            val text = line.toString().trimEnd('\r')
+            line.clear()
+
+            if (text.isEmpty()) {
+                if (lines.isEmpty()) continue else break
+            }
+
+            lines.add(text)
+        } else {
+            line.append(c.toChar())
+        }
+    }
+
+    return lines
+}
+
+class MjpegImageStreamerTest : StringSpec({
+    beforeSpec {
+        LibraryLoader.loadLibraries()
+    }
+
+    "Frames sent to a stream id are served over the loopback MJPEG endpoint" {
+        val streamer = MjpegImageStreamer().start()
+
+        val socket = Socket(InetAddress.getLoopbackAddress(), streamer.boundPort)
+        socket.soTimeout = 5000
+
+        socket.getOutputStream().write("GET /stream/3 HTTP/1.1\r\nHost: localhost\r\n\r\n".toByteArray())
+
+        // keep sending frames like a pipeline would, until the consumer got one
+        val received = AtomicBoolean(false)
+
+        val sender = thread {
+            val frame = Mat(48, 64, CvType.CV_8UC4, Scalar(255.0, 0.0, 0.0, 255.0))
+
+            while (!received.get()) {
+                streamer.sendFrame(3, frame, Imgproc.COLOR_RGBA2BGR)
+                Thread.sleep(10)
+            }
+
+            frame.release()
+        }
+
+        val input = DataInputStream(socket.getInputStream())
+
+        val response = input.readHeaderLines()
+        response[0] shouldContain "200"
+        response.any { it.contains("multipart/x-mixed-replace") } shouldBe true
+
+        val part = input.readHeaderLines()
+        part[0] shouldBe "--${MjpegImageStreamer.BOUNDARY}"
+
+        val length = part.first { it.startsWith("Content-Length") }.substringAfter(":").trim().toInt()
+
+        val jpeg = ByteArray(length)
+        input.readFully(jpeg)
+
+        received.set(true)
+        sender.join()
+
+        val decoded = Imgcodecs.imdecode(MatOfByte(*jpeg), Imgcodecs.IMREAD_COLOR)
+        decoded.size() shouldBe Size(64.0, 48.0)
+
+        // sent as red RGBA, converted to BGR before encoding
+        val pixel = decoded.get(24, 32)
+        (pixel[2] > 200) shouldBe true
+        (pixel[0] < 50) shouldBe true
+
+        socket.close()
+        streamer.close()
+
+        decoded.release()
+    }
+
+    "Frames are downscaled to the resolution the consumer subscribed with" {
+        val streamer = MjpegImageStreamer().start()
+
+        streamer.isSubscribed(5) shouldBe false
+
+        val socket = Socket(InetAddress.getLoopbackAddress(), streamer.boundPort)
+        socket.soTimeout = 5000
+
+        socket.getOutputStream().write("GET /frame/5?maxWidth=32 HTTP/1.1\r\n\r\n".toByteArray())
+
+        val input = DataInputStream(socket.getInputStream())
+        val received = AtomicBoolean(false)
+
+        val sender = thread {
+            val frame = Mat(48, 64, CvType.CV_8UC3, Scalar(0.0, 255.0, 0.0))
+
+            while (!received.get()) {
+                streamer.sendFrame(5, frame)
+                Thread.sleep(5)
+            }
+
+            frame.release()
+        }
+
+        val response = input.readHeaderLines()
+        response[0] shouldContain "200"
+
+        val length = response.first { it.startsWith("Content-Length") }.substringAfter(":").trim().toInt()
+
+        val jpeg = ByteArray(length)
+        input.readFully(jpeg)
+
+        received.set(true)
+        sender.join()
+
+        val decoded = Imgcodecs.imdecode(MatOfByte(*jpeg), Imgcodecs.IMREAD_COLOR)
+        decoded.size() shouldBe Size(32.0, 24.0)
+
+        socket.close()
+        streamer.close()
+
+        decoded.release()
+    }
+
+    "Unknown paths are answered with 404" {
+        val streamer = MjpegImageStreamer().start()
+
+        Socket(InetAddress.getLoopbackAddress(), streamer.boundPort).use { socket ->
+            socket.soTimeout = 5000
+            socket.getOutputStream().write("GET /nope HTTP/1.1\r\n\r\n".toByteArray())
+
+            DataInputStream(socket.getInputStream()).readHeaderLines()[0] shouldContain "404"
+        }
+
+        streamer.close()
+    }
+})
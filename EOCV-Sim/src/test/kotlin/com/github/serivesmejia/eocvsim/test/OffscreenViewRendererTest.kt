@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+@file:Suppress("UNUSED")
+
+package com.github.serivesmejia.eocvsim.test
+
+import android.graphics.Color
+import android.graphics.Paint
+import com.github.serivesmejia.eocvsim.util.LibraryLoader
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import io.kotest.matchers.shouldNotBe
+import org.deltacv.vision.external.gui.OffscreenViewRenderer
+import org.opencv.core.CvType
+import org.opencv.core.Mat
+import org.opencv.core.Scalar
+import org.openftc.easyopencv.OpenCvViewport
+
+class OffscreenViewRendererTest : StringSpec({
+    beforeSpec {
+        LibraryLoader.loadLibraries()
+    }
+
+    "Render hook drawing ends up in the rendered Mat at the source resolution" {
+        val renderer = OffscreenViewRenderer()
+        val frame = Mat(48, 64, CvType.CV_8UC4, Scalar(50.0, 60.0, 70.0, 255.0))
+
+        val paint = Paint().setColor(Color.RED).setStyle(Paint.Style.FILL)
+
+        val hook = OpenCvViewport.RenderHook { canvas, onscreenWidth, onscreenHeight, scale, _, _ ->
+            onscreenWidth shouldBe 64
+            onscreenHeight shouldBe 48
+            scale shouldBe 1f
+
+            canvas.drawRect(10f, 10f, 30f, 30f, paint)
+        }
+
+        val rendered = renderer.render(frame, hook, null)
+        rendered shouldNotBe null
+
+        try {
+            rendered!!.type() shouldBe CvType.CV_8UC4
+            rendered.width() shouldBe 64
+            rendered.height() shouldBe 48
+
+            // inside the hook's rectangle
+            rendered.get(20, 20).toList() shouldBe listOf(255.0, 0.0, 0.0, 255.0)
+            // untouched frame, still in RGBA
+            rendered.get(40, 50).toList() shouldBe listOf(50.0, 60.0, 70.0, 255.0)
+        } finally {
+            renderer.returnMat(rendered!!)
+            renderer.release()
+            frame.release()
+        }
+    }
+})
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+@file:Suppress("UNUSED")
+
+package com.github.serivesmejia.eocvsim.test
+
+import com.github.serivesmejia.eocvsim.input.source.RawDumpSource
+import com.github.serivesmejia.eocvsim.output.RawFrameDumpWriter
+import com.github.serivesmejia.eocvsim.util.LibraryLoader
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import org.opencv.core.CvType
+import org.opencv.core.Mat
+import org.opencv.core.Scalar
+import org.opencv.core.Size
+import java.io.File
+
+class RawFrameDumpTest : StringSpec({
+    beforeSpec {
+        LibraryLoader.loadLibraries()
+    }
+
+    "Frames written with RawFrameDumpWriter are played back by RawDumpSource" {
+        val file = File.createTempFile("eocvsim-test", ".eocvraw")
+        file.deleteOnExit()
+
+        val frameCount = 5
+
+        RawFrameDumpWriter(file, 64, 48).use { writer ->
+            val frame = Mat(48, 64, CvType.CV_8UC3)
+
+            for (i in 0 until frameCount) {
+                frame.setTo(Scalar(i * 10.0, 100.0, 200.0))
+                writer.writeFrame(frame, i * 33_000_000L)
+            }
+
+            frame.release()
+        }
+
+        val source = RawDumpSource(file.absolutePath, unthrottled = true)
+        source.init() shouldBe true
+
+        source.frameCount shouldBe frameCount
+        source.sourceSize shouldBe Size(64.0, 48.0)
+        source.timestamps[frameCount - 1] shouldBe (frameCount - 1) * 33_000_000L
+
+        val dst = Mat()
+
+        for (i in 0 until frameCount) {
+            source.updateInto(dst) shouldBe true
+
+            dst.type() shouldBe CvType.CV_8UC4
+
+            val pixel = dst.get(24, 32)
+            pixel[0] shouldBe i * 10.0
+            pixel[1] shouldBe 100.0
+            pixel[2] shouldBe 200.0
+            pixel[3] shouldBe 255.0
+        }
+
+        dst.release()
+        source.close()
+    }
+})
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+@file:Suppress("UNUSED")
+
+package com.github.serivesmejia.eocvsim.test
+
+import com.github.serivesmejia.eocvsim.input.source.SyntheticSource
+import com.github.serivesmejia.eocvsim.util.LibraryLoader
+import io.kotest.core.spec.style.StringSpec
+import io.kotest.matchers.shouldBe
+import org.firstinspires.ftc.vision.apriltag.AprilTagGameDatabase
+import org.opencv.core.Core
+import org.opencv.core.Mat
+import org.opencv.core.Scalar
+import org.opencv.core.Size
+import org.opencv.imgproc.Imgproc
+import org.openftc.apriltag.AprilTagDetectorJNI
+
+class SyntheticSourceTest : StringSpec({
+    beforeSpec {
+        LibraryLoader.loadLibraries()
+    }
+
+    "Synthetic markers decode to their tag36h11 ids" {
+        val detector = AprilTagDetectorJNI.createApriltagDetector(AprilTagDetectorJNI.TagFamily.TAG_36h11.string, 1f, 1)
+
+        val marker = Mat()
+        val scaled = Mat()
+        val grey = Mat()
+
+        try {
+            for (tag in AprilTagGameDatabase.getCurrentGameTagLibrary().allTags) {
+                SyntheticSource.renderTag(tag.id, marker)
+
+                Imgproc.resize(marker, scaled, Size(160.0, 160.0), 0.0, 0.0, Imgproc.INTER_NEAREST)
+                Core.copyMakeBorder(scaled, scaled, 20, 20, 20, 20, Core.BORDER_CONSTANT, Scalar(255.0, 255.0, 255.0, 255.0))
+                Imgproc.cvtColor(scaled, grey, Imgproc.COLOR_RGBA2GRAY)
+
+                val detections = AprilTagDetectorJNI.runAprilTagDetectorSimple(
+                    detector, grey, 0.1, 500.0, 500.0, grey.width() / 2.0, grey.height() / 2.0
+                )
+
+                detections.map { it.id } shouldBe listOf(tag.id)
+            }
+        } finally {
+            marker.release()
+            scaled.release()
+            grey.release()
+
+            AprilTagDetectorJNI.releaseApriltagDetector(detector)
+        }
+    }
+})
@@ -27,7 +27,9 @@ public abstract class StreamableOpenCvPipeline extends OpenCvPipeline {
     public void streamFrame(int id, Mat image, Integer cvtCode) {
         synchronized (streamerLock) {
             if (streamer != null) {
-                streamer.sendFrame(id, image, cvtCode);
+                if (streamer.isSubscribed(id)) {
+                    streamer.sendFrame(id, image, cvtCode);
+                }
             } else {
                 if (!hasLoggedStreamerAbsence) {
                     logger.warn("No ImageStreamer set for this StreamableOpenCvPipeline. Frames will not be streamed.");
@@ -37,6 +39,16 @@ public abstract class StreamableOpenCvPipeline extends OpenCvPipeline {
         }
     }
 
+    /**
+     * Whether the frames streamed with this id are consumed by anything.
+     * Pipelines can check this to skip producing intermediate frames nobody is looking at.
+     */
+    public boolean isStreamSubscribed(int id) {
+        synchronized (streamerLock) {
+            return streamer != null && streamer.isSubscribed(id);
+        }
+    }
+
     public void setStreamer(ImageStreamer streamer) {
         synchronized (streamerLock) {
             this.streamer = streamer;
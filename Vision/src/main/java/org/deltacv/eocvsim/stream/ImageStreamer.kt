@@ -9,4 +9,10 @@ import org.opencv.core.Mat
 
 interface ImageStreamer {
     fun sendFrame(id: Int, image: Mat, cvtCode: Int? = null)
+
+    /**
+     * Whether anything consumes the frames sent with [id]. Senders can skip
+     * producing frames for ids nobody is subscribed to.
+     */
+    fun isSubscribed(id: Int): Boolean = true
 }
@@ -0,0 +1,557 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.stream
+
+import org.deltacv.common.util.loggerForThis
+import org.opencv.core.Mat
+import org.opencv.core.MatOfByte
+import org.opencv.core.MatOfInt
+import org.opencv.core.Size
+import org.opencv.imgcodecs.Imgcodecs
+import org.opencv.imgproc.Imgproc
+import java.io.BufferedOutputStream
+import java.io.BufferedReader
+import java.io.IOException
+import java.io.InputStreamReader
+import java.io.OutputStream
+import java.net.InetAddress
+import java.net.ServerSocket
+import java.net.Socket
+import java.net.SocketException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.RejectedExecutionException
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+import kotlin.concurrent.thread
+
+/**
+ * An [ImageStreamer] that JPEG-encodes frames on a pool of workers and serves them
+ * over HTTP on the loopback interface, as MJPEG streams viewable from a browser
+ * or readable by any local consumer:
+ * - `GET /stream/<id>` serves a `multipart/x-mixed-replace` stream of the frames sent with that id
+ * - `GET /frame/<id>` serves the next frame sent with that id as a single JPEG
+ *
+ * Consumers can declare the [StreamSubscription] they need with the `maxWidth`, `maxHeight`
+ * and `maxFps` query parameters, e.g. `/stream/3?maxWidth=160&maxHeight=120&maxFps=5`.
+ * Frames of a stream id are decimated and downscaled before being encoded, to the
+ * least restrictive subscription of its consumers, each consumer is then paced to its own rate.
+ *
+ * [sendFrame] only copies the frame, conversion and encoding happen on the workers.
+ * Each stream id holds at most one frame waiting to be encoded, a frame sent while
+ * another one is still waiting replaces it, so a stream that can't keep up drops
+ * stale frames instead of queueing them. Consumers that can't keep up skip to the
+ * latest encoded frame in the same way. Frames are only copied and encoded for
+ * stream ids with at least one consumer connected, see [isSubscribed].
+ *
+ * Frames are encoded as they come unless a cvtCode is given, which should convert
+ * them to BGR or grayscale, e.g. `Imgproc.COLOR_RGBA2BGR` for the frames of an OpenCvPipeline.
+ *
+ * The simulator serves the frames of every StreamableOpenCvPipeline with one of these
+ * when it's started with `--stream-port <port>`.
+ *
+ * @param port port to listen on, 0 picks a free one, see [boundPort]
+ * @param workerCount number of threads converting and encoding frames
+ * @param jpegQuality JPEG quality, from 0 to 100
+ * @param maxPooledBuffers number of encoded frame buffers kept around for reuse
+ */
+class MjpegImageStreamer @JvmOverloads constructor(
+    val port: Int = 0,
+    workerCount: Int = DEFAULT_WORKER_COUNT,
+    jpegQuality: Int = 80,
+    maxPooledBuffers: Int = 16
+) : ImageStreamer, AutoCloseable {
+
+    companion object {
+        @JvmField val DEFAULT_WORKER_COUNT = (Runtime.getRuntime().availableProcessors() / 2).coerceIn(1, 4)
+
+        const val BOUNDARY = "eocvsimframe"
+
+        private val PATH_REGEX = Regex("^/(stream|frame)/(-?\\d+)/?(?:\\?(.*))?$")
+
+        private const val SNAPSHOT_TIMEOUT_MS = 2000L
+    }
+
+    private val logger by loggerForThis()
+
+    private val executor: ExecutorService = Executors.newFixedThreadPool(workerCount.coerceAtLeast(1)) {
+        Thread(it, "MjpegImageStreamer-Encoder").apply { isDaemon = true }
+    }
+
+    private val encodeParams = MatOfInt(Imgcodecs.IMWRITE_JPEG_QUALITY, jpegQuality.coerceIn(0, 100))
+
+    // conversion and encoding buffers, one set per worker
+    private val scratches = ConcurrentHashMap.newKeySet<Scratch>()
+    private val scratch = ThreadLocal.withInitial { Scratch().also { scratches.add(it) } }
+
+    private val bufferPool = BufferPool(maxPooledBuffers)
+
+    private val streams = ConcurrentHashMap<Int, Stream>()
+
+    private var serverSocket: ServerSocket? = null
+    private val clients = ConcurrentHashMap.newKeySet<Socket>()
+
+    @Volatile var isRunning = false
+        private set
+
+    /**
+     * The port the server ended up listening on, or -1 if it isn't running
+     */
+    val boundPort get() = serverSocket?.localPort ?: -1
+
+    /**
+     * Starts listening for consumers on the loopback interface
+     * @throws IOException if the port can't be bound
+     */
+    @Synchronized
+    @Throws(IOException::class)
+    fun start(): MjpegImageStreamer {
+        if (isRunning) return this
+
+        val server = ServerSocket(port, 50, InetAddress.getLoopbackAddress())
+        serverSocket = server
+        isRunning = true
+
+        thread(name = "MjpegImageStreamer-Server", isDaemon = true) {
+            while (isRunning) {
+                val socket = try {
+                    server.accept()
+                } catch (e: IOException) {
+                    if (isRunning) logger.warn("Error while accepting stream consumer", e)
+                    break
+                }
+
+                clients.add(socket)
+
+                thread(name = "MjpegImageStreamer-Client", isDaemon = true) {
+                    try {
+                        serve(socket)
+                    } catch (_: SocketException) {
+                        // consumer went away
+                    } catch (e: Exception) {
+                        logger.warn("Error while serving stream consumer", e)
+                    } finally {
+                        clients.remove(socket)
+                        socket.close()
+                    }
+                }
+            }
+        }
+
+        logger.info("Serving MJPEG streams at http://${server.inetAddress.hostAddress}:${server.localPort}/stream/<id>")
+
+        return this
+    }
+
+    override fun isSubscribed(id: Int) = isRunning && streams[id]?.limits != null
+
+    override fun sendFrame(id: Int, image: Mat, cvtCode: Int?) {
+        if (!isRunning || image.empty()) return
+
+        val stream = streams[id] ?: return
+        val limits = stream.limits ?: return
+
+        synchronized(stream.lock) {
+            val now = System.nanoTime()
+
+            if (stream.lastAcceptedNanos != 0L && now - stream.lastAcceptedNanos < limits.minFrameIntervalNanos) {
+                stream.decimatedFrames++
+                return
+            }
+
+            stream.lastAcceptedNanos = now
+
+            val pending = stream.pending
+
+            if (pending != null) {
+                // the previous frame wasn't picked up yet, this one replaces it
+                stream.droppedFrames++
+                image.copyTo(pending)
+            } else {
+                val buffer = stream.spare ?: Mat()
+                stream.spare = null
+
+                image.copyTo(buffer)
+                stream.pending = buffer
+            }
+
+            stream.pendingCvtCode = cvtCode
+
+            if (!stream.scheduled) {
+                stream.scheduled = true
+
+                try {
+                    executor.execute { encode(stream) }
+                } catch (_: RejectedExecutionException) {
+                    stream.scheduled = false
+                }
+            }
+        }
+    }
+
+    /**
+     * Number of frames sent with [id] that were replaced before being encoded
+     */
+    fun droppedFrames(id: Int) = streams[id]?.let { synchronized(it.lock) { it.droppedFrames } } ?: 0L
+
+    /**
+     * Number of frames sent with [id] that were skipped to keep up with the rate its consumers asked for
+     */
+    fun decimatedFrames(id: Int) = streams[id]?.let { synchronized(it.lock) { it.decimatedFrames } } ?: 0L
+
+    /**
+     * Number of frames sent with [id] that were encoded and made available to consumers
+     */
+    fun encodedFrames(id: Int) = streams[id]?.let { synchronized(it.lock) { it.encodedFrames } } ?: 0L
+
+    private fun encode(stream: Stream) {
+        val scratch = scratch.get()
+
+        while (true) {
+            val frame: Mat
+            val cvtCode: Int?
+
+            synchronized(stream.lock) {
+                val pending = stream.pending
+
+                if (pending == null) {
+                    stream.scheduled = false
+                    return
+                }
+
+                frame = pending
+                cvtCode = stream.pendingCvtCode
+                stream.pending = null
+            }
+
+            var encoded: EncodedFrame? = null
+
+            try {
+                val scale = stream.limits?.scaleFor(frame.cols(), frame.rows()) ?: 1.0
+
+                // downscale before converting, so that there are less pixels to convert
+                var source = if (scale < 1.0) {
+                    Imgproc.resize(frame, scratch.resized, Size(), scale, scale, Imgproc.INTER_AREA)
+                    scratch.resized
+                } else frame
+
+                if (cvtCode != null) {
+                    Imgproc.cvtColor(source, scratch.converted, cvtCode)
+                    source = scratch.converted
+                }
+
+                if (Imgcodecs.imencode(".jpg", source, scratch.jpeg, encodeParams)) {
+                    val size = scratch.jpeg.total().toInt()
+
+                    encoded = bufferPool.take(size)
+                    scratch.jpeg.get(0, 0, encoded.bytes)
+                    encoded.length = size
+                }
+            } catch (e: Exception) {
+                logger.warn("Error while encoding frame of stream ${stream.id}", e)
+            }
+
+            val previous: EncodedFrame?
+
+            synchronized(stream.lock) {
+                if (stream.spare == null) stream.spare = frame else frame.release()
+
+                if (encoded == null) {
+                    previous = null
+                } else {
+                    previous = stream.latest
+
+                    stream.sequence++
+                    stream.encodedFrames++
+
+                    encoded.sequence = stream.sequence
+                    stream.latest = encoded
+
+                    stream.lock.notifyAll()
+                }
+            }
+
+            previous?.release()
+        }
+    }
+
+    private fun serve(socket: Socket) {
+        socket.tcpNoDelay = true
+
+        val reader = BufferedReader(InputStreamReader(socket.getInputStream(), Charsets.US_ASCII))
+        val requestLine = reader.readLine() ?: return
+
+        // the request headers aren't needed
+        while (reader.readLine()?.isNotEmpty() == true) { }
+
+        val request = requestLine.split(" ")
+        val match = PATH_REGEX.matchEntire(request.getOrElse(1) { "" })
+
+        val out = BufferedOutputStream(socket.getOutputStream())
+
+        if (request[0] != "GET" || match == null) {
+            out.writeAscii("HTTP/1.0 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+            out.flush()
+            return
+        }
+
+        val id = match.groupValues[2].toIntOrNull() ?: return
+        val stream = streams.computeIfAbsent(id) { Stream(it) }
+
+        val subscription = parseSubscription(match.groupValues[3])
+        stream.subscribe(subscription)
+
+        try {
+            if (match.groupValues[1] == "stream") {
+                serveStream(stream, subscription, out)
+            } else {
+                serveSnapshot(stream, out)
+            }
+        } finally {
+            stream.unsubscribe(subscription)
+        }
+    }
+
+    private fun parseSubscription(query: String): StreamSubscription {
+        val params = query.split('&').mapNotNull {
+            val pair = it.split('=', limit = 2)
+            if (pair.size == 2) pair[0] to pair[1] else null
+        }.toMap()
+
+        return StreamSubscription(
+            params["maxWidth"]?.toIntOrNull()?.coerceAtLeast(0) ?: 0,
+            params["maxHeight"]?.toIntOrNull()?.coerceAtLeast(0) ?: 0,
+            params["maxFps"]?.toDoubleOrNull()?.coerceAtLeast(0.0) ?: 0.0
+        )
+    }
+
+    private fun serveStream(stream: Stream, subscription: StreamSubscription, out: OutputStream) {
+        out.writeAscii(
+            "HTTP/1.0 200 OK\r\n" +
+                    "Content-Type: multipart/x-mixed-replace; boundary=$BOUNDARY\r\n" +
+                    "Cache-Control: no-cache\r\n" +
+                    "Connection: close\r\n\r\n"
+        )
+        out.flush()
+
+        var lastSequence = 0L
+        var lastSentNanos = 0L
+
+        while (isRunning) {
+            // other consumers of this stream might have asked for a higher rate
+            val wait = lastSentNanos + subscription.minFrameIntervalNanos - System.nanoTime()
+            if (lastSentNanos != 0L && wait > 0) {
+                Thread.sleep(wait / 1_000_000, (wait % 1_000_000).toInt())
+            }
+
+            val frame = nextFrame(stream, lastSequence, 500) ?: continue
+
+            try {
+                lastSequence = frame.sequence
+                lastSentNanos = System.nanoTime()
+
+                out.writeAscii("--$BOUNDARY\r\nContent-Type: image/jpeg\r\nContent-Length: ${frame.length}\r\n\r\n")
+                out.write(frame.bytes, 0, frame.length)
+                out.writeAscii("\r\n")
+                out.flush()
+            } finally {
+                frame.release()
+            }
+        }
+    }
+
+    private fun serveSnapshot(stream: Stream, out: OutputStream) {
+        val frame = nextFrame(stream, stream.currentSequence(), SNAPSHOT_TIMEOUT_MS)
+
+        if (frame == null) {
+            out.writeAscii("HTTP/1.0 503 Service Unavailable\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+            out.flush()
+            return
+        }
+
+        try {
+            out.writeAscii(
+                "HTTP/1.0 200 OK\r\n" +
+                        "Content-Type: image/jpeg\r\n" +
+                        "Content-Length: ${frame.length}\r\n" +
+                        "Cache-Control: no-cache\r\n" +
+                        "Connection: close\r\n\r\n"
+            )
+            out.write(frame.bytes, 0, frame.length)
+            out.flush()
+        } finally {
+            frame.release()
+        }
+    }
+
+    /**
+     * Waits for a frame newer than [afterSequence], the returned frame is retained
+     * and has to be released by the caller. Returns null on timeout.
+     */
+    private fun nextFrame(stream: Stream, afterSequence: Long, timeoutMs: Long): EncodedFrame? {
+        val deadline = System.currentTimeMillis() + timeoutMs
+
+        synchronized(stream.lock) {
+            while (isRunning && stream.sequence <= afterSequence) {
+                val wait = deadline - System.currentTimeMillis()
+                if (wait <= 0) return null
+
+                stream.lock.wait(wait)
+            }
+
+            return stream.latest?.takeIf { isRunning }?.apply { retain() }
+        }
+    }
+
+    /**
+     * Stops serving consumers and encoding frames
+     */
+    @Synchronized
+    override fun close() {
+        if (!isRunning) return
+        isRunning = false
+
+        serverSocket?.close()
+        serverSocket = null
+
+        for (client in clients) {
+            try {
+                client.close()
+            } catch (_: IOException) { }
+        }
+
+        executor.shutdown()
+        val terminated = executor.awaitTermination(1, TimeUnit.SECONDS)
+
+        for (stream in streams.values) {
+            val latest: EncodedFrame?
+
+            synchronized(stream.lock) {
+                stream.pending?.release()
+                stream.spare?.release()
+                stream.pending = null
+                stream.spare = null
+
+                latest = stream.latest
+                stream.latest = null
+
+                stream.lock.notifyAll()
+            }
+
+            // consumers still writing it hold their own reference
+            latest?.release()
+        }
+
+        if (terminated) {
+            for (scratch in scratches) {
+                scratch.release()
+            }
+            scratches.clear()
+
+            encodeParams.release()
+        } else {
+            logger.warn("Encoders didn't stop in time, their buffers won't be released")
+        }
+    }
+
+    private fun OutputStream.writeAscii(text: String) = write(text.toByteArray(Charsets.US_ASCII))
+
+    private class Stream(val id: Int) {
+        val lock = Object()
+
+        // frame waiting to be encoded, and the buffer the last encoded frame was in
+        var pending: Mat? = null
+        var pendingCvtCode: Int? = null
+        var spare: Mat? = null
+
+        var scheduled = false
+
+        var latest: EncodedFrame? = null
+        var sequence = 0L
+
+        private val subscriptions = mutableListOf<StreamSubscription>()
+
+        /**
+         * The merged subscription of every consumer, null if there are none
+         */
+        @Volatile var limits: StreamSubscription? = null
+            private set
+
+        var lastAcceptedNanos = 0L
+
+        var droppedFrames = 0L
+        var decimatedFrames = 0L
+        var encodedFrames = 0L
+
+        fun currentSequence() = synchronized(lock) { sequence }
+
+        fun subscribe(subscription: StreamSubscription) = synchronized(lock) {
+            subscriptions.add(subscription)
+            limits = StreamSubscription.merge(subscriptions)
+        }
+
+        fun unsubscribe(subscription: StreamSubscription) = synchronized(lock) {
+            subscriptions.remove(subscription)
+            limits = StreamSubscription.merge(subscriptions)
+
+            if (limits == null) lastAcceptedNanos = 0L
+        }
+    }
+
+    private class Scratch {
+        val resized = Mat()
+        val converted = Mat()
+        val jpeg = MatOfByte()
+
+        fun release() {
+            resized.release()
+            converted.release()
+            jpeg.release()
+        }
+    }
+
+    /**
+     * An encoded JPEG in a pooled buffer, returned to the pool once
+     * the stream and every consumer writing it have released it
+     */
+    private class EncodedFrame(val pool: BufferPool, var bytes: ByteArray) {
+        var length = 0
+        var sequence = 0L
+
+        val references = AtomicInteger()
+
+        fun retain() {
+            references.incrementAndGet()
+        }
+
+        fun release() {
+            if (references.decrementAndGet() == 0) {
+                pool.recycle(this)
+            }
+        }
+    }
+
+    private class BufferPool(val maxPooled: Int) {
+        private val free = ArrayDeque<EncodedFrame>()
+
+        @Synchronized
+        fun take(size: Int): EncodedFrame {
+            val frame = free.firstOrNull { it.bytes.size >= size }?.also { free.remove(it) }
+                ?: free.removeFirstOrNull()?.apply { bytes = ByteArray(size + size / 4) }
+                ?: EncodedFrame(this, ByteArray(size + size / 4))
+
+            frame.references.set(1)
+            return frame
+        }
+
+        @Synchronized
+        fun recycle(frame: EncodedFrame) {
+            if (free.size < maxPooled) free.addLast(frame)
+        }
+    }
+
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.eocvsim.stream
+
+import kotlin.math.max
+
+/**
+ * What a consumer of a stream id wants to receive, frames are downscaled to fit
+ * within [maxWidth]x[maxHeight] and decimated to at most [maxFps] before being encoded.
+ * A limit of 0 means no limit.
+ */
+data class StreamSubscription @JvmOverloads constructor(
+    val maxWidth: Int = 0,
+    val maxHeight: Int = 0,
+    val maxFps: Double = 0.0
+) {
+
+    companion object {
+        /**
+         * Full resolution, every frame
+         */
+        @JvmField val UNLIMITED = StreamSubscription()
+
+        /**
+         * Merges the subscriptions of every consumer of a stream into the least
+         * restrictive one, so that a single encoded stream serves all of them.
+         * @return the merged subscription, or null if there are none
+         */
+        @JvmStatic
+        fun merge(subscriptions: Iterable<StreamSubscription>): StreamSubscription? {
+            var merged: StreamSubscription? = null
+
+            for (subscription in subscriptions) {
+                merged = merged?.let {
+                    StreamSubscription(
+                        mergeLimit(it.maxWidth, subscription.maxWidth),
+                        mergeLimit(it.maxHeight, subscription.maxHeight),
+                        if (it.maxFps <= 0 || subscription.maxFps <= 0) 0.0 else max(it.maxFps, subscription.maxFps)
+                    )
+                } ?: subscription
+            }
+
+            return merged
+        }
+
+        private fun mergeLimit(a: Int, b: Int) = if (a <= 0 || b <= 0) 0 else max(a, b)
+    }
+
+    val minFrameIntervalNanos get() = if (maxFps > 0) (1_000_000_000 / maxFps).toLong() else 0L
+
+    /**
+     * Factor a frame of [width]x[height] has to be scaled by to fit within
+     * this subscription's resolution, 1 if it already fits
+     */
+    fun scaleFor(width: Int, height: Int): Double {
+        var scale = 1.0
+
+        if (maxWidth in 1 until width) scale = minOf(scale, maxWidth.toDouble() / width)
+        if (maxHeight in 1 until height) scale = minOf(scale, maxHeight.toDouble() / height)
+
+        return scale
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2026 Sebastian Erives
+ * Licensed under the MIT License.
+ */
+
+package org.deltacv.vision.external.gui
+
+import android.graphics.Bitmap
+import android.graphics.Canvas
+import org.jetbrains.skia.ColorType
+import org.jetbrains.skia.impl.BufferUtil
+import org.opencv.android.Utils
+import org.opencv.core.CvType
+import org.opencv.core.Mat
+import org.opencv.imgproc.Imgproc
+import org.openftc.easyopencv.MatRecycler
+import org.openftc.easyopencv.OpenCvViewport.RenderHook
+
+/**
+ * Draws frames along with the annotations of a [RenderHook] into an offscreen bitmap
+ * at the frame's own resolution, and reads the result back into Mats of a [MatRecycler].
+ * Used to give output posters annotated frames that don't depend on the size of the
+ * window nor on when it repaints.
+ * Rendered Mats are in RGBA and have to be given back with [returnMat].
+ */
+class OffscreenViewRenderer @JvmOverloads constructor(poolCapacity: Int = POOL_CAPACITY) {
+
+    companion object {
+        const val POOL_CAPACITY = 2
+    }
+
+    private val recycler = MatRecycler(poolCapacity)
+
+    private var bitmap: Bitmap? = null
+    private var canvas: Canvas? = null
+
+    // wraps the pixels of the bitmap, in its color type
+    private var bitmapMat: Mat? = null
+
+    /**
+     * Renders [frame] and the annotations [renderHook] draws over it
+     * @return the rendered frame, or null if the frame is empty or every Mat of the pool is taken
+     */
+    @Synchronized
+    fun render(frame: Mat, renderHook: RenderHook?, userContext: Any?): MatRecycler.RecyclableMat? {
+        if (frame.empty()) return null
+
+        val output = recycler.takeMatOrNull() ?: return null
+
+        val canvas = prepare(frame.width(), frame.height())
+
+        Utils.matToBitmap(frame, bitmap!!)
+
+        if (renderHook != null) {
+            val save = canvas.save()
+            renderHook.onDrawFrame(canvas, frame.width(), frame.height(), 1f, 1f, userContext)
+            canvas.restoreToCount(save)
+        }
+
+        when (val colorType = bitmap!!.theBitmap.imageInfo.colorType) {
+            ColorType.BGRA_8888 -> Imgproc.cvtColor(bitmapMat!!, output, Imgproc.COLOR_BGRA2RGBA)
+            ColorType.RGBA_8888 -> bitmapMat!!.copyTo(output)
+            else -> {
+                recycler.returnMat(output)
+                throw IllegalStateException("Unsupported offscreen bitmap color type $colorType")
+            }
+        }
+
+        return output
+    }
+
+    fun returnMat(mat: MatRecycler.RecyclableMat) {
+        recycler.returnMat(mat)
+    }
+
+    private fun prepare(width: Int, height: Int): Canvas {
+        val current = bitmap
+
+        if (current != null && current.width == width && current.height == height) {
+            return canvas!!
+        }
+
+        release()
+
+        val newBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888)
+        val rowBytes = newBitmap.theBitmap.rowBytes
+
+        val pixels = BufferUtil.getByteBufferFromPointer(
+            newBitmap.theBitmap.peekPixels()!!.addr, rowBytes * height
+        )
+
+        bitmap = newBitmap
+        bitmapMat = Mat(height, width, CvType.CV_8UC4, pixels, rowBytes.toLong())
+
+        return Canvas(newBitmap).also { canvas = it }
+    }
+
+    @Synchronized
+    fun release() {
+        bitmapMat?.release()
+        bitmapMat = null
+
+        canvas = null
+
+        bitmap?.recycle()
+        bitmap = null
+    }
+
+}
@@ -5,15 +5,14 @@
 
 package org.deltacv.vision.external.gui
 
-import android.graphics.Bitmap
 import android.graphics.Canvas
+import com.github.serivesmejia.eocvsim.util.jfr.ViewportRenderEvent
 import org.deltacv.common.image.MatPoster
 import org.firstinspires.ftc.robotcore.internal.collections.EvictingBlockingQueue
 import org.jetbrains.skia.Color
 import org.jetbrains.skiko.SkiaLayer
 import org.jetbrains.skiko.SkiaLayerRenderDelegate
 import org.jetbrains.skiko.SkikoRenderDelegate
-import org.opencv.android.Utils
 import org.opencv.core.Mat
 import org.opencv.core.Size
 import org.openftc.easyopencv.MatRecycler
@@ -62,6 +61,7 @@ class SwingOpenCvViewport(
     val renderer: OpenCvViewRenderer = OpenCvViewRenderer(false, fpsMeterDescriptor)
 
     private val outputPosters = mutableListOf<MatPoster>()
+    private val offscreenRenderer = OffscreenViewRenderer()
 
     private val skiaLayer = SkiaLayer()
     val component: JComponent get() = skiaLayer
@@ -86,22 +86,16 @@ class SwingOpenCvViewport(
 
         skiaLayer.renderDelegate = SkiaLayerRenderDelegate(skiaLayer, object : SkikoRenderDelegate {
             override fun onRender(canvas: org.jetbrains.skia.Canvas, width: Int, height: Int, nanoTime: Long) {
-                renderCanvas(Canvas(canvas, width, height))
-
-                if (outputPosters.isNotEmpty()) {
-                    synchronized(outputPosters) {
-                        skiaLayer.screenshot().use { bmp ->
-                            framebufferRecycler?.takeMatOrNull().let { mat ->
-                                Utils.bitmapToMat(Bitmap(bmp), mat)
+                val event = ViewportRenderEvent()
+                event.begin()
 
-                                outputPosters.forEach { poster ->
-                                    poster.post(mat)
-                                }
+                renderCanvas(Canvas(canvas, width, height))
 
-                                framebufferRecycler?.returnMat(mat)
-                            }
-                        }
-                    }
+                if (event.shouldCommit()) {
+                    event.width = width
+                    event.height = height
+                    event.outputPosters = outputPosters.size
+                    event.commit()
                 }
             }
         })
@@ -131,6 +125,10 @@ class SwingOpenCvViewport(
     fun detachOutputPoster(poster: MatPoster) {
         synchronized(outputPosters) {
             outputPosters.remove(poster)
+
+            if (outputPosters.isEmpty()) {
+                offscreenRenderer.release()
+            }
         }
     }
 
@@ -205,6 +203,8 @@ class SwingOpenCvViewport(
     override fun setRecording(recording: Boolean) {}
 
     override fun post(mat: Mat, userContext: Any) {
+        postAnnotated(mat, userContext)
+
         synchronized(syncObj) {
             //Are we actually rendering to the display right now? If not,
             //no need to waste time doing a memcpy
@@ -230,6 +230,35 @@ class SwingOpenCvViewport(
         }
     }
 
+    /**
+     * Renders the frame and its annotations offscreen, at the frame's own resolution,
+     * for the output posters. Nothing is rendered if there are none.
+     */
+    private fun postAnnotated(mat: Mat, userContext: Any) {
+        if (outputPosters.isEmpty()) return
+
+        synchronized(outputPosters) {
+            if (outputPosters.isEmpty()) return
+
+            val annotated = try {
+                synchronized(renderHookLock) {
+                    offscreenRenderer.render(mat, renderHook, userContext)
+                }
+            } catch (e: Exception) {
+                logger.warn("Failed to render annotated frame for output posters", e)
+                null
+            } ?: return
+
+            try {
+                outputPosters.forEach { poster ->
+                    poster.post(annotated)
+                }
+            } finally {
+                offscreenRenderer.returnMat(annotated)
+            }
+        }
+    }
+
     /*
      * Called with syncObj held
      */
@@ -309,6 +338,10 @@ class SwingOpenCvViewport(
     }
 
     private val canvasLock = Any()
+
+    // the render hook is called both from here and from the pipeline thread for the
+    // output posters, hooks expect their onDrawFrame calls to never overlap
+    private val renderHookLock = Any()
     private lateinit var lastFrame: MatRecycler.RecyclableMat
 
     private fun renderCanvas(canvas: Canvas) {
@@ -355,7 +388,9 @@ class SwingOpenCvViewport(
                     * destroyed, calls checkState(), which *SHOULD* block until we die. This
                     * works most of the time, but not always? We don't yet understand...
                     */
-                    renderer.render(mat, canvas, renderHook, mat.context)
+                    synchronized(renderHookLock) {
+                        renderer.render(mat, canvas, renderHook, mat.context)
+                    }
 
                     //We're done with that Mat object; return it to the Mat recycler so it can be used again later
                     if (mat !== lastFrame) {
@@ -26,8 +26,13 @@ import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
 
+import org.deltacv.common.pipeline.FrameTimeHistory;
+import org.jetbrains.skia.Picture;
+import org.jetbrains.skia.PictureRecorder;
 import org.opencv.android.Utils;
 import org.opencv.core.Mat;
+import org.opencv.core.Size;
+import org.opencv.imgproc.Imgproc;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,6 +48,11 @@ public class OpenCvViewRenderer
     private static final int OVERLAY_COLOR = Color.rgb(102, 20, 68);
     private static final int PAUSED_COLOR = Color.rgb(255, 166, 0);
     private static final int RC_ACTIVITY_BG_COLOR = Color.rgb(239,239,239);
+    private static final int[] FRAME_TIME_STAGE_COLORS = {
+            Color.rgb(66, 165, 245),  // input
+            Color.rgb(255, 202, 40),  // pipeline
+            Color.rgb(102, 187, 106)  // post
+    };
     private Paint fpsMeterNormalBgPaint;
     private Paint fpsMeterRecordingPaint;
     private Paint fpsMeterTextPaint;
@@ -56,6 +66,31 @@ public class OpenCvViewRenderer
     private volatile int pipelineMs = 0;
     private volatile int overheadMs = 0;
 
+    private final int frameTimeGraphH;
+    private final int frameTimeGraphHeaderH;
+    private volatile boolean frameTimeGraphEnabled = false;
+    private volatile FrameTimeHistory frameTimeHistory;
+    private volatile float frameTimeBudgetMs = 1000f / 30f;
+    private long[][] frameTimeGraphNanos;
+    private Paint[] frameTimeStagePaints;
+    private Paint frameTimeBudgetPaint;
+    private Paint frameTimeTextPaint;
+
+    // The text overlays are recorded into pictures and replayed on every frame, they're
+    // only formatted and shaped again when the values they display change
+    private final PictureRecorder overlayRecorder = new PictureRecorder();
+
+    private Picture statsPicture;
+    private boolean statsPictureRecording;
+    private int statsPictureWidth;
+    private int statsPictureHeight;
+    private int statsPictureFpsHundredths;
+    private int statsPicturePipelineMs;
+    private int statsPictureOverheadMs;
+
+    private Picture frameTimeHeaderPicture;
+    private int frameTimeHeaderWorstTenths;
+
     private int width;
     private int height;
     private final boolean offscreen;
@@ -68,6 +103,10 @@ public class OpenCvViewRenderer
 
     private Bitmap bitmapFromMat;
 
+    // frames bigger than what the window shows are downsampled into this before
+    // being converted, it's only reallocated when the displayed size changes
+    private final Mat displayMat = new Mat();
+
     private Logger logger = LoggerFactory.getLogger(OpenCvViewRenderer.class);
 
     public OpenCvViewRenderer(boolean renderingOffsceen, String fpsMeterDescriptor)
@@ -83,6 +122,8 @@ public class OpenCvViewRenderer
         statBoxTextLineSpacing = (int) (35 * metricsScale);
         statBoxLTxtMargin = (int) (5 * metricsScale);
         statBoxTextFirstLineYFromBottomOffset = (int) (80*metricsScale);
+        frameTimeGraphH = (int) (140 * metricsScale);
+        frameTimeGraphHeaderH = (int) (26 * metricsScale);
 
         fpsMeterNormalBgPaint = new Paint();
         fpsMeterNormalBgPaint.setColor(OVERLAY_COLOR);
@@ -100,6 +141,25 @@ public class OpenCvViewRenderer
         paintBlackBackground = new Paint();
         paintBlackBackground.setColor(Color.BLACK);
         paintBlackBackground.setStyle(Paint.Style.FILL);
+
+        frameTimeStagePaints = new Paint[FRAME_TIME_STAGE_COLORS.length];
+        for (int i = 0; i < FRAME_TIME_STAGE_COLORS.length; i++)
+        {
+            frameTimeStagePaints[i] = new Paint();
+            frameTimeStagePaints[i].setColor(FRAME_TIME_STAGE_COLORS[i]);
+            frameTimeStagePaints[i].setStyle(Paint.Style.FILL);
+            frameTimeStagePaints[i].setTextSize(fpsMeterTextSize * 0.7f);
+            frameTimeStagePaints[i].setAntiAlias(true);
+        }
+
+        frameTimeBudgetPaint = new Paint();
+        frameTimeBudgetPaint.setColor(Color.RED);
+        frameTimeBudgetPaint.setStrokeWidth(metricsScale);
+
+        frameTimeTextPaint = new Paint();
+        frameTimeTextPaint.setColor(Color.WHITE);
+        frameTimeTextPaint.setTextSize(fpsMeterTextSize * 0.7f);
+        frameTimeTextPaint.setAntiAlias(true);
     }
 
     private void unifiedDraw(Canvas canvas, int onscreenWidth, int onscreenHeight, OpenCvViewport.RenderHook userHook, Object userCtx)
@@ -170,7 +230,8 @@ public class OpenCvViewRenderer
         if (userHook != null)
         {
             // Can either use width or height I guess ¯\_(ツ)_/¯
-            float scaleBitmapPxToCanvasPx = (float) scaledWidth / bitmapFromMat.getWidth();
+            // the bitmap might be downsampled, user code draws in frame pixels
+            float scaleBitmapPxToCanvasPx = (float) scaledWidth / width;
 
             // To make the user's life easy, we teleport the origin to the top
             // left corner of the bitmap we painted
@@ -192,12 +253,153 @@ public class OpenCvViewRenderer
 
             drawStats(canvas, statsRect);
         }
+
+        FrameTimeHistory history = frameTimeHistory;
+
+        if (frameTimeGraphEnabled && history != null)
+        {
+            // stacked right on top of the stats box
+            int graphBottom = onscreenHeight - y_offset_statbox - (fpsMeterEnabled ? statBoxH : 0);
+
+            Rect graphRect = createRect(
+                    x_offset_statbox,
+                    graphBottom - frameTimeGraphH,
+                    statBoxW,
+                    frameTimeGraphH
+            );
+
+            drawFrameTimeGraph(canvas, graphRect, history);
+        }
+    }
+
+    private void drawFrameTimeGraph(Canvas canvas, Rect rect, FrameTimeHistory history)
+    {
+        if (frameTimeGraphNanos == null || frameTimeGraphNanos[0].length < history.getCapacity())
+        {
+            frameTimeGraphNanos = new long[FRAME_TIME_STAGE_COLORS.length][history.getCapacity()];
+        }
+
+        int count = history.copyTo(frameTimeGraphNanos);
+
+        canvas.drawRect(rect, fpsMeterNormalBgPaint);
+
+        long worstNanos = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            long total = 0;
+            for (long[] stage : frameTimeGraphNanos)
+            {
+                total += stage[i];
+            }
+
+            worstNanos = Math.max(worstNanos, total);
+        }
+
+        float budgetMs = frameTimeBudgetMs;
+        float worstMs = worstNanos / 1_000_000f;
+
+        int worstTenths = Math.round(worstMs * 10);
+
+        if (frameTimeHeaderPicture == null || worstTenths != frameTimeHeaderWorstTenths)
+        {
+            recordFrameTimeHeader(worstTenths);
+        }
+
+        drawPicture(canvas, frameTimeHeaderPicture, rect.left, rect.top);
+
+        int plotTop = rect.top + frameTimeGraphHeaderH;
+        int plotHeight = rect.bottom - plotTop;
+
+        // the budget line always fits, with some headroom above it
+        float scaleMs = Math.max(worstMs, budgetMs * 1.25f);
+        if (scaleMs <= 0) return;
+
+        float pxPerNano = plotHeight / (scaleMs * 1_000_000f);
+        float barWidth = (float) rect.width() / history.getCapacity();
+
+        // newest frame on the right edge
+        float barLeft = rect.right - count * barWidth;
+
+        for (int i = 0; i < count; i++)
+        {
+            float barBottom = rect.bottom;
+
+            for (int stage = 0; stage < frameTimeGraphNanos.length; stage++)
+            {
+                float barHeight = frameTimeGraphNanos[stage][i] * pxPerNano;
+                if (barHeight <= 0) continue;
+
+                canvas.drawRect(barLeft, barBottom - barHeight, barLeft + barWidth, barBottom, frameTimeStagePaints[stage]);
+                barBottom -= barHeight;
+            }
+
+            barLeft += barWidth;
+        }
+
+        if (budgetMs > 0)
+        {
+            float budgetY = rect.bottom - budgetMs * 1_000_000f * pxPerNano;
+            canvas.drawLine(rect.left, budgetY, rect.right, budgetY, frameTimeBudgetPaint);
+        }
+    }
+
+    private void recordFrameTimeHeader(int worstTenths)
+    {
+        Canvas header = beginOverlayRecording(statBoxW, frameTimeGraphHeaderH);
+
+        int textX = statBoxLTxtMargin;
+        int textY = frameTimeGraphHeaderH - statBoxLTxtMargin;
+
+        header.drawText(String.format("Max: %.1fms", worstTenths / 10f), textX, textY, frameTimeTextPaint);
+
+        // legend, one color per stage
+        int legendX = textX + (int) (140 * metricsScale);
+        for (FrameTimeHistory.Stage stage : FrameTimeHistory.Stage.values())
+        {
+            header.drawText(stage.getDisplayName(), legendX, textY, frameTimeStagePaints[stage.ordinal()]);
+            legendX += (int) (90 * metricsScale);
+        }
+
+        if (frameTimeHeaderPicture != null)
+        {
+            frameTimeHeaderPicture.close();
+        }
+
+        frameTimeHeaderPicture = overlayRecorder.finishRecordingAsPicture();
+        frameTimeHeaderWorstTenths = worstTenths;
     }
 
     private void drawStats(Canvas canvas, Rect rect)
     {
+        // Cache current state, can change behind our backs
+        boolean recording = isRecording;
+        float fpsSafe = fps;
+        int fpsHundredths = Math.round(fpsSafe * 100);
+        int pipelineMsSafe = pipelineMs;
+        int overheadMsSafe = overheadMs;
+
+        if (statsPicture == null
+                || recording != statsPictureRecording
+                || width != statsPictureWidth
+                || height != statsPictureHeight
+                || fpsHundredths != statsPictureFpsHundredths
+                || pipelineMsSafe != statsPicturePipelineMs
+                || overheadMsSafe != statsPictureOverheadMs)
+        {
+            recordStats(recording, fpsSafe, pipelineMsSafe, overheadMsSafe);
+        }
+
+        drawPicture(canvas, statsPicture, rect.left, rect.top);
+    }
+
+    private void recordStats(boolean recording, float fps, int pipelineMs, int overheadMs)
+    {
+        Canvas canvas = beginOverlayRecording(statBoxW, statBoxH);
+        Rect rect = createRect(0, 0, statBoxW, statBoxH);
+
         // Draw the purple rectangle
-        if(isRecording)
+        if(recording)
         {
             canvas.drawRect(rect, fpsMeterRecordingPaint);
         }
@@ -216,6 +418,43 @@ public class OpenCvViewRenderer
         canvas.drawText(fpsMeterDescriptor, statBoxLTxtStart, textLine1Y, fpsMeterTextPaint);
         canvas.drawText(String.format("FPS@%dx%d: %.2f", width, height, fps), statBoxLTxtStart, textLine2Y, fpsMeterTextPaint);
         canvas.drawText(String.format("Pipeline: %dms - Overhead: %dms", pipelineMs, overheadMs), statBoxLTxtStart, textLine3Y, fpsMeterTextPaint);
+
+        if (statsPicture != null)
+        {
+            statsPicture.close();
+        }
+
+        statsPicture = overlayRecorder.finishRecordingAsPicture();
+
+        statsPictureRecording = recording;
+        statsPictureWidth = width;
+        statsPictureHeight = height;
+        statsPictureFpsHundredths = Math.round(fps * 100);
+        statsPicturePipelineMs = pipelineMs;
+        statsPictureOverheadMs = overheadMs;
+    }
+
+    /**
+     * Starts recording an overlay of the given size, finished with {@link PictureRecorder#finishRecordingAsPicture()}
+     * @return a canvas drawing into the recording, with its origin at the top left corner of the overlay
+     */
+    private Canvas beginOverlayRecording(int width, int height)
+    {
+        org.jetbrains.skia.Canvas recordingCanvas = overlayRecorder.beginRecording(
+                org.jetbrains.skia.Rect.makeWH(width, height)
+        );
+
+        return new Canvas(recordingCanvas, width, height);
+    }
+
+    private static void drawPicture(Canvas canvas, Picture picture, int x, int y)
+    {
+        int save = canvas.save();
+
+        canvas.translate(x, y);
+        canvas.theCanvas.drawPicture(picture, null, null);
+
+        canvas.restoreToCount(save);
     }
 
     Rect createRect(int tlx, int tly, int w, int h)
@@ -228,6 +467,27 @@ public class OpenCvViewRenderer
         this.fpsMeterEnabled = fpsMeterEnabled;
     }
 
+    public void setFrameTimeGraphEnabled(boolean frameTimeGraphEnabled)
+    {
+        this.frameTimeGraphEnabled = frameTimeGraphEnabled;
+    }
+
+    /**
+     * Sets the history drawn by the frame time graph, null to not draw it
+     */
+    public void setFrameTimeHistory(FrameTimeHistory frameTimeHistory)
+    {
+        this.frameTimeHistory = frameTimeHistory;
+    }
+
+    /**
+     * Sets the frame time marked by the red line of the frame time graph, 0 for no line
+     */
+    public void setFrameTimeBudgetMs(float frameTimeBudgetMs)
+    {
+        this.frameTimeBudgetMs = frameTimeBudgetMs;
+    }
+
     public void notifyStatistics(float fps, int pipelineMs, int overheadMs)
     {
         this.fps = fps;
@@ -247,35 +507,47 @@ public class OpenCvViewRenderer
 
     public void render(Mat mat, Canvas canvas, OpenCvViewport.RenderHook userHook, Object userCtx)
     {
-        if (bitmapFromMat == null || bitmapFromMat.getWidth() != mat.width() || bitmapFromMat.getHeight() != mat.height())
+        if(mat == null || mat.empty())
+        {
+            return;
+        }
+
+        // Cache current state, can change behind our backs
+        OpenCvViewport.OptimizedRotation optimizedRotationSafe = optimizedViewRotation;
+
+        boolean sidewaysView = renderingPolicy == OpenCvCamera.ViewportRenderingPolicy.OPTIMIZE_VIEW
+                && (optimizedRotationSafe == OpenCvViewport.OptimizedRotation.ROT_90_CLOCKWISE
+                    || optimizedRotationSafe == OpenCvViewport.OptimizedRotation.ROT_90_COUNTERCLOCWISE);
+
+        Mat displayedMat = downsampleForDisplay(
+                mat,
+                sidewaysView ? canvas.getHeight() : canvas.getWidth(),
+                sidewaysView ? canvas.getWidth() : canvas.getHeight(),
+                deviceScale(canvas)
+        );
+
+        if (bitmapFromMat == null || bitmapFromMat.getWidth() != displayedMat.width() || bitmapFromMat.getHeight() != displayedMat.height())
         {
             if (bitmapFromMat != null)
             {
                 bitmapFromMat.recycle();
             }
 
-            bitmapFromMat = Bitmap.createBitmap(mat.width(), mat.height(), Bitmap.Config.ARGB_8888);
-        }
-
-        if(mat == null || mat.empty())
-        {
-            return;
+            bitmapFromMat = Bitmap.createBitmap(displayedMat.width(), displayedMat.height(), Bitmap.Config.ARGB_8888);
         }
 
         //Convert that Mat to a bitmap we can render
         try {
-            Utils.matToBitmap(mat, bitmapFromMat, false);
+            Utils.matToBitmap(displayedMat, bitmapFromMat, false);
         } catch(Exception ex) {
             logger.warn("Failed to convert Mat to Bitmap", ex);
             return;
         }
-        
-        width = bitmapFromMat.getWidth();
-        height = bitmapFromMat.getHeight();
-        aspectRatio = (float) width / height;
 
-        // Cache current state, can change behind our backs
-        OpenCvViewport.OptimizedRotation optimizedRotationSafe = optimizedViewRotation;
+        // Size of the frame itself, not of the bitmap
+        width = mat.width();
+        height = mat.height();
+        aspectRatio = (float) width / height;
 
         if(renderingPolicy == OpenCvCamera.ViewportRenderingPolicy.MAXIMIZE_EFFICIENCY || optimizedRotationSafe == OpenCvViewport.OptimizedRotation.NONE)
         {
@@ -305,6 +577,38 @@ public class OpenCvViewRenderer
         }
     }
 
+    /**
+     * Downsamples the frame to the size it's going to be displayed at, if it's smaller.
+     * Frames shown at their full resolution or bigger are returned as they are.
+     */
+    private Mat downsampleForDisplay(Mat mat, int onscreenWidth, int onscreenHeight, float deviceScale)
+    {
+        double fitScale = Math.min((double) onscreenWidth / mat.width(), (double) onscreenHeight / mat.height()) * deviceScale;
+
+        if (fitScale >= 1 || fitScale <= 0)
+        {
+            return mat;
+        }
+
+        int displayWidth = Math.max(1, (int) Math.ceil(mat.width() * fitScale));
+        int displayHeight = Math.max(1, (int) Math.ceil(mat.height() * fitScale));
+
+        Imgproc.resize(mat, displayMat, new Size(displayWidth, displayHeight), 0, 0, Imgproc.INTER_AREA);
+
+        return displayMat;
+    }
+
+    /**
+     * How many device pixels a unit of the canvas takes up, e.g. 2 on HiDPI screens
+     */
+    private static float deviceScale(Canvas canvas)
+    {
+        float[] matrix = canvas.theCanvas.getLocalToDeviceAsMatrix33().getMat();
+        float scale = (float) Math.hypot(matrix[0], matrix[3]);
+
+        return scale > 0 ? scale : 1;
+    }
+
     public void setRenderingPolicy(OpenCvCamera.ViewportRenderingPolicy policy)
     {
         renderingPolicy = policy;